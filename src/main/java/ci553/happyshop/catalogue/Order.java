@@ -10,7 +10,7 @@ import java.util.ArrayList;
  *
  * Responsibilities:
  * - sotres information about an order, including order ID, current order state, timestamps, and the list of products.
- * - Provides getter methods for order attributes and allows updating the order state.
+ * - Provides getter methods for order attributes and allows updating the order state and its timestamps.
  * - Formats the full order details for writing to a file, including timestamps and item list.
  *
  * An order file example:
@@ -51,11 +51,15 @@ public class Order {
     public int getOrderId() { return orderId;}
     public OrderState getState() { return state; }
     public String getOrderedDateTime(){ return orderedDateTime; }
+    public String getProgressingDateTime(){ return progressingDateTime; }
+    public String getCollectedDateTime(){ return collectedDateTime; }
     public ArrayList<Product> getProductList() {
         return productList;
     }
 
     public void setState(OrderState state) { this.state = state; }
+    public void setProgressingDateTime(String progressingDateTime) { this.progressingDateTime = progressingDateTime; }
+    public void setCollectedDateTime(String collectedDateTime) { this.collectedDateTime = collectedDateTime; }
 
     /**
      * order details written to file, used by OrderHub
@@ -0,0 +1,115 @@
+package ci553.happyshop.catalogue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.TreeMap;
+
+/**
+ * The Trolley class holds the products a customer has put into the trolley, one entry per product,
+ * kept sorted by productId.
+ *
+ * Why: the trolley used to be an ArrayList. Adding a product meant scanning the list for the same productId
+ * and sorting the whole list again, removing or changing a quantity meant another scan, and checkout
+ * grouped the list by productId once more. With large (e.g. business) baskets that is a lot of work per click.
+ *
+ * How it works:
+ * - The products are kept in a TreeMap by productId, so add (merging quantities), remove and updateQuantity
+ *   each take O(log n), and the products are always in productId order without sorting.
+ * - The trolley keeps its own copies of the products. Changing the Product passed to add (e.g. the search result
+ *   the customer picked) does not change the trolley, and the trolley only changes through its own methods.
+ * - getProducts() is a read-only view in productId order, used to show the trolley (CustomerView.updateTrolley).
+ * - toPurchaseList() returns copies of the products in productId order, one per productId,
+ *   ready for DatabaseRW.purchaseStocks and OrderHub.newOrder without grouping or sorting.
+ *   Once they are bought, removePurchased(list) takes exactly those quantities out again,
+ *   so whatever the customer added during the checkout stays in the trolley.
+ *
+ * Example Usage:
+ *     Trolley trolley = new Trolley();
+ *     trolley.add(product);                 // merged with the same product if it is in the trolley already
+ *     trolley.updateQuantity("0001", 3);
+ *     cusView.updateTrolley(trolley.getProducts());
+ */
+
+public class Trolley {
+    private final TreeMap<String, Product> products = new TreeMap<>(); // productId -> product in the trolley
+
+    //Adds the ordered quantity of a product, merging it with the same product if it is in the trolley already.
+    public void add(Product product) {
+        Product inTrolley = products.get(product.getProductId());
+        if (inTrolley != null) {
+            inTrolley.setOrderedQuantity(inTrolley.getOrderedQuantity() + product.getOrderedQuantity());
+        } else {
+            products.put(product.getProductId(), copyOf(product));
+        }
+    }
+
+    //Removes a product from the trolley, whatever its quantity.
+    public void remove(String productId) {
+        products.remove(productId);
+    }
+
+    //Sets the ordered quantity of a product in the trolley, does nothing if it is not in the trolley.
+    public void updateQuantity(String productId, int quantity) {
+        Product inTrolley = products.get(productId);
+        if (inTrolley != null) {
+            inTrolley.setOrderedQuantity(quantity);
+        }
+    }
+
+    //The products in the trolley in productId order, read-only.
+    public Collection<Product> getProducts() {
+        return Collections.unmodifiableCollection(products.values());
+    }
+
+    /**
+     * Returns copies of the products in the trolley, in productId order.
+     * Changing the trolley afterward (e.g. while the checkout is running) does not change the returned list.
+     */
+    public ArrayList<Product> toPurchaseList() {
+        ArrayList<Product> purchaseList = new ArrayList<>(products.size());
+        for (Product product : products.values()) {
+            purchaseList.add(copyOf(product));
+        }
+        return purchaseList;
+    }
+
+    /**
+     * Takes the purchased quantities out of the trolley after a checkout, e.g. the list toPurchaseList() returned.
+     * A product keeps the quantity that was added while the checkout was running,
+     * products added meanwhile stay in the trolley untouched.
+     */
+    public void removePurchased(Collection<Product> purchased) {
+        for (Product product : purchased) {
+            Product inTrolley = products.get(product.getProductId());
+            if (inTrolley == null) {
+                continue; // removed while the checkout was running
+            }
+            int left = inTrolley.getOrderedQuantity() - product.getOrderedQuantity();
+            if (left > 0) {
+                inTrolley.setOrderedQuantity(left);
+            } else {
+                products.remove(product.getProductId());
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return products.isEmpty();
+    }
+
+    public int size() {
+        return products.size();
+    }
+
+    public void clear() {
+        products.clear();
+    }
+
+    private static Product copyOf(Product product) {
+        Product copy = new Product(product.getProductId(), product.getProductDescription(),
+                product.getProductImageName(), product.getUnitPrice(), product.getStockQuantity());
+        copy.setOrderedQuantity(product.getOrderedQuantity());
+        return copy;
+    }
+}
@@ -63,7 +63,7 @@ public class Main extends Application {
     /** The customer GUI -search prodduct, add to trolley, cancel/submit trolley, view receipt
      *
      * Creates the Model, View, and Controller objects, links them together so they can communicate with each other.
-     * Also creates the DatabaseRW instance via the DatabaseRWFactory and injects it into the CustomerModel.
+     * Also creates the DatabaseRW and AsyncDatabaseRW instances via the DatabaseRWFactory and injects them into the CustomerModel.
      * Starts the customer interface.
      *
      * Also creates the RemoveProductNotifier, which tracks the position of the Customer View
@@ -79,6 +79,7 @@ public class Main extends Application {
         cusController.cusModel = cusModel;
         cusModel.cusView = cusView;
         cusModel.databaseRW = databaseRW;
+        cusModel.asyncDatabaseRW = DatabaseRWFactory.createAsyncDatabaseRW();
         cusView.start(new Stage());
 
         //RemoveProductNotifier removeProductNotifier = new RemoveProductNotifier();
@@ -121,7 +122,7 @@ public class Main extends Application {
 
     /** The Warehouse GUI- for warehouse staff to manage stock
      * Initializes the Warehouse client's Model, View, and Controller,and links them together for communication.
-     * It also creates the DatabaseRW instance via the DatabaseRWFactory and injects it into the Model.
+     * It also creates the DatabaseRW and AsyncDatabaseRW instances via the DatabaseRWFactory and injects them into the Model.
      * Once the components are linked, the warehouse interface (view) is started.
      *
      * Also creates the dependent HistoryWindow and AlertSimulator,
@@ -139,6 +140,7 @@ public class Main extends Application {
         controller.model = model;
         model.view = view;
         model.databaseRW = databaseRW;
+        model.asyncDatabaseRW = DatabaseRWFactory.createAsyncDatabaseRW();
         view.start(new Stage());
 
         //create dependent views that need window info
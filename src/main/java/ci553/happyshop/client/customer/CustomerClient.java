@@ -18,7 +18,7 @@ public class CustomerClient extends Application {
 
     /**
      * Creates the Model, View, and Controller objects and links them together for communication.
-     * It also creates the DatabaseRW instance via the DatabaseRWFactory and injects it into the CustomerModel.
+     * It also creates the DatabaseRW and AsyncDatabaseRW instances via the DatabaseRWFactory and injects them into the CustomerModel.
      * Once the components are linked, the customer interface (view) is started.
      * Also creates the RemoveProductNotifier, which tracks the position of the Customer View
      * and is triggered by the Customer Model when needed.
@@ -34,6 +34,7 @@ public class CustomerClient extends Application {
         cusController.cusModel = cusModel;
         cusModel.cusView = cusView;
         cusModel.databaseRW = databaseRW;
+        cusModel.asyncDatabaseRW = DatabaseRWFactory.createAsyncDatabaseRW();
         cusView.start(window);
 
         RemoveProductNotifier removeProductNotifier = new RemoveProductNotifier();
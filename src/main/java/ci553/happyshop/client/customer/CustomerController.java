@@ -21,7 +21,7 @@ public class CustomerController {
                 break;
         }
     }
-    public void searchProducts(String keyword) throws SQLException {
+    public void searchProducts(String keyword) {
         cusModel.searchProducts(keyword);
     }
 
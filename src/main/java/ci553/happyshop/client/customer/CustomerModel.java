@@ -2,16 +2,19 @@ package ci553.happyshop.client.customer;
 
 import ci553.happyshop.catalogue.Order;
 import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.catalogue.Trolley;
+import ci553.happyshop.storageAccess.AsyncDatabaseRW;
 import ci553.happyshop.storageAccess.DatabaseRW;
 import ci553.happyshop.orderManagement.OrderHub;
-import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.storageAccess.ImageFileManager;
 import ci553.happyshop.utility.ProductListFormatter;
+import ci553.happyshop.utility.AppLogger;
+import javafx.application.Platform;
 
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * TODO
@@ -19,27 +22,61 @@ import java.util.*;
  * or create a subclass of CustomerModel and override specific methods where appropriate.
  */
 public class CustomerModel {
+    private static final AppLogger log = AppLogger.getLogger(CustomerModel.class);
     public RemoveProductNotifier proNotifier;
     public CustomerView cusView;
     public DatabaseRW databaseRW; //Interface type, not specific implementation
                                   //Benefits: Flexibility: Easily change the database implementation.
+    public AsyncDatabaseRW asyncDatabaseRW; //runs searches and checkout off the JavaFX Application Thread
 
     private Product theProduct =null; // product found from search
-    private ArrayList<Product> trolley =  new ArrayList<>(); // a list of products in trolley
+    private final Trolley trolley = new Trolley(); // the products in trolley, merged by productId and sorted
 
     // Four UI elements to be passed to CustomerView for display updates.
     private String imageName = "imageHolder.jpg";                // Image to show in product preview (Search Page)
     private String displayLaSearchResult = "No Product was searched yet"; // Label showing search result message (Search Page)
     private String displayTaReceipt = "";                                // Text area content showing receipt after checkout (Receipt Page)
 
+    private long searchCounter = 0;           // incremented by every search, used to ignore results of older searches
+    private CompletableFuture<?> pendingSearch = null; // shows the results of the running search, cancelled by a newer search
+    private final SearchResultCache searchCache = new SearchResultCache(); // recent results, reused while typing
+    private boolean checkoutInProgress = false; // a second click on "Check Out" is ignored until the first one has finished
+
     //SELECT productID, description, image, unitPrice,inStock quantity
-    public void searchProducts(String Keyword) throws SQLException {
+    //The query runs in the background, the results are shown on the JavaFX Application Thread when they arrive.
+    //Called by CustomerView while the customer types (after a short pause), so most calls are answered by the
+    //SearchResultCache: recent results, or the results of a shorter keyword narrowed down (e.g. "usb" -> "usb3").
+    public void searchProducts(String Keyword) {
+        long thisSearch = ++searchCounter;
+        if (pendingSearch != null) {
+            // The older search's results would be ignored anyway, so its display step is cancelled.
+            // The query itself still finishes (interrupting a Derby query can close its connection),
+            // and its results still go into the cache.
+            pendingSearch.cancel(false);
+            pendingSearch = null;
+        }
         if (Keyword == null || Keyword.isBlank()) {
             cusView.updateSearchResults(List.of());
             return;
         }
-        List<Product> results = databaseRW.searchProduct(Keyword);
-        cusView.updateSearchResults(results);
+        ArrayList<Product> cachedResults = searchCache.get(Keyword);
+        if (cachedResults != null) {
+            cusView.updateSearchResults(cachedResults);
+            return;
+        }
+        CompletableFuture<ArrayList<Product>> query = asyncDatabaseRW.searchProduct(Keyword);
+        query.thenAccept(results -> searchCache.put(Keyword, results));
+        pendingSearch = query.whenCompleteAsync((results, error) -> {
+            if (thisSearch != searchCounter) {
+                return; // a newer search has been started since, its results are the ones to show
+            }
+            if (error != null) {
+                log.error("Search for " + Keyword + " failed", error);
+                cusView.updateSearchResults(List.of());
+            } else {
+                cusView.updateSearchResults(results);
+            }
+        }, Platform::runLater);
     }
 
     public void selectProduct(Product product) {
@@ -62,17 +99,17 @@ public class CustomerModel {
                 String baseInfo = String.format("Product_Id: %s\n%s,\nPrice: £%.2f", productId, description, unitPrice);
                 String quantityInfo = stock < 100 ? String.format("\n%d units left.", stock) : "";
                 displayLaSearchResult = baseInfo + quantityInfo;
-                System.out.println(displayLaSearchResult);
+                log.debug(displayLaSearchResult);
             }
             else{
                 theProduct=null;
                 displayLaSearchResult = "No Product was found with ID " + productId;
-                System.out.println("No Product was found with ID " + productId);
+                log.debug("No Product was found with ID " + productId);
             }
         }else{
             theProduct=null;
             displayLaSearchResult = "Please type ProductID";
-            System.out.println("Please type ProductID.");
+            log.debug("Please type ProductID.");
         }
         updateView();
     }
@@ -83,116 +120,110 @@ public class CustomerModel {
                 theProduct.setOrderedQuantity(1);
             }
 
-            // trolley.add(theProduct) — Product is appended to the end of the trolley.
-            // To keep the trolley organized, add code here or call a method that:
-            //TODO
+            // The trolley keeps itself organized:
             // 1. Merges items with the same product ID (combining their quantities).
-            // 2. Sorts the products in the trolley by product ID.
-            //adding in the organized trolley
-            makeOrganizedTrolley();
-            cusView.updateTrolley(trolley);
+            // 2. Keeps the products sorted by product ID.
+            trolley.add(theProduct);
+            cusView.updateTrolley(trolley.getProducts());
         }
         else{
             displayLaSearchResult = "Please search for an available product before adding it to the trolley";
-            System.out.println("must search and get an available product before add to trolley");
+            log.debug("must search and get an available product before add to trolley");
         }
         displayTaReceipt=""; // Clear receipt to switch back to trolleyPage (receipt shows only when not empty)
         updateView();
     }
 
-    //To set the added items to the trolley in order from 1 to 10 (ID)
-    void makeOrganizedTrolley(){
-        for(Product p: trolley){
-            if(p.getProductId().equals(theProduct.getProductId())){
-               p.setOrderedQuantity(p.getOrderedQuantity()+ theProduct.getOrderedQuantity());
-               return;
-            }
-        }
-        trolley.add(theProduct);
-        trolley.sort(Comparator.comparing(Product::getProductId));
-    }
-
     public void removeProduct(Product p) {
-        trolley.removeIf(t -> t.getProductId().equals(p.getProductId()));
-        cusView.updateTrolley(trolley);
+        trolley.remove(p.getProductId());
+        cusView.updateTrolley(trolley.getProducts());
     }
 
     public void updateQuantity(Product p, int qty) {
-        for(Product t : trolley) {
-            if(t.getProductId().equals(p.getProductId())) {
-                t.setOrderedQuantity(qty);
-            }
-        }
-        cusView.updateTrolley(trolley);
+        trolley.updateQuantity(p.getProductId(), qty);
+        cusView.updateTrolley(trolley.getProducts());
     }
 
-    void checkOut() throws IOException, SQLException {
-        System.out.println("Checkout Done");
-        if(!trolley.isEmpty()){
-            // Group the products in the trolley by productId to optimize stock checking
+    // The stock is purchased in the background, the rest of the checkout
+    // (creating the order, updating the trolley and receipt) runs on the JavaFX Application Thread afterward.
+    void checkOut() {
+        if(!trolley.isEmpty() && !checkoutInProgress){
+            // The trolley is already organized (one product per productId, sorted by productId),
+            // so its purchase list needs no grouping: the stock for a given productId is checked once.
             // Check the database for sufficient stock for all products in the trolley.
             // If any products are insufficient, the update will be rolled back.
             // If all products are sufficient, the database will be updated, and insufficientProducts will be empty.
-            // Note: If the trolley is already organized (merged and sorted), grouping is unnecessary.
-            ArrayList<Product> trolleyList = groupProductsById(trolley);
-            ArrayList<Product> insufficientProducts= databaseRW.purchaseStocks(trolleyList);
-
-            if(insufficientProducts.isEmpty()){ // If stock is sufficient for all products
-                //get OrderHub and tell it to make a new Order
-                OrderHub orderHub =OrderHub.getOrderHub();
-                Order theOrder = orderHub.newOrder(trolley);
-                trolley.clear();
-                cusView.updateTrolley(trolley);
-                displayTaReceipt = String.format(
-                        "Order_ID: %s\nOrdered_Date_Time: %s\n%s",
-                        theOrder.getOrderId(),
-                        theOrder.getOrderedDateTime(),
-                        ProductListFormatter.buildString(theOrder.getProductList())
-                );
-                System.out.println(displayTaReceipt);
-            }
-            else{ // Some products have insufficient stock — build an error message to inform the customer
-                displayLaSearchResult = "Checkout Failed Due To Insufficient Stock";
-                StringBuilder errorMsg = new StringBuilder();
-                for(Product p : insufficientProducts){
-                    //Removing the product with insufficient stock from the trolley list
-                    trolleyList.remove(p);
-                    //Producing the error format for the error message
-                    errorMsg.append("\u2022 "+ p.getProductId()).append(", ")
-                            .append(p.getProductDescription()).append(" (Only ")
-                            .append(p.getStockQuantity()).append(" available, ")
-                            .append(p.getOrderedQuantity()).append(" requested)\n");
+            ArrayList<Product> trolleyList = trolley.toPurchaseList();
+            checkoutInProgress = true;
+            asyncDatabaseRW.purchaseStocks(trolleyList).whenCompleteAsync((insufficientProducts, error) -> {
+                if (error != null) {
+                    checkoutInProgress = false;
+                    log.error("Checkout failed", error);
+                    displayLaSearchResult = "Checkout failed, please try again";
+                } else {
+                    finishCheckOut(trolleyList, insufficientProducts);
                 }
-                proNotifier.showRemovalMsg(errorMsg.toString());
-                System.out.println("stock is not enough");
-            }
+                updateView();
+            }, Platform::runLater);
+            return;
         }
         updateView();
     }
 
-    /**
-     * Groups products by their productId to optimize database queries and updates.
-     * By grouping products, we can check the stock for a given `productId` once, rather than repeatedly
-     */
-    private ArrayList<Product> groupProductsById(ArrayList<Product> proList) {
-        Map<String, Product> grouped = new HashMap<>();
-        for (Product p : proList) {
-            String id = p.getProductId();
-            if (grouped.containsKey(id)) {
-                Product existing = grouped.get(id);
-                existing.setOrderedQuantity(existing.getOrderedQuantity() + p.getOrderedQuantity());
-            } else {
-                // Make a shallow copy to avoid modifying the original
-                grouped.put(id,new Product(p.getProductId(),p.getProductDescription(),
-                        p.getProductImageName(),p.getUnitPrice(),p.getStockQuantity()));
+    // Called on the JavaFX Application Thread once the database has answered the purchase.
+    // The checkout ends once the order is stored (or has failed), the receipt is shown then.
+    private void finishCheckOut(ArrayList<Product> trolleyList, ArrayList<Product> insufficientProducts) {
+        if(insufficientProducts.isEmpty()){ // If stock is sufficient for all products
+            //get OrderHub and tell it to make a new Order
+            OrderHub orderHub =OrderHub.getOrderHub();
+            CompletableFuture<Order> newOrder;
+            try {
+                newOrder = orderHub.newOrder(trolleyList); // exactly what was purchased, even if the trolley changed meanwhile
+            } catch (IOException | SQLException e) {
+                newOrder = CompletableFuture.failedFuture(e);
+            }
+            newOrder.whenCompleteAsync((theOrder, error) -> {
+                checkoutInProgress = false;
+                if (error != null) {
+                    log.error("Stock was purchased but the order could not be created", error);
+                    displayLaSearchResult = "Checkout failed, please contact staff";
+                } else {
+                    trolley.removePurchased(trolleyList); // keeps what was added while the checkout was running
+                    cusView.updateTrolley(trolley.getProducts());
+                    searchCache.clear(); // the stock shown in cached search results has changed
+                    displayTaReceipt = String.format(
+                            "Order_ID: %s\nOrdered_Date_Time: %s\n%s",
+                            theOrder.getOrderId(),
+                            theOrder.getOrderedDateTime(),
+                            ProductListFormatter.buildString(theOrder.getProductList())
+                    );
+                    log.info("Checkout done, order " + theOrder.getOrderId() + " created");
+                    log.debug(displayTaReceipt);
+                }
+                updateView();
+            }, Platform::runLater);
+        }
+        else{ // Some products have insufficient stock — build an error message to inform the customer
+            checkoutInProgress = false;
+            displayLaSearchResult = "Checkout Failed Due To Insufficient Stock";
+            StringBuilder errorMsg = new StringBuilder();
+            for(Product p : insufficientProducts){
+                //Removing the product with insufficient stock from the trolley list
+                trolleyList.remove(p);
+                //Producing the error format for the error message
+                errorMsg.append("\u2022 "+ p.getProductId()).append(", ")
+                        .append(p.getProductDescription()).append(" (Only ")
+                        .append(p.getStockQuantity()).append(" available, ")
+                        .append(p.getOrderedQuantity()).append(" requested)\n");
             }
+            proNotifier.showRemovalMsg(errorMsg.toString());
+            log.info("Checkout failed, stock is not enough");
         }
-        return new ArrayList<>(grouped.values());
     }
 
     void cancel(){
         trolley.clear();
-        cusView.updateTrolley(trolley);
+        cusView.updateTrolley(trolley.getProducts());
         updateView();
     }
     void closeReceipt(){
@@ -202,8 +233,7 @@ public class CustomerModel {
 
     void updateView() {
         if(theProduct != null){
-           Path p = Paths.get(StorageLocation.imageFolder + theProduct.getProductImageName()).toAbsolutePath();
-           imageName = p.toUri().toString();
+           imageName = ImageFileManager.imageUri(theProduct.getProductImageName(), 60, 60); //the 60x60 preview
         }
         else{
             imageName = "imageHolder.jpg";
@@ -215,7 +245,7 @@ public class CustomerModel {
      //File.toURI(): Converts a File object (a file on the filesystem) to a URI object
 
     //for test only
-    public ArrayList<Product> getTrolley() {
+    public Trolley getTrolley() {
         return trolley;
     }
 }
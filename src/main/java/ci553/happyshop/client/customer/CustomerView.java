@@ -1,10 +1,12 @@
 package ci553.happyshop.client.customer;
 
 import ci553.happyshop.catalogue.Product;
-import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.utility.ImageCache;
 import ci553.happyshop.utility.UIStyle;
 import ci553.happyshop.utility.WinPosManager;
 import ci553.happyshop.utility.WindowBounds;
+import ci553.happyshop.utility.AppLogger;
+import javafx.animation.PauseTransition;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -18,12 +20,12 @@ import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Line;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -34,11 +36,13 @@ import java.util.List;
  */
 
 public class CustomerView  {
+    private static final AppLogger log = AppLogger.getLogger(CustomerView.class);
     public CustomerController cusController;
 
     private final int WIDTH = UIStyle.customerWinWidth;
     private final int HEIGHT = UIStyle.customerWinHeight;
     private final int COLUMN_WIDTH = WIDTH / 2 - 10;
+    private final int SEARCH_DELAY_MILLIS = 250; // search-as-you-type waits for a pause in typing this long
 
     private HBox hbRoot; // Top-level layout manager
     private VBox vbTrolleyPage;  //vbTrolleyPage and vbReceiptPage will swap with each other when need
@@ -62,6 +66,7 @@ public class CustomerView  {
     private ObservableList<Product> obeTrolleyList;
     private TextArea taReceipt;//in receipt page
     private HBox hbSearch;
+    private PauseTransition searchDelay; // restarted by every keystroke, searches once the customer pauses typing
 
     // Holds a reference to this CustomerView window for future access and management
     // (e.g., positioning the removeProductNotifier when needed).
@@ -108,13 +113,14 @@ public class CustomerView  {
         -fx-text-fill: black;
         -fx-font-weight: bold;
         """);
-        btnSearch.setOnAction(actionEvent -> {
-                    try {
-                        cusController.searchProducts(tfId.getText().trim());
-                    } catch (SQLException e) {
-                        e.printStackTrace();
-                    }
-        });
+        btnSearch.setOnAction(actionEvent -> searchNow());
+
+        // Search as you type: every change restarts the delay, so the search runs once typing pauses,
+        // not for every keystroke. Enter (or the search button) searches straight away.
+        searchDelay = new PauseTransition(Duration.millis(SEARCH_DELAY_MILLIS));
+        searchDelay.setOnFinished(event -> cusController.searchProducts(tfId.getText().trim()));
+        tfId.textProperty().addListener((obs, oldText, newText) -> searchDelay.playFromStart());
+        tfId.setOnAction(actionEvent -> searchNow());
         btnSearch.getProperties().put("search", null);
 
         HBox hbSearch = new HBox(5,tfId, btnSearch);
@@ -233,16 +239,9 @@ public class CustomerView  {
 
     private HBox createProductItem(Product product) {
         String imageName = product.getProductImageName(); // Get image name (e.g. "0001.jpg")
-        String relativeImageUrl = StorageLocation.imageFolder + imageName;
-        Path imageFullPath = Paths.get(relativeImageUrl).toAbsolutePath();
-        String imageFullUri = imageFullPath.toUri().toString();// Build the full image Uri
-        ImageView ivPro;
-        try {
-            ivPro = new ImageView(new Image(imageFullUri, 50, 45, true, true)); // Attempt to load the product image
-        } catch (Exception e) {
-            // If loading fails, use a default image directly from the resources folder
-            ivPro = new ImageView(new Image("imageHolder.jpg", 50, 45, true, true)); // Directly load from resources
-        }
+        ImageView ivPro = new ImageView();
+        // From the shared cache; the placeholder is shown until the image has been decoded in the background
+        ImageCache.load(ivPro, imageName, 50, 45);
         Label laStock = new Label("Pending Stock");
 
         int stockQuantity = product.getStockQuantity() - product.getOrderedQuantity();
@@ -320,7 +319,8 @@ public class CustomerView  {
         return row;
     }
 
-    public void updateTrolley(List<Product> trolley) {
+    //the products in the trolley, in the order they are shown (Trolley.getProducts() is sorted by productId)
+    public void updateTrolley(Collection<Product> trolley) {
         vbTrolleyItems.getChildren().clear();
         double sum = 0;
 
@@ -367,7 +367,7 @@ public class CustomerView  {
             cusController.doAction(action);
         }
         catch(SQLException e){
-            e.printStackTrace();
+            log.error("Button action failed", e);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -398,6 +398,12 @@ public class CustomerView  {
         lbResultCount.setText(products.size() + "products found");
     }
 
+    // Searches for the text in the search field at once, instead of after the typing delay.
+    private void searchNow() {
+        searchDelay.stop();
+        cusController.searchProducts(tfId.getText().trim());
+    }
+
     // Replaces the last child of hbRoot with the specified page.
     // the last child is either vbTrolleyPage or vbReceiptPage.
     private void showTrolleyOrReceiptPage(Node pageToShow) {
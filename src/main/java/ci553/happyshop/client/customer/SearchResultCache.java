@@ -0,0 +1,88 @@
+package ci553.happyshop.client.customer;
+
+import ci553.happyshop.catalogue.Product;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SearchResultCache keeps the results of recent product searches of the customer client,
+ * so typing (and deleting) in the search field does not send a query to the database for every keystroke.
+ *
+ * How it works:
+ * - put(keyword, results) keeps the results of a database search, get(keyword) returns them again
+ *   for at most ttlMillis; after that the stock shown could be out of date and the database is asked again.
+ * - Prefix reuse: a search (DatabaseRW.searchProduct) returns the product with the keyword as its ID, otherwise
+ *   every product whose description contains the keyword. So when the keyword extends a cached keyword,
+ *   e.g. "usb" -> "usb3", the new results are the cached description results that also contain the new keyword;
+ *   get filters them locally instead of asking the database. This is only done when:
+ *     - the cached results came from a description search, not from a product ID match, and
+ *     - the new keyword cannot be a product ID (product IDs are four digits, see WarehouseModel), and
+ *     - the new keyword has no '%' or '_', which the database treats as LIKE wildcards.
+ *   The filtered results are cached too, as old as the results they were filtered from.
+ * - At most maxSize keywords are kept; the least recently used one is dropped when a new one is added.
+ * Keywords are compared ignoring case, as the description search does, lower-cased with Locale.ROOT
+ * like ProductSearchIndex, so the narrowed results are the ones the search would return in any default locale.
+ *
+ * The methods can be called from any thread: results are put from the database thread
+ * and read on the JavaFX Application Thread.
+ */
+
+public class SearchResultCache {
+    public static long ttlMillis = 5_000;  // how long results are reused
+    public static int maxSize = 200;       // the most keywords kept
+
+    private record Entry(ArrayList<Product> results, boolean byDescription, long storedAt) {}
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override // an access-ordered LinkedHashMap drops its least recently used entry once the limit is exceeded
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    //Keeps the results of a database search for the keyword.
+    public synchronized void put(String keyword, ArrayList<Product> results) {
+        // a single product with the keyword as its ID is a product ID match, otherwise the results are description matches
+        boolean byDescription = !(results.size() == 1 && results.getFirst().getProductId().equals(keyword));
+        entries.put(keyword.toLowerCase(Locale.ROOT), new Entry(results, byDescription, System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns the results for the keyword if they are cached, or can be filtered from the cached results
+     * of a shorter keyword it starts with (see the class comment).
+     * @return the results, or null if the database has to be asked
+     */
+    public synchronized ArrayList<Product> get(String keyword) {
+        String key = keyword.toLowerCase(Locale.ROOT);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && now - entry.storedAt() <= ttlMillis) {
+            return entry.results();
+        }
+        if (key.matches("\\d{4}") || key.contains("%") || key.contains("_")) {
+            return null; // could be a product ID, or a pattern only the database understands
+        }
+        for (int length = key.length() - 1; length > 0; length--) { // the longest cached prefix first
+            Entry prefix = entries.get(key.substring(0, length));
+            if (prefix != null && prefix.byDescription() && now - prefix.storedAt() <= ttlMillis) {
+                ArrayList<Product> narrowed = new ArrayList<>();
+                for (Product product : prefix.results()) {
+                    if (product.getProductDescription().toLowerCase(Locale.ROOT).contains(key)) {
+                        narrowed.add(product);
+                    }
+                }
+                entries.put(key, new Entry(narrowed, true, prefix.storedAt()));
+                return narrowed;
+            }
+        }
+        return null;
+    }
+
+    //Drops all results, e.g. after a checkout has changed the stock.
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
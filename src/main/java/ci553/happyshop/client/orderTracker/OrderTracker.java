@@ -1,43 +1,53 @@
 package ci553.happyshop.client.orderTracker;
 
+import ci553.happyshop.orderManagement.OrderEvent;
+import ci553.happyshop.orderManagement.OrderEventListener;
 import ci553.happyshop.orderManagement.OrderHub;
 import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.FxBatchDispatcher;
+import ci553.happyshop.utility.SortedOrderList;
 import ci553.happyshop.utility.UIStyle;
 import ci553.happyshop.utility.WinPosManager;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
-import javafx.scene.control.TextArea;
+import javafx.scene.control.ListView;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.SortedMap;
 
 /**
  * OrderTracker class is for tracking orders and their states.
- * It displays an ordersMap(a list of orders with their associated states) in a TextArea.
- * The ordersMap data is received from the OrderHub.
+ * It displays the orders with their associated states in a ListView, sorted by orderId.
+ * The orders are received from the OrderHub: a snapshot when the tracker registers,
+ * then one OrderEvent per change, which adds, changes or removes a single row (SortedOrderList).
+ * The ListView only creates cells for the visible rows, so updating the display does not depend on the number of orders.
+ * Changes are applied in batches on the JavaFX Application Thread (FxBatchDispatcher),
+ * so a burst of orders is handled in one go rather than one runLater per order.
  */
 
-public class OrderTracker {
+public class OrderTracker implements OrderEventListener {
     private final int WIDTH = UIStyle.trackerWinWidth;
     private final int HEIGHT = UIStyle.trackerWinHeight;
 
-    // TreeMap (orderID,state) holding order IDs and their corresponding states.
-    private static final TreeMap<Integer, OrderState> ordersMap = new TreeMap<>();
-    private final TextArea taDisplay; //area to show all orderId and their state on the GUI
+    // (orderID,state) rows holding order IDs and their corresponding states, sorted by orderId.
+    private final SortedOrderList ordersList = new SortedOrderList();
+    private final ListView<SortedOrderList.Entry> lvDisplay; //list to show all orderId and their state on the GUI
+    // applies order changes on the JavaFX thread, in batches
+    private final FxBatchDispatcher dispatcher = new FxBatchDispatcher(FxBatchDispatcher.defaultMaxLatencyMillis);
 
-     //Constructor initializes the UI, a title Label, and a TextArea for displaying the order details.
+     //Constructor initializes the UI, a title Label, and a ListView for displaying the orders.
     public OrderTracker() {
         Label laTitle = new Label("Order_ID,  State");
         laTitle.setStyle(UIStyle.labelTitleStyle);
 
-        taDisplay = new TextArea();
-        taDisplay.setEditable(false);
-        taDisplay.setStyle(UIStyle.textFiledStyle);
+        lvDisplay = new ListView<>(ordersList.getItems());
+        lvDisplay.setStyle(UIStyle.textFiledStyle);
+        lvDisplay.setFocusTraversable(false); // for display only
+        lvDisplay.setCellFactory(SortedOrderList.cellFactory(5));
 
-        VBox vbox = new VBox(10,laTitle, taDisplay);
+        VBox vbox = new VBox(10,laTitle, lvDisplay);
         vbox.setAlignment(Pos.TOP_CENTER);
         vbox.setStyle(UIStyle. rootStyleGray);
 
@@ -61,26 +71,27 @@ public class OrderTracker {
     }
 
     /**
-     * Sets the order map with new data and refreshes the display.
-     * This method is called by OrderHub when order states are updated.
+     * Replaces the displayed orders with new data.
+     * This method is called by OrderHub when the tracker registers (or when OrderHub reloads its orders).
      */
-    public void setOrderMap(TreeMap<Integer, OrderState> om) {
-        ordersMap.clear(); // Clears the current map to replace it with the new data.
-        ordersMap.putAll(om);// Adds all new order data to the map.
-        displayOrderMap();// Updates the display with the new order map.
+    @Override
+    public void onSnapshot(long sequenceNumber, SortedMap<Integer, OrderState> orders) {
+        dispatcher.submit(() -> ordersList.setAll(orders)); // replaces all rows with the new data
     }
 
-     //Displays the current order map in the TextArea.
-     //Iterates over the ordersMap and formats each order ID and state for display.
-    private void displayOrderMap() {
-        StringBuilder sb = new StringBuilder();
-        for(Map.Entry<Integer, OrderState> entry : ordersMap.entrySet()) {
-            int orderId = entry.getKey();
-            OrderState orderState = entry.getValue();
-            sb.append(orderId).append(" ".repeat(5)).append(orderState).append("\n");
-        }
-        String textDisplay = sb.toString();
-        taDisplay.setText(textDisplay);
+    /**
+     * Applies one change to the displayed orders.
+     * This method is called by OrderHub when an order is created, changes state or is removed.
+     */
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        dispatcher.submit(() -> {
+            if (event.getType() == OrderEvent.Type.Removed) {
+                ordersList.remove(event.getOrderId());
+            } else {
+                ordersList.put(event.getOrderId(), event.getNewState());
+            }
+        });
     }
 
 }
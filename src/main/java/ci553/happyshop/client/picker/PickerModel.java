@@ -1,12 +1,17 @@
 package ci553.happyshop.client.picker;
 
+import ci553.happyshop.orderManagement.OrderEvent;
+import ci553.happyshop.orderManagement.OrderEventListener;
 import ci553.happyshop.orderManagement.OrderHub;
 import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.AppLogger;
+import ci553.happyshop.utility.FxBatchDispatcher;
+import ci553.happyshop.utility.SortedOrderList;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * PickerModel represents the logic order picker.
@@ -15,15 +20,16 @@ import java.util.TreeSet;
  * 2. Notifying PickerView to Updates user interface.
  *
  * 1. Observing OrderHub.
- * PickerModel is an observer of  OrderHub, receiving orderMap from OrderHub.
+ * PickerModel is an observer of  OrderHub: it receives a snapshot of the orderMap when it registers,
+ * then one OrderEvent per change, and keeps the orders in the "ordered" and "progressing" states.
  * When a picker claims a task, PickerModel:
- * - Retrieves the first unlocked order from the orderMap.
- * - Locks the selected order to prevent other pickers from accessing it.
- * - Notifies OrderHub to update the orderMap, and begin preparation of the order.
+ * - Asks OrderHub to claim the oldest waiting order for this picker. OrderHub hands each order to
+ *   exactly one picker (OrderClaimQueue), so other pickers can never take the same order.
+ * - OrderHub updates the orderMap, and the picker begins preparation of the order.
  *
  * Once the order is collected by the customer, PickerModel:
- * - Unlocks the order.
  * - Notifies OrderHub to update the orderMap.
+ * - Completes its claim on the order.
  * - Begins the next task if available.
  *
  * All changes in order state are centralized through OrderHub to ensure synchronization.
@@ -39,113 +45,103 @@ import java.util.TreeSet;
  * in response to centralized changes made by the OrderHub.
  */
 
-public class PickerModel {
+public class PickerModel implements OrderEventListener {
+    private static final AppLogger log = AppLogger.getLogger(PickerModel.class);
+
     public PickerView pickerView;
     private OrderHub orderHub = OrderHub.getOrderHub();
 
-    //two elements that need to be passed to PickerView for updating.
-    private String displayTaOrderMap="";
+    //the order detail that needs to be passed to PickerView for updating.
+    //The order list is shown by the PickerView's ListView directly, see registerWithOrderHub().
     private String displayTaOrderDetail ="";
 
-    // TreeMap (orderID,state) holding order IDs and their corresponding states.
-    private static TreeMap<Integer, OrderState> orderMap = new TreeMap<>();
-    private static TreeSet<Integer> lockedOrderIds = new TreeSet<>(); // Track locked orders by orderId
+    // (orderID,state) rows holding order IDs and their corresponding states, sorted by orderId.
+    private final SortedOrderList orderList = new SortedOrderList();
+    // applies order changes on the JavaFX thread, in batches
+    private final FxBatchDispatcher dispatcher = new FxBatchDispatcher(FxBatchDispatcher.defaultMaxLatencyMillis);
 
     private int theOrderId=0; //Order ID assigned to a picker;
                               // 0 means no order is currently assigned.
     private OrderState theOrderState;
 
     /**
-     * Attempts to find an unlocked order for this picker and mark it as progressing.
-     * The order will be locked to prevent other pickers from accessing it.
-     * Only the first unlocked order found will be processed.
+     * Claims the oldest waiting order for this picker and marks it as progressing.
+     * OrderHub hands each order to only one picker, so no other picker can take it.
+     * Does nothing if no order is waiting.
      */
     public void doProgressing() throws IOException {
-        for (Map.Entry<Integer, OrderState> entry : orderMap.entrySet()) {
-            int orderId = entry.getKey();
-            if (!isOrderLocked(orderId)) { // Find the first unlocked order
-                lockOrder(orderId);// Lock the order to prevent other pickers from taking it
-                theOrderId = orderId; // Save the assigned orderId to this picker and update its state
-                theOrderState = OrderState.Progressing;
-                notifyOrderHub();// Notify the OrderHub about the state change
-                updatePickerView(); // Refresh picker view
-                return; // Exit after handling one order
-            }
-        }
-    }
-
-    // Lock an order
-    private boolean lockOrder(int orderId) {
-        if (lockedOrderIds.contains(orderId)) {
-            return false; // Order is already locked
-        } else {
-            lockedOrderIds.add(orderId);
-            return true; // Successfully locked the order
+        int orderId = orderHub.claimNextOrder(this);
+        if (orderId != 0) {
+            theOrderId = orderId; // Save the assigned orderId to this picker and update its state
+            theOrderState = OrderState.Progressing;
+            // Read order file, ie. order details
+            displayTaOrderDetail = orderHub.getOrderDetailForPicker(theOrderId);
+            updatePickerView(); // Refresh picker view
         }
     }
 
-    // Unlock an order
-    private void unlockOrder(int orderId) {
-        lockedOrderIds.remove(orderId);
-    }
-
-    // Check if an order is locked
-    private boolean isOrderLocked(int orderId) {
-        return lockedOrderIds.contains(orderId);
-    }
-
+    /**
+     * Marks the picker's order as collected and ends the claim on it.
+     * If OrderHub could not store the change (it returns false or throws), the order is still progressing:
+     * the picker keeps its claim and the order details, so collecting can be tried again.
+     */
     public void doCollected() throws IOException {
-        if(theOrderId!=0 && isOrderLocked(theOrderId)){
+        if(theOrderId!=0 && orderHub.isClaimedBy(theOrderId, this)){
+            if (!notifyOrderHub(OrderState.Collected)) { // Notify the OrderHub about the state change
+                log.warn("Order " + theOrderId + " could not be marked as collected, it stays with the picker");
+                return;
+            }
             theOrderState = OrderState.Collected;
-            notifyOrderHub(); // Notify the OrderHub about the state change
+            orderHub.completeClaim(theOrderId, this); // the order no longer needs a picker
             displayTaOrderDetail = "";
             updatePickerView(); // update picker view
             theOrderId=0;  //reset to no order is with the picker
-            unlockOrder(theOrderId);//remove the order from locked orderId set
         }
     }
 
     // Registers this PickerModel instance with the OrderHub
     //so it can receive updates about orderMap changes.
     public void registerWithOrderHub(){
+        pickerView.setOrderList(orderList.getItems()); // the ListView follows the list's changes by itself
         OrderHub orderHub = OrderHub.getOrderHub();
         orderHub.registerPickerModel(this);
     }
 
     //Notifies the OrderHub of a change in the order state.
-    //If the order is moving to the 'Progressing' state, asks OrderHub to read the order detail
-    // from the file system for displaying in the pickerView.
-    private void notifyOrderHub() throws IOException {
-        orderHub.changeOrderStateMoveFile(theOrderId, theOrderState);
-        if (theOrderState == OrderState.Progressing) {
-            // Read order file, ie. order details
-            displayTaOrderDetail = orderHub.getOrderDetailForPicker(theOrderId);
-        }
+    //Returns false if the OrderHub did not change it.
+    private boolean notifyOrderHub(OrderState newState) throws IOException {
+        return orderHub.changeOrderStateMoveFile(theOrderId, newState);
     }
 
-    // Sets the order map with new data and refreshes the display.
-    // This method is called by OrderHub to set orderMap for picker.
-    public void setOrderMap(TreeMap<Integer,OrderState> om) {
-        orderMap.clear();
-        orderMap.putAll(om);
-        displayTaOrderMap= buildOrderMapString();
-        updatePickerView();
+    // Sets the order list with new data, the PickerView's ListView shows the change.
+    // This method is called by OrderHub when the picker registers (or when OrderHub reloads its orders).
+    // Collected orders are not shown to pickers.
+    @Override
+    public void onSnapshot(long sequenceNumber, SortedMap<Integer, OrderState> orders) {
+        TreeMap<Integer, OrderState> waitingOrders = new TreeMap<>();
+        for (Map.Entry<Integer, OrderState> entry : orders.entrySet()) {
+            if (entry.getValue() != OrderState.Collected) {
+                waitingOrders.put(entry.getKey(), entry.getValue());
+            }
+        }
+        dispatcher.submit(() -> orderList.setAll(waitingOrders));
     }
 
-    //Builds a formatted string representing the current order map.
-    //Each line contains the order ID followed by its state, aligned with spacing.
-    private String buildOrderMapString() {
-        StringBuilder sb = new StringBuilder();
-        for(Map.Entry<Integer, OrderState> entry : orderMap.entrySet()) {
-            int orderId = entry.getKey();
-            OrderState orderState = entry.getValue();
-            sb.append(orderId).append(" ".repeat(8)).append(orderState).append("\n");
-        }
-        return sb.toString();
+    // Applies one change to the order list, the PickerView's ListView shows the change.
+    // This method is called by OrderHub when an order is created, changes state or is removed.
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        dispatcher.submit(() -> {
+            if (event.getType() == OrderEvent.Type.Removed || event.getNewState() == OrderState.Collected) {
+                orderList.remove(event.getOrderId());
+            } else {
+                orderList.put(event.getOrderId(), event.getNewState());
+            }
+        });
     }
 
     private void updatePickerView()
     {
-        pickerView.update(displayTaOrderMap,displayTaOrderDetail);
+        pickerView.update(displayTaOrderDetail);
     }
 }
@@ -2,6 +2,8 @@ package ci553.happyshop.client.picker;
 
 import ci553.happyshop.utility.UIStyle;
 import ci553.happyshop.utility.WinPosManager;
+import ci553.happyshop.utility.SortedOrderList;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -34,8 +36,9 @@ public class PickerView  {
     private VBox vbOrderDetailRoot;
 
     //Three controllers needs updating when program going on
-    private TextArea taOrderMap = new TextArea();
-          // TextArea for displaying a list of orders and their states(orderId → state)
+    private ListView<SortedOrderList.Entry> lvOrderMap = new ListView<>();
+          // ListView for displaying a list of orders and their states(orderId → state),
+          // only the visible rows are drawn, however many orders are waiting
     private TextArea taOrderDetail = new TextArea();
         // TextArea for displaying detailed information about the selected order after it is assigned to the picker.
     private Label laDetailRootTitle;
@@ -64,15 +67,16 @@ public class PickerView  {
         Label laOrderMapRootTitle = new Label("Orders Waiting for Processing");
         laOrderMapRootTitle.setStyle(UIStyle.labelTitleStyle);
 
-        taOrderMap.setEditable(false);
-        taOrderMap.setPrefSize(WIDTH, HEIGHT - 100);
-        taOrderMap.setStyle(UIStyle.textFiledStyle);
+        lvOrderMap.setPrefSize(WIDTH, HEIGHT - 100);
+        lvOrderMap.setStyle(UIStyle.textFiledStyle);
+        lvOrderMap.setFocusTraversable(false); // for display only, the picker does not choose an order
+        lvOrderMap.setCellFactory(SortedOrderList.cellFactory(8));
 
         Button btnProgressing = new Button("Progressing");
         btnProgressing.setOnAction(this::buttonClicked);
         btnProgressing.setStyle(UIStyle.buttonStyle);
 
-        VBox vbOrdersListRoot = new VBox(15, laOrderMapRootTitle, taOrderMap, btnProgressing);
+        VBox vbOrdersListRoot = new VBox(15, laOrderMapRootTitle, lvOrderMap, btnProgressing);
         vbOrdersListRoot.setAlignment(Pos.TOP_CENTER);
         vbOrdersListRoot.setStyle(UIStyle.rootStyleYellow);
 
@@ -120,8 +124,12 @@ public class PickerView  {
         }
     }
 
-    void update(String strOrderMap, String strOrderDetail) {
-        taOrderMap.setText(strOrderMap);
+    //shows the given orders (kept up to date by the PickerModel) in the order list
+    void setOrderList(ObservableList<SortedOrderList.Entry> orders) {
+        lvOrderMap.setItems(orders);
+    }
+
+    void update(String strOrderDetail) {
         taOrderDetail.setText(strOrderDetail);
         laDetailRootTitle.setText("Progressing Order Details");
     }
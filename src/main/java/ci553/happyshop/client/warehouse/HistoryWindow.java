@@ -2,6 +2,7 @@ package ci553.happyshop.client.warehouse;
 
 import ci553.happyshop.utility.UIStyle;
 import ci553.happyshop.utility.WindowBounds;
+import ci553.happyshop.utility.AppLogger;
 import javafx.scene.Scene;
 import javafx.scene.control.TextArea;
 import javafx.scene.layout.VBox;
@@ -20,6 +21,7 @@ import java.util.ArrayList;
  */
 
 public class HistoryWindow {
+    private static final AppLogger log = AppLogger.getLogger(HistoryWindow.class);
     private static int WIDTH = UIStyle.HistoryWinWidth;
     private static int HEIGHT = UIStyle.HistoryWinHeight;
 
@@ -66,6 +68,5 @@ public class HistoryWindow {
             result.append(his).append("\n"); // Append item followed by a newline
         }
         taHistory.setText(result.toString());
-        System.out.println(result.toString());
     }
 }
@@ -18,7 +18,7 @@ public class WarehouseClient extends Application {
 
     /**
      * Initializes the Warehouse client's Model, View, and Controller,and links them together for communication.
-     * It also creates the DatabaseRW instance via the DatabaseRWFactory and injects it into the Model.
+     * It also creates the DatabaseRW and AsyncDatabaseRW instances via the DatabaseRWFactory and injects them into the Model.
      * Once the components are linked, the warehouse interface (view) is started.
      *
      * Also creates the dependent HistoryWindow and AlertSimulator,
@@ -36,6 +36,7 @@ public class WarehouseClient extends Application {
         controller.model = model;
         model.view = view;
         model.databaseRW = databaseRW;
+        model.asyncDatabaseRW = DatabaseRWFactory.createAsyncDatabaseRW();
         view.start(window);
 
         HistoryWindow historyWindow = new HistoryWindow();
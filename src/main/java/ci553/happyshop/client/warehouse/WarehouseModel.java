@@ -1,27 +1,31 @@
 package ci553.happyshop.client.warehouse;
 
 import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.storageAccess.AsyncDatabaseRW;
 import ci553.happyshop.storageAccess.DatabaseRW;
 import ci553.happyshop.storageAccess.DerbyRW;
 import ci553.happyshop.storageAccess.ImageFileManager;
 import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.utility.AppLogger;
+import javafx.application.Platform;
 
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 
 public class WarehouseModel {
+    private static final AppLogger log = AppLogger.getLogger(WarehouseModel.class);
     public WarehouseView view;
     public DatabaseRW databaseRW; //Interface type, not specific implementation
                          //Benefits: Flexibility: Easily change the database implementation.
+    public AsyncDatabaseRW asyncDatabaseRW; //runs searches off the JavaFX Application Thread
 
     private ArrayList<Product> productList = new ArrayList<>(); // search results fetched from the database
     private Product theSelectedPro; // the product selected from the ListView before the user edits or deletes
     private String theNewProId;
+    private long searchCounter = 0; // incremented by every search, used to ignore results of older searches
 
     //information used to update editProduct child in WarehouseView
     String displayIdEdit="";
@@ -60,20 +64,32 @@ public class WarehouseModel {
         ShowInputErrorMsg
     }
 
-    void doSearch() throws SQLException {
+    //The query runs in the background, the search page is updated on the JavaFX Application Thread when it finishes.
+    void doSearch() {
+        long thisSearch = ++searchCounter;
         String keyword = view.tfSearchKeyword.getText().trim();
         if (!keyword.equals("")) {
-            productList = databaseRW.searchProduct(keyword);
+            asyncDatabaseRW.searchProduct(keyword).whenCompleteAsync((results, error) -> {
+                if (thisSearch != searchCounter) {
+                    return; // a newer search has been started since
+                }
+                if (error != null) {
+                    log.error("Search for " + keyword + " failed", error);
+                    productList = new ArrayList<>();
+                } else {
+                    productList = results;
+                }
+                updateView(UpdateForAction.BtnSearch);
+            }, Platform::runLater);
         }
         else{
             productList.clear();
-            System.out.println("please type product ID or name to search");
+            log.debug("please type product ID or name to search");
+            updateView(UpdateForAction.BtnSearch);
         }
-        updateView(UpdateForAction.BtnSearch);
     }
 
     void doDelete() throws SQLException, IOException {
-        System.out.println("delete gets called in model");
         Product pro  = view.obrLvProducts.getSelectionModel().getSelectedItem();
         if (pro != null ) {
             theSelectedPro = pro;
@@ -90,12 +106,11 @@ public class WarehouseModel {
             theSelectedPro = null;
         }
         else{
-            System.out.println("No product was selected");
+            log.debug("No product was selected");
         }
     }
 
     void doEdit() {
-        System.out.println("Edit gets called in model");
         Product pro = view.obrLvProducts.getSelectionModel().getSelectedItem();
         if (pro != null) {
             theSelectedPro = pro;
@@ -104,15 +119,14 @@ public class WarehouseModel {
             displayStockEdit = String.valueOf (theSelectedPro.getStockQuantity());
             displayDescriptionEdit = theSelectedPro.getProductDescription();
 
-            String relativeImageUri = StorageLocation.imageFolder + theSelectedPro.getProductImageName();
-            Path imageFullPath = Paths.get(relativeImageUri).toAbsolutePath();
-            displayImageUrlEdit = imageFullPath.toUri().toString();//build the full path Uri
+            //build the full path Uri, of the 100x70 thumbnail shown in the edit form if there is one
+            displayImageUrlEdit = ImageFileManager.imageUri(theSelectedPro.getProductImageName(), 100, 70);
 
-            System.out.println("get new pro image name: " + displayImageUrlEdit);
+            log.debug("get new pro image name: " + displayImageUrlEdit);
             updateView(UpdateForAction.BtnEdit);
         }
         else{
-            System.out.println("No product was selected");
+            log.debug("No product was selected");
         }
 
     }
@@ -137,10 +151,9 @@ public class WarehouseModel {
     }
 
     private void doSubmitEdit() throws IOException, SQLException {
-        System.out.println("ok edit is called");
         if(theSelectedPro!=null) {
             String id=theSelectedPro.getProductId();
-            System.out.println("theSelectedPro " + id); //debug purpose
+            log.debug("Submitting edit of product " + id);
             String imageName = theSelectedPro.getProductImageName();
 
             String textPrice =view.tfPriceEdit.getText().trim();
@@ -169,7 +182,7 @@ public class WarehouseModel {
             }
         }
         else{
-            System.out.println("No Product Selected");
+            log.debug("No Product Selected");
         }
     }
 
@@ -213,7 +226,6 @@ public class WarehouseModel {
     }
 
     private void doSubmitNew() throws SQLException, IOException {
-        System.out.println("Adding new Pro in model");
 
         //all info(input from user) about the new product
         theNewProId = view.tfIdNewPro.getText().trim();
@@ -1,10 +1,11 @@
 package ci553.happyshop.client.warehouse;
 
 import ci553.happyshop.catalogue.Product;
-import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.utility.ImageCache;
 import ci553.happyshop.utility.UIStyle;
 import ci553.happyshop.utility.WinPosManager;
 import ci553.happyshop.utility.WindowBounds;
+import ci553.happyshop.utility.AppLogger;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -22,8 +23,6 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import javafx.geometry.Insets;
@@ -63,6 +62,7 @@ import javafx.scene.input.MouseEvent;
  */
 
 public class WarehouseView  {
+    private static final AppLogger log = AppLogger.getLogger(WarehouseView.class);
     private final int WIDTH = UIStyle.warehouseWinWidth;
     private final int HEIGHT = UIStyle.warehouseWinHeight;
     private final int COLUMN_WIDTH = WIDTH / 2 - 10;
@@ -216,21 +216,11 @@ public class WarehouseView  {
 
                 if (empty || product == null) {
                     setGraphic(null);
-                    System.out.println("setCellFactory - empty item");
                 } else {
                     String imageName = product.getProductImageName(); // Get image name (e.g. "0001.jpg")
-                    String relativeImageUrl = StorageLocation.imageFolder + imageName;
-                    // Get the full absolute path to the image
-                    Path imageFullPath = Paths.get(relativeImageUrl).toAbsolutePath();
-                    String imageFullUri = imageFullPath.toUri().toString();// Build the full image Uri
-
-                    ImageView ivPro;
-                    try {
-                        ivPro = new ImageView(new Image(imageFullUri, 50,45, true,true)); // Attempt to load the product image
-                    } catch (Exception e) {
-                        // If loading fails, use a default image directly from the resources folder
-                        ivPro = new ImageView(new Image("imageHolder.jpg",50,45,true,true)); // Directly load from resources
-                    }
+                    ImageView ivPro = new ImageView();
+                    // From the shared cache; the placeholder is shown until the image has been decoded in the background
+                    ImageCache.load(ivPro, imageName, 50, 45);
 
                     Label laProToString = new Label(product.toString()); // Create a label for product details
                     HBox hbox = new HBox(10, ivPro, laProToString); // Put ImageView and label in a horizontal layout
@@ -501,15 +491,13 @@ public class WarehouseView  {
                 // Get the selected image path, and name
                 userSelectedImageUriEdit = file.getAbsolutePath(); //eg C:\Users\shan\Desktop\mark.jpg
                 //file.getParent();  // Get the folder
-                System.out.println("Selected Image Path: " + userSelectedImageUriEdit);
-                System.out.println("Selected Image name: " + file.getName());
+                log.debug("Selected Image Path: " + userSelectedImageUriEdit);
             }
             if (theProFormMode.equals("NEW")) {
                 // Set image preview
                 ivProNewPro.setImage(new Image(file.toURI().toString()));
                 imageUriNewPro = file.getAbsolutePath();
-                System.out.println("Selected Image Path: " + imageUriNewPro);
-                System.out.println("Selected Image name: " + file.getName());
+                log.debug("Selected Image Path: " + imageUriNewPro);
             }
         }
     }
@@ -517,7 +505,6 @@ public class WarehouseView  {
     //update the product listVew of serachPage
     void updateObservableProductList( ArrayList<Product> productList) {
         int proCounter = productList.size();
-        System.out.println(proCounter);
         laSearchSummary.setText(proCounter + " products found");
         laSearchSummary.setVisible(true);
         obeProductList.clear();
@@ -536,7 +523,6 @@ public class WarehouseView  {
         tfStockEdit.setText(stock);
         taDescriptionEdit.setText(des);
 
-        System.out.println(imageUrl);
         try{
             ivProEdit.setImage(new Image(imageUrl));  // Attempt to load the product image
         } catch (Exception e) {
@@ -562,7 +548,6 @@ public class WarehouseView  {
        taDescriptionNewPro.setText("");
        ivProNewPro.setImage(new Image("WarehouseImageHolder.jpg"));
        imageUriNewPro = null; //clear the selcted image
-       System.out.println("resetNewProChild in view called");
     }
 
     WindowBounds getWindowBounds() {
@@ -0,0 +1,75 @@
+package ci553.happyshop.orderManagement;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * OrderClaimQueue hands the orders that are waiting to be prepared to pickers, each order to exactly one picker.
+ *
+ * Pickers used to scan the whole order map for the first order that was not in a shared set of locked orderIds.
+ * The map and the set were plain TreeMap/TreeSet changed without synchronisation, so two pickers could claim
+ * the same order, and every claim cost a scan of all orders. This class replaces that with:
+ * - waiting: a lock-free FIFO of the orderIds waiting for a picker, oldest first.
+ *   A claim takes the head, so it costs O(1) however many orders there are.
+ * - claims:  orderId -> the picker holding it. A picker only owns an order if its putIfAbsent succeeds,
+ *   and only the owner can give it back or complete it (remove(orderId, claimant) is a compare-and-remove).
+ *   So even if an orderId ends up in the queue twice (e.g. released while a stale copy is still queued),
+ *   it is never handed out twice.
+ *
+ * No locks are used; any number of pickers (and the customers adding orders) can call it at the same time.
+ *
+ * Example Usage:
+ *     claimQueue.offer(orderId);                 // a new order is waiting
+ *     int orderId = claimQueue.claim(picker);    // 0 if no order is waiting
+ *     claimQueue.complete(orderId, picker);      // the order has been collected
+ */
+
+public class OrderClaimQueue {
+    private final ConcurrentLinkedDeque<Integer> waiting = new ConcurrentLinkedDeque<>();
+    private final ConcurrentHashMap<Integer, Object> claims = new ConcurrentHashMap<>();
+
+    //adds an order to the back of the queue, it will be claimed after all orders already waiting
+    public void offer(int orderId) {
+        waiting.offerLast(orderId);
+    }
+
+    /**
+     * Claims the oldest waiting order for the claimant (e.g. a PickerModel).
+     * @return the orderId of the claimed order, or 0 if no order is waiting
+     */
+    public int claim(Object claimant) {
+        Integer orderId;
+        while ((orderId = waiting.pollFirst()) != null) {
+            if (claims.putIfAbsent(orderId, claimant) == null) { // only one claimant can win an order
+                return orderId;
+            }
+            // a stale copy of an order that is already claimed, skip it
+        }
+        return 0;
+    }
+
+    /**
+     * Gives a claimed order back, e.g. when the picker cannot prepare it.
+     * It goes to the front of the queue, so it is the next order to be claimed.
+     * @return false if the order is not claimed by this claimant
+     */
+    public boolean release(int orderId, Object claimant) {
+        if (!claims.remove(orderId, claimant)) {
+            return false;
+        }
+        waiting.offerFirst(orderId);
+        return true;
+    }
+
+    /**
+     * Ends the claim once the order no longer needs a picker (e.g. it has been collected).
+     * @return false if the order is not claimed by this claimant
+     */
+    public boolean complete(int orderId, Object claimant) {
+        return claims.remove(orderId, claimant);
+    }
+
+    public boolean isClaimedBy(int orderId, Object claimant) {
+        return claims.get(orderId) == claimant;
+    }
+}
@@ -1,6 +1,7 @@
 package ci553.happyshop.orderManagement;
 
 import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.utility.AppLogger;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -8,6 +9,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * OrderCounter is responsible for generating unique, sequential orderIDs for new orders.
@@ -21,6 +23,19 @@ import java.nio.channels.FileLock;
  * or multi-process environment. The method is simple to use by OrderHub
  * or any component that needs to generate order numbers.</p>
  *
+ * <p>Block mode: locking, reading and rewriting the file for every single order limits how fast orders
+ * can be created. When the block size is greater than 1, one locked file update reserves a whole block of IDs
+ * (e.g., 1000). The file then holds the high-water mark, the highest ID reserved by any process so far,
+ * and the IDs of the block are handed out from memory with an AtomicInteger until it runs out.
+ * IDs stay unique across processes, since every process reserves its own block under the file lock,
+ * and after a crash, since the high-water mark is forced to disk before any ID of the block is used.
+ * IDs of a block that are not used before the application exits are skipped (gaps are allowed).
+ * The block size is read from the system property happyshop.orderIdBlockSize, e.g. by starting the application
+ * with -Dhappyshop.orderIdBlockSize=1000. With the default of 1 the counter behaves exactly as before.</p>
+ *
+ * <p>generateOrderId() uses the counter file orders/orderCounter.txt. Other counters (e.g. in tests)
+ * can be made for any counter file with new OrderCounter(path, blockSize).</p>
+ *
  * <p>FileChannel allows exclusive locking of files or specific regions of files,
  * which prevents other threads or processes from accessing the file simultaneously,
  * ensuring data integrity. </p>
@@ -31,10 +46,59 @@ import java.nio.channels.FileLock;
  */
 
 public class OrderCounter {
+    private static final AppLogger log = AppLogger.getLogger(OrderCounter.class);
+
+    // How many IDs one update of the counter file reserves, 1 = the classic behaviour, the file is updated for every order.
+    private static final int ID_BLOCK_SIZE = Math.max(1, Integer.getInteger("happyshop.orderIdBlockSize", 1));
+
+    // the counter used by generateOrderId(), shared by the whole application
+    private static final OrderCounter orderCounter = new OrderCounter(StorageLocation.orderCounterPath, ID_BLOCK_SIZE);
+
+    private final Path path;      // the counter file, holding the highest ID reserved so far
+    private final int blockSize;  // IDs reserved per update of the file
+
+    // The block IDs are currently handed out from. Replaced (under the lock of this counter) when it runs out.
+    private volatile IdBlock currentBlock = new IdBlock(1, 0); // empty, the first call reserves a block
+
+    //a counter over an existing counter file, reserving blockSize IDs per update of the file
+    public OrderCounter(Path path, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Invalid order ID block size: " + blockSize);
+        }
+        this.path = path;
+        this.blockSize = blockSize;
+    }
+
+    //the counter of the application's counter file (orders/orderCounter.txt), used by generateOrderId()
+    public static OrderCounter getOrderCounter() {
+        return orderCounter;
+    }
 
+    //the next orderID of the application's counter file (orders/orderCounter.txt)
     public static int generateOrderId() throws IOException {
-        Path path = StorageLocation.orderCounterPath;
+        return orderCounter.nextId();
+    }
 
+    //the next orderID of this counter, unique across threads and processes sharing the counter file
+    public int nextId() throws IOException {
+        while (true) {
+            IdBlock block = currentBlock;
+            int id = block.nextId();
+            if (id > 0) {
+                return id;
+            }
+            // The block is used up. Only one thread reserves the next block, the others wait and then use it.
+            // The lock is also needed because two threads of the same process must not lock the file at once.
+            synchronized (this) {
+                if (currentBlock == block) {
+                    currentBlock = reserveBlock();
+                }
+            }
+        }
+    }
+
+    // Reserves the next blockSize IDs by moving the high-water mark in the counter file forward.
+    private IdBlock reserveBlock() throws IOException {
         // Lock and increment the ID
         try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
              FileLock lock = channel.lock()) {
@@ -52,16 +116,36 @@ public class OrderCounter {
 
             //Gets the raw byte array from the buffer so you can convert it to a string or number.
             String content = new String(buffer.array()).trim();
-            int currentId = Integer.parseInt(content);
-            int newId = currentId + 1;
+            int currentId = Integer.parseInt(content); // the highest ID reserved so far
+            int newHighWaterMark = currentId + blockSize;
 
             channel.position(0); // Move to the start of the file
             channel.truncate(0); // Clear all content in the file (file size becomes 0)
             //This wraps an existing byte array into a buffer — so you can write it with channel.write().
-            channel.write(ByteBuffer.wrap(String.valueOf(newId).getBytes()));
+            channel.write(ByteBuffer.wrap(String.valueOf(newHighWaterMark).getBytes()));
+            if (blockSize > 1) {
+                channel.force(false); // the reservation must survive a crash, or the IDs could be handed out twice
+            }
+
+            log.debug(() -> "OrderIds " + (currentId + 1) + " to " + newHighWaterMark + " were reserved");
+            return new IdBlock(currentId + 1, newHighWaterMark);
+        }
+    }
+
+    // A range of reserved IDs, first to last inclusive. Threads take IDs from it without locking.
+    private static class IdBlock {
+        private final AtomicInteger next;
+        private final int last;
+
+        IdBlock(int first, int last) {
+            this.next = new AtomicInteger(first);
+            this.last = last;
+        }
 
-            System.out.println("OrderId was generated for now: " + newId);
-            return newId;
+        // the next unused ID of this block, or -1 if the block is used up
+        int nextId() {
+            int id = next.getAndIncrement();
+            return id <= last ? id : -1;
         }
     }
 }
@@ -0,0 +1,52 @@
+package ci553.happyshop.orderManagement;
+
+/**
+ * An OrderEvent describes one change to the orders held by OrderHub.
+ *
+ * Instead of sending the whole orderMap to every observer after each change, OrderHub publishes one small event
+ * per change, and each observer applies it to its own copy of the orders:
+ * - Created:      a new order was placed, it is in newState (Ordered).
+ * - StateChanged: an order moved from oldState to newState (e.g., Ordered to Progressing).
+ * - Removed:      an order is no longer held by OrderHub (e.g., a while after it was collected).
+ *
+ * Every event has a sequence number. Sequence numbers are given out by OrderHub in the order the changes happened,
+ * they only ever increase, and events are delivered in that order. An observer that got a snapshot at sequence number N
+ * only needs the events after N to be up to date.
+ *
+ * Applying an event means "order orderId is now in newState" (or "is gone" for Removed),
+ * so applying the same event twice gives the same result.
+ */
+
+public class OrderEvent {
+    public enum Type {
+        Created,
+        StateChanged,
+        Removed
+    }
+
+    private final long sequenceNumber;
+    private final Type type;
+    private final int orderId;
+    private final OrderState oldState; // null for Created
+    private final OrderState newState; // null for Removed
+
+    OrderEvent(long sequenceNumber, Type type, int orderId, OrderState oldState, OrderState newState) {
+        this.sequenceNumber = sequenceNumber;
+        this.type = type;
+        this.orderId = orderId;
+        this.oldState = oldState;
+        this.newState = newState;
+    }
+
+    //a set of getter methods
+    public long getSequenceNumber() { return sequenceNumber; }
+    public Type getType() { return type; }
+    public int getOrderId() { return orderId; }
+    public OrderState getOldState() { return oldState; }
+    public OrderState getNewState() { return newState; }
+
+    @Override
+    public String toString() {
+        return "OrderEvent#" + sequenceNumber + "[" + type + " order " + orderId + ": " + oldState + " -> " + newState + "]";
+    }
+}
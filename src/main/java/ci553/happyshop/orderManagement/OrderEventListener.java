@@ -0,0 +1,31 @@
+package ci553.happyshop.orderManagement;
+
+import java.util.SortedMap;
+
+/**
+ * An observer of OrderHub that is kept up to date with order events rather than full copies of the orderMap.
+ *
+ * When it subscribes, a listener first receives a snapshot of the current orders (onSnapshot),
+ * then one OrderEvent for every change after that snapshot (onOrderEvent), in sequence number order.
+ * OrderHub may send a new snapshot at any time (e.g., after loading orders at startup);
+ * the listener must then replace everything it holds with that snapshot.
+ *
+ * Both methods are called after OrderHub has released its lock, usually by the thread that changed the orders
+ * (or by a thread delivering earlier events at the same time), which is not necessarily the JavaFX Application
+ * Thread. They are never called by two threads at once, and should return quickly.
+ */
+
+public interface OrderEventListener {
+
+    /**
+     * Replaces the listener's orders with a snapshot.
+     *
+     * @param sequenceNumber the sequence number of the last event included in the snapshot
+     * @param orders         all orders (orderId -> state) held by OrderHub at that point, sorted by orderId.
+     *                       The map belongs to the listener, OrderHub does not change it later.
+     */
+    void onSnapshot(long sequenceNumber, SortedMap<Integer, OrderState> orders);
+
+    //Applies one change that happened after the snapshot (or after the previous event).
+    void onOrderEvent(OrderEvent event);
+}
@@ -4,23 +4,30 @@ import ci553.happyshop.catalogue.Order;
 import ci553.happyshop.catalogue.Product;
 import ci553.happyshop.client.orderTracker.OrderTracker;
 import ci553.happyshop.client.picker.PickerModel;
-import ci553.happyshop.storageAccess.OrderFileManager;
-import ci553.happyshop.utility.StorageLocation;
+import ci553.happyshop.storageAccess.BatchingOrderWriter;
+import ci553.happyshop.storageAccess.OrderStateTable;
+import ci553.happyshop.storageAccess.OrderStore;
+import ci553.happyshop.storageAccess.OrderStoreFactory;
+import ci553.happyshop.utility.AppLogger;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * <p>{@code OrderHub} serves as the heart of the ordering system.
@@ -30,129 +37,361 @@ import java.util.stream.Stream;
  * <p> It is the central coordinator responsible for managing all orders. It handles:
  *   Creating and tracking orders
  *   Maintaining and updating the internal order map, <OrderId, OrderState>
- *   Delegating file-related operations (e.g., updating state and moving files) to OrderFileManager class
- *   Loading orders in the "ordered" and "progressing" states from storage during system startup
+ *   Delegating storage operations (e.g., storing orders and their state changes) to an OrderStore,
+ *   either the order folders (FolderOrderStore) or the order journal (JournalOrderStore), see OrderStoreFactory
+ *   Recording every state change in a memory-mapped OrderStateTable
+ *   Loading orders in the "ordered" and "progressing" states during system startup, from the OrderStateTable
+ *   if it still matches the OrderStore (see OrderStore.watermark()), otherwise from the OrderStore
  *
  * <p> OrderHub also follows the Observer pattern: it notifies registered observers such as OrderTracker
- * and PickerModel whenever the order data changes, keeping the UI and business logic in sync.</p>
+ * and PickerModel whenever the order data changes, keeping the UI and business logic in sync.
+ * Observers (OrderEventListener) receive a snapshot of all orders when they subscribe, and after that
+ * one small OrderEvent per change (Created, StateChanged, Removed) instead of a full copy of the orderMap,
+ * so the cost of a notification depends on the size of the change, not on the number of orders.</p>
  *
  * <p>As the heart of the ordering system, OrderHub connects customers, pickers, and tracker,
  * managementing logic into a unified workflow.</p>
+ *
+ * <p>Thread safety: OrderHub is called at the same time by customer checkouts, pickers (JavaFX thread)
+ * and its own scheduler thread, so all shared state uses concurrent structures instead of one big lock:
+ *   the orderMap is a ConcurrentSkipListMap (sorted by orderId, like the TreeMap it replaces),
+ *   state changes use compare-and-set (replace(orderId, oldState, newState)) so two pickers can never
+ *   both move the same order, pickers claim waiting orders from a lock-free OrderClaimQueue,
+ *   and the observer list is a CopyOnWriteArrayList.
+ *   Reading orders never locks. A change and the queuing of its event are done together under eventLock,
+ *   and the queued events are delivered after the lock is released, by one thread at a time, so they reach
+ *   every observer in sequence number order while a slow observer never holds up other changes.
+ *   The lock is only held for in-memory work, order files are read and written outside it.</p>
  */
 
 public class OrderHub  {
-    private static OrderHub orderHub; //singleton instance
+    private static final AppLogger log = AppLogger.getLogger(OrderHub.class);
+
+    private final OrderStore orderStore;
+    // stores new orders in batches, so a burst of checkouts shares the flushes
+    private final BatchingOrderWriter orderWriter;
+    // the state of every order, changed in place and read back in one pass at startup
+    private final OrderStateTable orderStateTable;
+    // hands out the orderIds of new orders
+    private final OrderCounter orderCounter;
+
+    private final ConcurrentSkipListMap<Integer,OrderState> orderMap = new ConcurrentSkipListMap<>();
 
-    private final Path orderedPath = StorageLocation.orderedPath;
-    private final Path progressingPath = StorageLocation.progressingPath;
-    private final Path collectedPath = StorageLocation.collectedPath;
+    /**
+     * All registered observers, e.g. OrderTrackers and PickerModels.
+     * Each observer decides itself which orders are relevant to it:
+     * - OrderTrackers show all orders (ordered, progressing, collected),
+     *   but collected orders are removed after a limited time (10 seconds).
+     * - PickerModels only show orders in the "ordered" or "progressing" states.
+     */
+    private final CopyOnWriteArrayList<OrderEventListener> listeners = new CopyOnWriteArrayList<>();
 
-    private TreeMap<Integer,OrderState> orderMap = new TreeMap<>();
-    private TreeMap<Integer,OrderState> OrderedOrderMap = new TreeMap<>();
-    private TreeMap<Integer,OrderState> progressingOrderMap = new TreeMap<>();
+    // The most orders kept in the order cache, must be set before OrderHub is first used
+    public static int orderCacheMaxSize = 1_000;
 
     /**
-     * Two Lists to hold all registered OrderTracker and PickerModel observers.
-     * These observers are notified whenever the orderMap is updated,
-     * but each observer is only notified of the parts of the orderMap that are relevant to them.
-     * - OrderTrackers will be notified of the full orderMap, including all orders (ordered, progressing, collected),
-     *   but collected orders are shown for a limited time (10 seconds).
-     * - PickerModels will be notified only of orders in the "ordered" or "progressing" states, filtering out collected orders.
+     * Recently created orders that are not collected yet, by orderId (LRU, at most orderCacheMaxSize).
+     * They are added by newOrder, kept in step with state changes and removed once collected,
+     * so a picker sees the order details without reading them from storage in the common case.
+     * Guarded by itself.
      */
-    private ArrayList<OrderTracker> orderTrackerList = new ArrayList<>();
-    private ArrayList<PickerModel> pickerModelList = new ArrayList<>();
+    private final LinkedHashMap<Integer, Order> orderCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override // an access-ordered LinkedHashMap drops its least recently used entry once the limit is exceeded
+        protected boolean removeEldestEntry(Map.Entry<Integer, Order> eldest) {
+            return size() > orderCacheMaxSize;
+        }
+    };
 
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    // The orders waiting for a picker, each of them is handed to exactly one picker (see claimNextOrder).
+    private final OrderClaimQueue claimQueue = new OrderClaimQueue();
+
+    // Guards lastSequenceNumber and recentEvents, and keeps each change together with the queuing of its event.
+    private final Object eventLock = new Object();
+    private long lastSequenceNumber = 0;   // sequence number of the latest event
+    // The latest events, so an observer that subscribes again can catch up without a full snapshot.
+    private static final int RECENT_EVENTS_KEPT = 1_000;
+    private final ArrayDeque<OrderEvent> recentEvents = new ArrayDeque<>();
+    // Events and snapshots for the observers, queued under eventLock in sequence number order
+    // and delivered by deliverQueued() once the lock is released.
+    private final ConcurrentLinkedQueue<Runnable> deliveries = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean(false); // true while a thread is delivering
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-hub-scheduler");
+        thread.setDaemon(true); // must not keep the JVM alive when the application exits
+        return thread;
+    });
 
     //Singleton pattern
-    private OrderHub() {}
+    //The instance is created by the JVM when the Holder class is first used, which is thread-safe without locking.
+    private OrderHub() {
+        this(OrderStoreFactory.createOrderStore(), OrderStoreFactory.createOrderWriter(),
+                OrderStoreFactory.createOrderStateTable(), OrderCounter.getOrderCounter());
+    }
+
+    //An OrderHub over its own storage instead of the application's, e.g. in tests.
+    //The orderWriter must write to orderStore.
+    OrderHub(OrderStore orderStore, BatchingOrderWriter orderWriter, OrderStateTable orderStateTable,
+             OrderCounter orderCounter) {
+        this.orderStore = orderStore;
+        this.orderWriter = orderWriter;
+        this.orderStateTable = orderStateTable;
+        this.orderCounter = orderCounter;
+    }
+    private static class Holder {
+        private static final OrderHub INSTANCE = new OrderHub();
+    }
     public static OrderHub getOrderHub() {
-        if (orderHub == null)
-            orderHub = new OrderHub();
-            return orderHub;
+        return Holder.INSTANCE;
     }
 
     //Creates a new order using the provided list of products.
     //and also notify picker and orderTracker
-    public Order newOrder(ArrayList<Product> trolley) throws IOException, SQLException {
-        int orderId = OrderCounter.generateOrderId(); //get unique orderId
+    //The order is stored in the background, the returned future completes once it is durable.
+    //Only then the order is added to the orderMap, so a picker can never claim an order that is not stored yet.
+    public CompletableFuture<Order> newOrder(ArrayList<Product> trolley) throws IOException, SQLException {
+        int orderId = orderCounter.nextId(); //get unique orderId
         String orderedDateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
         //make an Order Object: id, Ordered_state, orderedDateTime, and productsList(trolley)
-        Order theOrder = new Order(orderId,OrderState.Ordered,orderedDateTime,trolley);
-
-        //write order details to file for the orderId in orderedPath (ie. orders/ordered)
-        String orderDetail = theOrder.orderDetails();
-        Path path = orderedPath;
-        OrderFileManager.createOrderFile(path, orderId, orderDetail);
+        //The order gets its own list, the caller may go on changing the trolley (the products are not changed after checkout).
+        Order theOrder = new Order(orderId,OrderState.Ordered,orderedDateTime,new ArrayList<>(trolley));
 
-        orderMap.put(orderId, theOrder.getState()); //add the order to orderMap,state is Ordered initially
-        notifyOrderTrackers(); //notify OrderTrackers
-        notifyPickerModels();//notify pickers
-        
-        return theOrder;
+        //store the order, e.g. as a file for the orderId in orders/ordered
+        return orderWriter.createOrder(theOrder).thenApply(stored -> {
+            recordState(orderId, OrderState.Ordered, orderedDateTime);
+            //cache an own copy with its own list, the returned order is handed to the customer
+            synchronized (orderCache) {
+                orderCache.put(orderId, new Order(orderId, OrderState.Ordered, orderedDateTime,
+                        new ArrayList<>(theOrder.getProductList())));
+            }
+            //add the order to orderMap (state is Ordered initially), notify pickers and OrderTrackers
+            synchronized (eventLock) {
+                addOrder(orderId, theOrder.getState());
+                publish(OrderEvent.Type.Created, orderId, null, theOrder.getState());
+            }
+            deliverQueued();
+            claimQueue.offer(orderId); //the order is now waiting for a picker
+            return theOrder;
+        });
     }
 
     //Registers an OrderTracker to receive updates about changes.
     public void registerOrderTracker(OrderTracker orderTracker){
-        orderTrackerList.add(orderTracker);
-    }
-     //Notifies all registered observer_OrderTrackers to update and display the latest orderMap.
-    public void notifyOrderTrackers(){
-        for(OrderTracker orderTracker : orderTrackerList){
-            orderTracker.setOrderMap(orderMap);
-        }
+        subscribe(orderTracker);
     }
 
     //Registers a PickerModel to receive updates about changes.
     public void registerPickerModel(PickerModel pickerModel){
-        pickerModelList.add(pickerModel);
+        subscribe(pickerModel);
     }
 
-    //notify all pickers to show orderMap (only ordered and progressing states orders)
-    public void notifyPickerModels(){
-        TreeMap<Integer,OrderState> orderMapForPicker = new TreeMap<>();
-        progressingOrderMap = filterOrdersByState(OrderState.Progressing);
-        OrderedOrderMap = filterOrdersByState(OrderState.Ordered);
-        orderMapForPicker.putAll(progressingOrderMap);
-        orderMapForPicker.putAll(OrderedOrderMap);
-        for(PickerModel pickerModel : pickerModelList){
-            pickerModel.setOrderMap(orderMapForPicker);
+    /**
+     * Subscribes an observer. It first receives a snapshot of all current orders (onSnapshot),
+     * then every change after that snapshot as an OrderEvent (onOrderEvent).
+     * Nothing can change between the snapshot and the subscription, so no event is missed or received twice.
+     */
+    public void subscribe(OrderEventListener listener) {
+        synchronized (eventLock) {
+            queueSnapshot(listener);
         }
+        deliverQueued();
     }
 
-    // Filters orderMap that match the specified state, a helper class used by notifyPickerModel()
-    private TreeMap<Integer, OrderState> filterOrdersByState(OrderState state) {
-        TreeMap<Integer, OrderState> filteredOrderMap = new TreeMap<>(); // New map to hold filtered orders
-        // Loop through the orderMap and add matching orders to filteredOrders
-        for (Map.Entry<Integer, OrderState> entry : orderMap.entrySet()) {
-            if (entry.getValue() == state) {
-                filteredOrderMap.put(entry.getKey(), entry.getValue());
+    /**
+     * Subscribes an observer that already holds the orders up to lastSeenSequenceNumber, e.g. one that
+     * unsubscribed for a while. If the missing events are still kept, only they are replayed;
+     * otherwise it receives a full snapshot, as with subscribe(listener).
+     */
+    public void subscribe(OrderEventListener listener, long lastSeenSequenceNumber) {
+        synchronized (eventLock) {
+            OrderEvent oldestKept = recentEvents.peekFirst();
+            boolean canReplay = lastSeenSequenceNumber == lastSequenceNumber
+                    || (oldestKept != null && oldestKept.getSequenceNumber() <= lastSeenSequenceNumber + 1
+                        && lastSeenSequenceNumber < lastSequenceNumber);
+            if (!canReplay) {
+                queueSnapshot(listener);
+            } else {
+                for (OrderEvent event : recentEvents) {
+                    if (event.getSequenceNumber() > lastSeenSequenceNumber) {
+                        deliveries.add(() -> listener.onOrderEvent(event));
+                    }
+                }
+                listeners.addIfAbsent(listener);
+            }
+        }
+        deliverQueued();
+    }
+
+    //Stops sending events to an observer. Events queued before may still reach it.
+    public void unsubscribe(OrderEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Queues a snapshot of all current orders for a new observer and adds it to the observers.
+    // Caller must hold eventLock, so nothing can change between the snapshot and the subscription.
+    private void queueSnapshot(OrderEventListener listener) {
+        long sequenceNumber = lastSequenceNumber;
+        TreeMap<Integer, OrderState> snapshot = new TreeMap<>(orderMap);
+        deliveries.add(() -> listener.onSnapshot(sequenceNumber, snapshot));
+        listeners.addIfAbsent(listener);
+    }
+
+    // Creates the event for a change that has just been made and queues it for every current observer.
+    // Caller must hold eventLock, and must have made the change while holding it, then call deliverQueued()
+    // after releasing it.
+    private void publish(OrderEvent.Type type, int orderId, OrderState oldState, OrderState newState) {
+        OrderEvent event = new OrderEvent(++lastSequenceNumber, type, orderId, oldState, newState);
+        recentEvents.addLast(event);
+        if (recentEvents.size() > RECENT_EVENTS_KEPT) {
+            recentEvents.removeFirst();
+        }
+        for (OrderEventListener listener : listeners) {
+            deliveries.add(() -> listener.onOrderEvent(event));
+        }
+    }
+
+    /**
+     * Delivers the queued events and snapshots to the observers, in the order they were queued.
+     * Must be called without holding eventLock. Only one thread delivers at a time: a thread finding
+     * another one delivering leaves its events to it, and the loop re-checks the queue after giving up
+     * the flag, so an event queued just then is not left behind. An observer that changes orders while
+     * handling an event gets its own events delivered after the current one, not nested inside it.
+     */
+    private void deliverQueued() {
+        while (!deliveries.isEmpty() && delivering.compareAndSet(false, true)) {
+            try {
+                Runnable delivery;
+                while ((delivery = deliveries.poll()) != null) {
+                    try {
+                        delivery.run();
+                    } catch (RuntimeException e) {
+                        log.error("An order observer failed to handle an update", e);
+                    }
+                }
+            } finally {
+                delivering.set(false);
             }
         }
-        return filteredOrderMap;
+    }
+
+    // Adds an order to orderMap. Caller must hold eventLock.
+    private void addOrder(int orderId, OrderState state) {
+        orderMap.put(orderId, state);
+    }
+
+    /**
+     * Claims the oldest order waiting for a picker and moves it to the "progressing" state.
+     * Each order is handed to exactly one picker, and claiming costs O(1) however many orders there are.
+     * An order that was already progressing when the system started (its picker was closed) is handed out
+     * again as it is, so it can still be completed.
+     * If storing the state change fails, the claim is given back and the order stays waiting.
+     * @param picker the picker claiming the order, needed again to complete the claim
+     * @return the orderId of the claimed order, or 0 if no order is waiting
+     */
+    public int claimNextOrder(Object picker) throws IOException {
+        int orderId;
+        while ((orderId = claimQueue.claim(picker)) != 0) {
+            OrderState state = orderMap.get(orderId);
+            boolean claimed;
+            try {
+                claimed = state == OrderState.Progressing
+                        || (state == OrderState.Ordered && changeOrderStateMoveFile(orderId, OrderState.Progressing));
+            } catch (IOException | RuntimeException e) {
+                claimQueue.release(orderId, picker); // still waiting, give it back to the front of the queue
+                throw e;
+            }
+            if (claimed) {
+                return orderId;
+            }
+            claimQueue.complete(orderId, picker); // no longer waiting for a picker, try the next one
+        }
+        return 0;
+    }
+
+    //Ends a picker's claim on an order, e.g. once the order has been collected.
+    //Returns false if the order is not claimed by this picker.
+    public boolean completeClaim(int orderId, Object picker) {
+        return claimQueue.complete(orderId, picker);
+    }
+
+    //Returns true if the order is claimed by this picker.
+    public boolean isClaimedBy(int orderId, Object picker) {
+        return claimQueue.isClaimedBy(orderId, picker);
     }
 
     //Changes the state of the specified order, updates its file, and moves it to the appropriate folder.
     //trigger by PickerModel
-    public void changeOrderStateMoveFile(int orderId, OrderState newState) throws IOException {
-        if(orderMap.containsKey(orderId) && !orderMap.get(orderId).equals(newState))
+    //Only the caller whose compare-and-set succeeds moves the file, so concurrent calls for one order cannot both move it.
+    //If the store cannot change the order, the state change is undone (and observers are told) before returning.
+    //Returns true if this call changed the state.
+    public boolean changeOrderStateMoveFile(int orderId, OrderState newState) throws IOException {
+        OrderState oldState = orderMap.get(orderId);
+        if(oldState != null && !oldState.equals(newState) && changeState(orderId, oldState, newState))
         {
-            //change orderState in OrderMap, notify OrderTrackers and pickers
-            orderMap.put(orderId, newState);
-            notifyOrderTrackers();
-            notifyPickerModels();
 
-            //change orderState in order file and move the file to new state folder
-            switch(newState){
-                case OrderState.Progressing:
-                    OrderFileManager.updateAndMoveOrderFile(orderId, newState,orderedPath,progressingPath);
-                    break;
-                case OrderState.Collected:
-                    OrderFileManager.updateAndMoveOrderFile(orderId, newState,progressingPath,collectedPath);
-                    removeCollectedOrder(orderId); //Scheduled removal
-                    break;
+            //change orderState and its time in the stored order, e.g. edit the order file and move it to new state folder
+            String dateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+            boolean stored;
+            try {
+                stored = orderStore.updateOrderState(orderId, oldState, newState, dateTime);
+            } catch (IOException | RuntimeException e) {
+                changeState(orderId, newState, oldState); // undo, the stored order is still in oldState
+                throw e;
+            }
+            if (!stored) {
+                changeState(orderId, newState, oldState);
+                log.warn("Order " + orderId + " was not found in the " + oldState + " state of the order store");
+                return false;
+            }
+            // The store stays the record of the order; the table only needs a mapped-page write
+            // (no fsync), so startup can read all states in one pass instead of asking the store.
+            recordState(orderId, newState, dateTime);
+            updateCachedOrder(orderId, newState, dateTime);
+            if (newState == OrderState.Collected) {
+                removeCollectedOrder(orderId); //Scheduled removal
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // Records a state change in the order state table, a few bytes written to a mapped page.
+    private void recordState(int orderId, OrderState state, String dateTime) {
+        try {
+            orderStateTable.put(orderId, state, dateTime);
+        } catch (IOException e) {
+            log.error("Order " + orderId + " could not be recorded in the order state table", e);
+        }
+    }
+
+    // Applies a state change to the cached order, if it is cached. Collected orders leave the cache.
+    private void updateCachedOrder(int orderId, OrderState newState, String dateTime) {
+        synchronized (orderCache) {
+            if (newState == OrderState.Collected) {
+                orderCache.remove(orderId);
+                return;
             }
+            Order order = orderCache.get(orderId);
+            if (order != null) {
+                order.setState(newState);
+                if (newState == OrderState.Progressing) {
+                    order.setProgressingDateTime(dateTime);
+                }
+            }
+        }
+    }
+
+    // Changes the state of an order in orderMap, and notifies OrderTrackers and pickers.
+    // Returns false if the order is no longer in oldState, e.g. another picker changed it first.
+    private boolean changeState(int orderId, OrderState oldState, OrderState newState) {
+        synchronized (eventLock) {
+            if (!orderMap.replace(orderId, oldState, newState)) {
+                return false;
+            }
+            publish(OrderEvent.Type.StateChanged, orderId, oldState, newState);
         }
+        deliverQueued();
+        return true;
     }
 
     /**
@@ -167,77 +406,91 @@ public class OrderHub  {
         if (orderMap.containsKey(orderId)) {
             // Schedule removal after a few seconds
             scheduler.schedule(() -> {
-                orderMap.remove(orderId); //remove collected order
-                System.out.println("Order " + orderId + " removed from tracker and OrdersMap.");
-                notifyOrderTrackers();
+                synchronized (eventLock) {
+                    if (orderMap.remove(orderId, OrderState.Collected)) { //remove collected order, only if still collected
+                        publish(OrderEvent.Type.Removed, orderId, OrderState.Collected, null);
+                        log.debug(() -> "Order " + orderId + " removed from tracker and OrdersMap.");
+                    }
+                }
+                deliverQueued();
             }, 10, TimeUnit.SECONDS );
         }
     }
 
     // Reads details of an order for display in the picker once they started preparing the order.
+    // Served from the order cache if the order is cached, otherwise read from storage.
     public String  getOrderDetailForPicker(int orderId) throws IOException {
         OrderState state = orderMap.get(orderId);
-        if(state.equals(OrderState.Progressing)) {
-            return OrderFileManager.readOrderFile(progressingPath,orderId);
+        if(state == OrderState.Progressing) {
+            synchronized (orderCache) {
+                Order order = orderCache.get(orderId);
+                if (order != null) {
+                    return order.orderDetails();
+                }
+            }
+            return orderStore.readOrder(orderId, state);
         }else{
             return "the fuction is only for picker";
         }
     }
 
-    //Initializes the internal order map by loading the uncollected orders from the file system.
+    //Initializes the internal order map by loading the uncollected orders from the order state table,
+    //if it still matches the order store (same watermark), otherwise from the order store, which then rebuilds the table.
     // Called during system startup by the Main class.
     public void initializeOrderMap(){
-        ArrayList<Integer> orderedIds = orderIdsLoader(orderedPath);
-        ArrayList<Integer> progressingIds = orderIdsLoader(progressingPath);
-        if(orderedIds.size()>0){
-            for(Integer orderId : orderedIds){
-                orderMap.put(orderId, OrderState.Ordered);
+        SortedMap<Integer, OrderState> openOrders;
+        try {
+            String watermark = orderStore.watermark();
+            if (watermark.equals(orderStateTable.getWatermark())) {
+                openOrders = orderStateTable.loadOpenOrders(); // one sequential read
+            } else { // a new table, a crash, or orders changed while the application was not running
+                log.info("The order state table does not match the order store, it is rebuilt");
+                openOrders = orderStore.loadOpenOrders();
+                orderStateTable.rebuild(openOrders);
+            }
+            // Until a clean shutdown saves it again (see OrderStoreFactory), the table must not be trusted:
+            // after a crash it may hold changes the store never made durable.
+            orderStateTable.setWatermark("");
+        } catch (IOException e) {
+            log.error("Error loading orders, " + e.getMessage());
+            openOrders = new TreeMap<>();
+        }
+        ArrayList<Integer> orderedIds = new ArrayList<>();
+        ArrayList<Integer> progressingIds = new ArrayList<>();
+        for (Map.Entry<Integer, OrderState> entry : openOrders.entrySet()) { // sorted by orderId
+            if (entry.getValue() == OrderState.Progressing) {
+                progressingIds.add(entry.getKey());
+            } else {
+                orderedIds.add(entry.getKey());
             }
         }
-        if(progressingIds.size()>0){
+        synchronized (eventLock) {
+            for(Integer orderId : orderedIds){
+                addOrder(orderId, OrderState.Ordered);
+            }
             for(Integer orderId : progressingIds){
-                orderMap.put(orderId, OrderState.Progressing);
-            }
-        }
-        notifyOrderTrackers();
-        notifyPickerModels();
-        System.out.println("orderMap initilized. "+ orderMap.size() + " orders in total, including:");
-        System.out.println( orderedIds.size() + " Ordered orders, " +progressingIds.size() + " Progressing orders " );
-    }
-
-    // Loads a list of order IDs from the specified directory.
-    // Used internally by initializeOrderMap().
-    private ArrayList<Integer> orderIdsLoader(Path dir) {
-        ArrayList<Integer> orderIds = new ArrayList<>();
-
-        if (Files.exists(dir) && Files.isDirectory(dir)) {
-            try (Stream<Path> fileStream = Files.list(dir)) {
-                // Process the stream without checking it separately
-                List<Path> files = fileStream.filter(Files::isRegularFile).toList();
-
-                if (files.isEmpty()) {
-                    System.out.println(dir + " is empty");
-                } else {
-                    for (Path file : files) {
-                        String fileName = file.getFileName().toString();
-                        if (fileName.endsWith(".txt")) { // Ensure it's a .txt file
-                            try {
-                                int orderId = Integer.parseInt(fileName.substring(0, fileName.lastIndexOf('.')));
-                                orderIds.add(orderId);
-                                System.out.println(orderId);
-                            } catch (NumberFormatException e) {
-                                System.out.println("Invalid file name: " + fileName);
-                            }
-                        }
-                    }
-                }
-            } catch (IOException e) {
-                System.out.println("Error reading " + dir + ", " + e.getMessage());
+                addOrder(orderId, OrderState.Progressing);
+            }
+            // Loading is not recorded as events, so every observer gets a fresh snapshot instead,
+            // and observers that subscribe again later cannot catch up from events older than the load.
+            lastSequenceNumber++;
+            recentEvents.clear();
+            long sequenceNumber = lastSequenceNumber;
+            TreeMap<Integer,OrderState> snapshot = new TreeMap<>(orderMap);
+            for (OrderEventListener listener : listeners) {
+                deliveries.add(() -> listener.onSnapshot(sequenceNumber, new TreeMap<>(snapshot)));
             }
-        } else {
-            System.out.println(dir + " does not exist.");
         }
-        return orderIds;
+        deliverQueued();
+        // No picker holds an order at startup: orders left progressing are handed out first, as they are the oldest.
+        for(Integer orderId : progressingIds){
+            claimQueue.offer(orderId);
+        }
+        for(Integer orderId : orderedIds){
+            claimQueue.offer(orderId);
+        }
+        log.info("orderMap initilized. "+ orderMap.size() + " orders in total, including: "
+                + orderedIds.size() + " Ordered orders, " +progressingIds.size() + " Progressing orders");
     }
 
 }
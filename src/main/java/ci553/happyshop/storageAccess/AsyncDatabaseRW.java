@@ -0,0 +1,118 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * AsyncDatabaseRW is a non-blocking companion to DatabaseRW for the JavaFX clients.
+ *
+ * The models used to call DatabaseRW directly from the JavaFX Application Thread, so the window
+ * froze for as long as a query took. AsyncDatabaseRW runs each call of the wrapped DatabaseRW on
+ * its own virtual thread and returns a CompletableFuture straight away.
+ *
+ * How it works:
+ * - Every method has the same name and parameters as in DatabaseRW, and completes its future
+ *   with the same result. If the call throws an SQLException, the future completes exceptionally
+ *   with a CompletionException whose cause is that SQLException.
+ * - Virtual threads are cheap, so there is no thread pool to size. The number of queries really running
+ *   at the same time is still limited by the ConnectionPool.
+ * - This class does not know about JavaFX. The callers hand the result back to the UI thread themselves, e.g.
+ *       asyncDatabaseRW.searchProduct(keyword)
+ *               .whenCompleteAsync((products, error) -> view.update(...), Platform::runLater);
+ *
+ * Note: the callbacks run after the method that made the call has returned, so a model must be
+ * prepared for a newer request finishing before an older one (e.g., discard stale search results).
+ */
+
+public class AsyncDatabaseRW {
+    private final DatabaseRW databaseRW;
+    private final ExecutorService executor;
+
+    //runs the calls of databaseRW on a new virtual thread each
+    public AsyncDatabaseRW(DatabaseRW databaseRW) {
+        this(databaseRW, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    public AsyncDatabaseRW(DatabaseRW databaseRW, ExecutorService executor) {
+        this.databaseRW = databaseRW;
+        this.executor = executor;
+    }
+
+    //the wrapped, blocking DatabaseRW
+    public DatabaseRW getDatabaseRW() {
+        return databaseRW;
+    }
+
+    public CompletableFuture<ArrayList<Product>> searchProduct(String keyword) {
+        return submit(() -> databaseRW.searchProduct(keyword));
+    }
+
+    public CompletableFuture<Product> searchByProductId(String productId) {
+        return submit(() -> databaseRW.searchByProductId(productId));
+    }
+
+    public CompletableFuture<ArrayList<Product>> searchByProductIds(Collection<String> productIds) {
+        return submit(() -> databaseRW.searchByProductIds(productIds));
+    }
+
+    public CompletableFuture<ArrayList<Product>> getAllProducts() {
+        return submit(databaseRW::getAllProducts);
+    }
+
+    public CompletableFuture<ArrayList<Product>> purchaseStocks(ArrayList<Product> proList) {
+        return submit(() -> databaseRW.purchaseStocks(proList));
+    }
+
+    public CompletableFuture<Void> updateProduct(String id, String des, double price, String imageName, int stock) {
+        return submit(() -> {
+            databaseRW.updateProduct(id, des, price, imageName, stock);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteProduct(String productId) {
+        return submit(() -> {
+            databaseRW.deleteProduct(productId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> isProIdAvailable(String productId) {
+        return submit(() -> databaseRW.isProIdAvailable(productId));
+    }
+
+    public CompletableFuture<Void> insertNewProduct(String id, String des, double price, String image, int stock) {
+        return submit(() -> {
+            databaseRW.insertNewProduct(id, des, price, image, stock);
+            return null;
+        });
+    }
+
+    //stops accepting new calls, calls already running are finished
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(DatabaseCall<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.run();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    // a DatabaseRW call, which may throw an SQLException (so it cannot be a Supplier)
+    @FunctionalInterface
+    private interface DatabaseCall<T> {
+        T run() throws SQLException;
+    }
+}
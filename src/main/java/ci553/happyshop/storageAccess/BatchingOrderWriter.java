@@ -0,0 +1,101 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.utility.AppLogger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * BatchingOrderWriter stores new orders in the background, in batches, with one flush (fsync) per batch.
+ *
+ * Why: when many customers check out at once, writing and syncing every order on its own costs one
+ * round of disk operations per order. Here orders that arrive while a batch is being written are
+ * collected and written together, then made durable with a single OrderStore.flush().
+ *
+ * How it works:
+ * - createOrder(order) only queues the order and returns a CompletableFuture at once.
+ * - One writer thread takes everything that is queued (up to maxBatchSize orders), stores each order,
+ *   then flushes the OrderStore once for the whole batch.
+ * - Each order's future completes once its order is durable, or completes exceptionally if it could not
+ *   be stored or the flush failed. An order is never reported as stored before the flush.
+ * So a single customer pays about the same as before, and a burst of customers shares the flushes.
+ *
+ * Example Usage:
+ *     orderWriter.createOrder(theOrder)
+ *                .thenRun(() -> ...); // the order is durable now
+ */
+
+public class BatchingOrderWriter {
+    private static final AppLogger log = AppLogger.getLogger(BatchingOrderWriter.class);
+
+    private record PendingOrder(Order order, CompletableFuture<Void> stored) {}
+
+    private final OrderStore orderStore;
+    private final int maxBatchSize;
+    private final LinkedBlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * @param orderStore   where the orders are stored
+     * @param maxBatchSize the most orders written with one flush
+     */
+    public BatchingOrderWriter(OrderStore orderStore, int maxBatchSize) {
+        this.orderStore = orderStore;
+        this.maxBatchSize = maxBatchSize;
+        Thread writer = new Thread(this::writeLoop, "order-writer");
+        writer.setDaemon(true); // must not keep the JVM alive when the application exits
+        writer.start();
+    }
+
+    //Queues a new order to be stored. The future completes once the order is durable.
+    //The order must not be changed until the future completes.
+    public CompletableFuture<Void> createOrder(Order order) {
+        CompletableFuture<Void> stored = new CompletableFuture<>();
+        queue.add(new PendingOrder(order, stored));
+        return stored;
+    }
+
+    // Runs on the writer thread: waits for an order, then writes it together with all orders queued meanwhile.
+    private void writeLoop() {
+        List<PendingOrder> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                writeBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeBatch(List<PendingOrder> batch) {
+        List<PendingOrder> written = new ArrayList<>(batch.size());
+        for (PendingOrder order : batch) {
+            try {
+                orderStore.createOrder(order.order());
+                written.add(order);
+            } catch (IOException | RuntimeException e) {
+                log.error("Storing order " + order.order().getOrderId() + " failed", e);
+                order.stored().completeExceptionally(e);
+            }
+        }
+        try {
+            orderStore.flush(); // one flush for the whole batch
+        } catch (IOException | RuntimeException e) {
+            log.error("Flushing " + written.size() + " orders failed", e);
+            for (PendingOrder order : written) {
+                order.stored().completeExceptionally(e);
+            }
+            return;
+        }
+        for (PendingOrder order : written) {
+            order.stored().complete(null);
+        }
+        log.debug(() -> written.size() + " orders stored with one flush");
+    }
+}
@@ -0,0 +1,344 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * CachingDatabaseRW is a read-through cache placed in front of another DatabaseRW (the decorator pattern).
+ *
+ * ProductTable is read far more often than it is changed, so repeat lookups are answered from memory
+ * instead of making a JDBC round trip every time.
+ *
+ * What is kept in memory:
+ * - products, keyed by productID (filled by searchByProductId, searchProduct and when the index is built)
+ * - a ProductSearchIndex over all product descriptions. Keyword searches find the matching productIDs
+ *   in the index instead of running a LIKE '%keyword%' table scan, then resolve them through the product cache;
+ *   the matches that are not cached (or have expired) are read together with one searchByProductIds call.
+ *   The index matches the keyword as plain text, so a keyword with the LIKE wildcards '%' or '_'
+ *   is passed to the wrapped DatabaseRW, which matches it as a pattern.
+ *   The index is built from getAllProducts() on the first keyword search and rebuilt after indexRefreshMillis,
+ *   in case another process (e.g., a standalone WarehouseClient) changed the database. A rebuild runs outside
+ *   the lock, and other searches keep using the old index until the new one is swapped in.
+ *
+ * Eviction and invalidation:
+ * - The product cache is LRU bounded by maxEntries, and every entry expires ttlMillis after it was loaded.
+ * - updateProduct, deleteProduct and insertNewProduct invalidate the product and update the index
+ *   with the new description (or remove it from the index). updateProduct only changes products
+ *   the index already has, since updating an ID that does not exist adds no product.
+ * - purchaseStocks invalidates only the purchased products, since their stock has changed.
+ *
+ * Products are mutable (e.g., the customer client sets the ordered quantity), so the cache stores its own
+ * copies and always hands out new copies; a caller changing a returned product never changes the cache.
+ *
+ * Writes and anything the cache does not cover (isProIdAvailable) are passed straight to the wrapped DatabaseRW.
+ */
+
+public class CachingDatabaseRW implements DatabaseRW {
+    private final DatabaseRW delegate;  // the real database access, eg. DerbyRW
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long indexRefreshMillis;
+
+    private final LinkedHashMap<String, CacheEntry<Product>> productCache;  // productID -> product
+    // built on first keyword search, null until then or after a failed write; replaced whole, read without the lock
+    private volatile BuiltIndex searchIndex;
+    private final AtomicBoolean rebuildingIndex = new AtomicBoolean(false); // one rebuild at a time
+
+    // Incremented by every write. A load that started before a write must not put stale data into the cache.
+    private final AtomicLong writeCount = new AtomicLong(0);
+
+    // cache metrics
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * @param delegate           the DatabaseRW that really reads and writes the database
+     * @param maxEntries         the maximum number of products kept in memory
+     * @param ttlMillis          how long a cached product is trusted before it is read from the database again
+     * @param indexRefreshMillis how long the search index is used before it is rebuilt from the database
+     */
+    public CachingDatabaseRW(DatabaseRW delegate, int maxEntries, long ttlMillis, long indexRefreshMillis) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.indexRefreshMillis = indexRefreshMillis;
+        this.productCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override // an access-ordered LinkedHashMap drops its least recently used entry once maxEntries is exceeded
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<Product>> eldest) {
+                return size() > CachingDatabaseRW.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Same behaviour as DerbyRW.searchProduct: the keyword is first tried as a product ID,
+     * otherwise all products whose description contains the keyword are returned.
+     */
+    @Override
+    public ArrayList<Product> searchProduct(String keyword) throws SQLException {
+        if (keyword.contains("%") || keyword.contains("_")) {
+            return delegate.searchProduct(keyword); // a LIKE pattern, only the database can match it
+        }
+        ProductSearchIndex index = getSearchIndex();
+
+        if (index.containsProductId(keyword)) {
+            Product product = searchByProductId(keyword);
+            if (product != null) {
+                ArrayList<Product> productList = new ArrayList<>();
+                productList.add(product);
+                return productList;
+            }
+        }
+        return getProducts(index.search(keyword));
+    }
+
+    @Override
+    public Product searchByProductId(String productId) throws SQLException {
+        synchronized (this) {
+            Product cached = getFreshProduct(productId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return copyOf(cached);
+            }
+        }
+        misses.incrementAndGet();
+
+        long writesBeforeLoad = writeCount.get();
+        Product product = delegate.searchByProductId(productId);
+        if (product != null) {
+            synchronized (this) {
+                if (writeCount.get() == writesBeforeLoad) {
+                    productCache.put(productId, new CacheEntry<>(copyOf(product)));
+                }
+            }
+        }
+        return product;
+    }
+
+    //the products in the order of productIds, see getProducts
+    @Override
+    public ArrayList<Product> searchByProductIds(Collection<String> productIds) throws SQLException {
+        return getProducts(productIds);
+    }
+
+    @Override
+    public ArrayList<Product> getAllProducts() throws SQLException {
+        return delegate.getAllProducts(); // a full read is only used for (re)building, always go to the database
+    }
+
+    @Override
+    public ArrayList<Product> purchaseStocks(ArrayList<Product> proList) throws SQLException {
+        try {
+            return delegate.purchaseStocks(proList);
+        } finally {
+            // stock of these products has (or may have) changed, descriptions (and so the index) are unchanged
+            synchronized (this) {
+                writeCount.incrementAndGet();
+                for (Product product : proList) {
+                    productCache.remove(product.getProductId());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void updateProduct(String id, String des, double price, String imageName, int stock) throws SQLException {
+        try {
+            delegate.updateProduct(id, des, price, imageName, stock);
+        } catch (SQLException | RuntimeException e) {
+            discardSearchIndex(); // not sure what the database holds now, rebuild the index on next search
+            throw e;
+        } finally {
+            invalidateProduct(id);
+        }
+        // An update changes no row if the ID does not exist, so only IDs the index already has get the new description;
+        // the index would otherwise hold a product the database does not have.
+        updateSearchIndex(index -> {
+            if (index.containsProductId(id)) {
+                index.put(id, des);
+            }
+        });
+    }
+
+    @Override
+    public void deleteProduct(String id) throws SQLException {
+        try {
+            delegate.deleteProduct(id);
+        } catch (SQLException | RuntimeException e) {
+            discardSearchIndex();
+            throw e;
+        } finally {
+            invalidateProduct(id);
+        }
+        updateSearchIndex(index -> index.remove(id));
+    }
+
+    @Override
+    public void insertNewProduct(String id, String des, double price, String image, int stock) throws SQLException {
+        try {
+            delegate.insertNewProduct(id, des, price, image, stock);
+        } catch (SQLException | RuntimeException e) {
+            discardSearchIndex();
+            throw e;
+        } finally {
+            invalidateProduct(id);
+        }
+        updateSearchIndex(index -> index.put(id, des));
+    }
+
+    @Override
+    public boolean isProIdAvailable(String productId) throws SQLException {
+        return delegate.isProIdAvailable(productId); // must always reflect the database
+    }
+
+    //removes everything from the cache and the index, eg. after the database has been reset
+    public synchronized void clear() {
+        writeCount.incrementAndGet();
+        productCache.clear();
+        searchIndex = null;
+    }
+
+    // Returns the products with these IDs, in the same order, leaving out IDs with no product.
+    // Cached products are copied from the cache; all others are read with one searchByProductIds call,
+    // not one query each, and cached unless a write happened meanwhile.
+    private ArrayList<Product> getProducts(Collection<String> productIds) throws SQLException {
+        HashMap<String, Product> found = new HashMap<>();
+        ArrayList<String> missing = new ArrayList<>();
+        synchronized (this) {
+            for (String productId : productIds) {
+                Product cached = getFreshProduct(productId);
+                if (cached != null) {
+                    found.put(productId, copyOf(cached));
+                } else {
+                    missing.add(productId);
+                }
+            }
+        }
+        hits.addAndGet(found.size());
+        misses.addAndGet(missing.size());
+
+        if (!missing.isEmpty()) {
+            long writesBeforeLoad = writeCount.get();
+            ArrayList<Product> loaded = delegate.searchByProductIds(missing);
+            synchronized (this) {
+                boolean cacheable = writeCount.get() == writesBeforeLoad;
+                for (Product product : loaded) {
+                    found.put(product.getProductId(), product);
+                    if (cacheable) {
+                        productCache.put(product.getProductId(), new CacheEntry<>(copyOf(product)));
+                    }
+                }
+            }
+        }
+
+        ArrayList<Product> productList = new ArrayList<>(found.size());
+        for (String productId : productIds) {
+            Product product = found.get(productId);
+            if (product != null) {
+                productList.add(product);
+            }
+        }
+        return productList;
+    }
+
+    // a set of getter methods for cache metrics
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public synchronized int getCachedProductCount() { return productCache.size(); }
+
+    // Returns the search index, (re)building it from the database if it does not exist yet or is too old.
+    // The database is read and the index built without holding the lock, so product lookups and writes
+    // are not blocked meanwhile. While one thread rebuilds, other searches use the old index.
+    // Building also fills the product cache, so the first keyword search does not need a query for the matches.
+    private ProductSearchIndex getSearchIndex() throws SQLException {
+        BuiltIndex current = searchIndex;
+        long now = System.currentTimeMillis();
+        if (current != null && now - current.builtAtMillis() <= indexRefreshMillis) {
+            return current.index();
+        }
+        if (current != null && !rebuildingIndex.compareAndSet(false, true)) {
+            return current.index(); // another thread is rebuilding it
+        }
+        try {
+            long writesBeforeLoad = writeCount.get();
+            ArrayList<Product> allProducts = delegate.getAllProducts();
+            ProductSearchIndex built = new ProductSearchIndex(allProducts);
+            synchronized (this) {
+                if (writeCount.get() != writesBeforeLoad) {
+                    // a write happened meanwhile and may be missing from the new index. The old index was
+                    // updated by that write, keep it; if there is none, use the new one just for this search.
+                    return searchIndex != null ? searchIndex.index() : built;
+                }
+                searchIndex = new BuiltIndex(built, now);
+                for (Product product : allProducts) {
+                    productCache.put(product.getProductId(), new CacheEntry<>(product)); // fresh objects, owned by the cache
+                }
+            }
+            return built;
+        } finally {
+            if (current != null) {
+                rebuildingIndex.set(false);
+            }
+        }
+    }
+
+    private synchronized void updateSearchIndex(Consumer<ProductSearchIndex> change) {
+        BuiltIndex current = searchIndex;
+        if (current != null) {
+            change.accept(current.index());
+        }
+    }
+
+    private synchronized void discardSearchIndex() {
+        searchIndex = null;
+    }
+
+    private synchronized void invalidateProduct(String productId) {
+        writeCount.incrementAndGet();
+        productCache.remove(productId);
+    }
+
+    // Returns the cached product if it has not expired, otherwise null. Caller must hold the lock.
+    private Product getFreshProduct(String productId) {
+        CacheEntry<Product> entry = productCache.get(productId);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(ttlMillis)) {
+            productCache.remove(productId);
+            return null;
+        }
+        return entry.value;
+    }
+
+    private static Product copyOf(Product p) {
+        return new Product(p.getProductId(), p.getProductDescription(), p.getProductImageName(),
+                p.getUnitPrice(), p.getStockQuantity());
+    }
+
+    // a search index and the time it was built
+    private record BuiltIndex(ProductSearchIndex index, long builtAtMillis) {}
+
+    // a cached value and the time it was loaded
+    private static class CacheEntry<V> {
+        private final V value;
+        private final long loadedAtMillis = System.currentTimeMillis();
+
+        CacheEntry(V value) {
+            this.value = value;
+        }
+
+        boolean isExpired(long ttlMillis) {
+            return System.currentTimeMillis() - loadedAtMillis > ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package ci553.happyshop.storageAccess;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, self-validating pool of JDBC connections shared by all DerbyRW instances.
+ *
+ * Opening a Derby connection with DriverManager.getConnection() for every query is expensive,
+ * so connections are kept open and handed out again instead of being closed after each use.
+ *
+ * How it works:
+ * - At most maxSize connections exist at any time. A Semaphore hands out one permit per connection in use,
+ *   so a caller that finds the pool exhausted waits up to acquireTimeoutMillis before giving up with an SQLException.
+ * - Idle connections are kept in a deque. Released connections are pushed to the front and borrowed from the front,
+ *   so the busiest connections stay warm and the rarely used ones sink to the back.
+ * - A background thread evicts connections from the back once they have been idle longer than idleTimeoutMillis,
+ *   but never shrinks the pool below minSize.
+ * - A connection that has been idle for a while is validated (Connection.isValid) before it is handed out;
+ *   broken connections are discarded and replaced with a fresh one.
+ *
+ * Metrics (active, idle, wait time, timeouts, statement cache hits/misses) are exposed through getter methods and toString().
+ *
+ * Example Usage:
+ *     try (PooledConnection pooledConn = pool.acquire()) {
+ *         Connection conn = pooledConn.getConnection();
+ *         ...
+ *     } // close() gives the connection back to the pool instead of closing it
+ */
+
+public class ConnectionPool {
+    private final String dbURL;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long acquireTimeoutMillis;
+
+    // connections idle for longer than this are checked with isValid() before being handed out
+    private static final long VALIDATION_INTERVAL_MILLIS = 5_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore permits; // one permit per connection that may be borrowed
+    private final AtomicInteger totalConnections = new AtomicInteger(0); // idle + active
+    private volatile boolean closed = false;
+
+    // pool metrics
+    private final AtomicLong acquireCount = new AtomicLong(0);
+    private final AtomicLong timeoutCount = new AtomicLong(0);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0);
+    private final AtomicLong maxWaitNanos = new AtomicLong(0);
+    private final AtomicLong createdCount = new AtomicLong(0);
+    private final AtomicLong evictedCount = new AtomicLong(0);
+    private final AtomicLong statementCacheHits = new AtomicLong(0);   // summed over all pooled connections
+    private final AtomicLong statementCacheMisses = new AtomicLong(0);
+
+    private final ScheduledExecutorService evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "connection-pool-evictor");
+        thread.setDaemon(true); // must not keep the JVM alive when the application exits
+        return thread;
+    });
+
+    /**
+     * Creates a pool and opens minSize connections straight away.
+     *
+     * @param dbURL                the JDBC URL used to open new connections
+     * @param minSize              the number of connections kept open even when idle
+     * @param maxSize              the maximum number of connections open at the same time
+     * @param idleTimeoutMillis    how long a connection above minSize may stay idle before it is closed
+     * @param acquireTimeoutMillis how long acquire() waits for a free connection before throwing an SQLException
+     */
+    public ConnectionPool(String dbURL, int minSize, int maxSize, long idleTimeoutMillis, long acquireTimeoutMillis) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+        }
+        this.dbURL = dbURL;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true); // fair, so waiting callers are served in order
+
+        fillToMinSize();
+        long evictionPeriod = Math.max(1_000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to acquireTimeoutMillis if all connections are in use.
+     * The caller must close() the returned PooledConnection (ideally with try-with-resources) to give it back.
+     *
+     * @throws SQLException if the pool is closed, the wait times out, or a new connection cannot be opened
+     */
+    public PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + acquireTimeoutMillis
+                        + " ms waiting for a database connection (" + this + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooledConn;
+            while ((pooledConn = idleConnections.pollFirst()) != null) {
+                if (isUsable(pooledConn)) {
+                    pooledConn.markBorrowed();
+                    return pooledConn;
+                }
+                discard(pooledConn); // broken connection, try the next idle one
+            }
+            pooledConn = openConnection();
+            pooledConn.markBorrowed();
+            return pooledConn;
+        } catch (SQLException | RuntimeException e) {
+            permits.release(); // the caller did not get a connection, so give the permit back
+            throw e;
+        }
+    }
+
+    /**
+     * Gives a borrowed connection back to the pool. Called by PooledConnection.close().
+     * Any unfinished transaction is rolled back so the next borrower starts from a clean state.
+     */
+    void release(PooledConnection pooledConn) {
+        try {
+            Connection conn = pooledConn.getConnection();
+            if (closed || conn.isClosed()) {
+                discard(pooledConn);
+                return;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            pooledConn.markReturned();
+            idleConnections.offerFirst(pooledConn);
+        } catch (SQLException e) {
+            discard(pooledConn); // a connection that cannot be reset is not safe to reuse
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops the evictor. Connections that are still borrowed
+     * are closed when they are released.
+     */
+    public void shutdown() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooledConn;
+        while ((pooledConn = idleConnections.pollFirst()) != null) {
+            discard(pooledConn);
+        }
+    }
+
+    // Checks a connection before it is handed out. Only connections that have been idle
+    // for a while are validated, so hot connections do not pay for an extra round trip.
+    private boolean isUsable(PooledConnection pooledConn) {
+        try {
+            Connection conn = pooledConn.getConnection();
+            if (conn.isClosed()) {
+                return false;
+            }
+            if (pooledConn.getIdleMillis() < VALIDATION_INTERVAL_MILLIS) {
+                return true;
+            }
+            return conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(dbURL);
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(conn, this);
+    }
+
+    private void discard(PooledConnection pooledConn) {
+        totalConnections.decrementAndGet();
+        pooledConn.closePhysically();
+    }
+
+    // Opens connections until minSize connections exist. Failures are ignored here,
+    // the next acquire() will try again and report the error to its caller.
+    private void fillToMinSize() {
+        while (!closed && totalConnections.get() < minSize) {
+            try {
+                idleConnections.offerLast(openConnection());
+            } catch (SQLException e) {
+                return;
+            }
+        }
+    }
+
+    // Run periodically by the evictor thread.
+    // Closes connections idle for longer than idleTimeoutMillis, starting with the least recently used.
+    private void evictIdleConnections() {
+        Iterator<PooledConnection> oldestFirst = idleConnections.descendingIterator();
+        while (oldestFirst.hasNext() && totalConnections.get() > minSize) {
+            PooledConnection pooledConn = oldestFirst.next();
+            if (pooledConn.getIdleMillis() > idleTimeoutMillis && idleConnections.removeLastOccurrence(pooledConn)) {
+                discard(pooledConn);
+                evictedCount.incrementAndGet();
+            }
+        }
+        fillToMinSize();
+    }
+
+    private void recordWait(long waitNanos) {
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    // called by PooledConnection.prepareStatement()
+    void recordStatementCacheHit() { statementCacheHits.incrementAndGet(); }
+    void recordStatementCacheMiss() { statementCacheMisses.incrementAndGet(); }
+
+    // a set of getter methods for pool metrics
+    public int getActiveCount() { return maxSize - permits.availablePermits(); }
+    public int getIdleCount() { return idleConnections.size(); }
+    public int getTotalCount() { return totalConnections.get(); }
+    public int getMinSize() { return minSize; }
+    public int getMaxSize() { return maxSize; }
+    public long getAcquireCount() { return acquireCount.get(); }
+    public long getTimeoutCount() { return timeoutCount.get(); }
+    public long getCreatedCount() { return createdCount.get(); }
+    public long getEvictedCount() { return evictedCount.get(); }
+    public long getTotalWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get()); }
+    public long getMaxWaitMillis() { return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()); }
+    public long getStatementCacheHits() { return statementCacheHits.get(); }
+    public long getStatementCacheMisses() { return statementCacheMisses.get(); }
+    public double getAverageWaitMillis() {
+        long count = acquireCount.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[active=%d, idle=%d, total=%d/%d, acquired=%d, timeouts=%d, avgWait=%.2fms, maxWait=%dms, stmtCache hits=%d misses=%d]",
+                getActiveCount(), getIdleCount(), getTotalCount(), maxSize,
+                getAcquireCount(), getTimeoutCount(), getAverageWaitMillis(), getMaxWaitMillis(),
+                getStatementCacheHits(), getStatementCacheMisses());
+    }
+}
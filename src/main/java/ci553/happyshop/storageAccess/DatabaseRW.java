@@ -4,13 +4,14 @@ import ci553.happyshop.catalogue.Product;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 
 /**
  * The DatabaseRW interface defines the contract for interacting with the product database.
  * It is currently implemented by the DerbyRW class, which provides the actual functionality.
  *
  * Responsibilities:
- * - Searching for products by keyword or product ID.
+ * - Searching for products by keyword or product ID, or reading all products.
  * - Performing stock updates and validations during purchases.
  * - Updating, deleting, or inserting products.
  * - Checking whether a product ID is available before insertion.
@@ -44,11 +45,26 @@ public interface DatabaseRW {
      */
     Product searchByProductId(String productId) throws SQLException;
 
+    /**
+     * Reads every product in the database, e.g. to build an in-memory search index.
+     * @return all products, or an empty list if there are none
+     */
+    ArrayList<Product> getAllProducts() throws SQLException;
+
+    /**
+     * Reads the products with the given IDs with as few queries as possible, e.g. the matches of a keyword search
+     * that are not cached.
+     * @return the products found, in no particular order; IDs with no product are left out
+     */
+    ArrayList<Product> searchByProductIds(Collection<String> productIds) throws SQLException;
+
     /**
      * Attempts to purchase (reduce stocks of) the given list of products.
      * Behavior:
      * - If all requested quantities are available, stocks are reduced and an empty list is returned.
      * - If any product does not have sufficient stock, no stock is updated and a list of all insufficient products is returned.
+     * - The stock check and the reduction must be atomic in the database, so concurrent purchases from
+     *   any client (or process) can never take a product's stock below zero.
      *
      * @param proList the list of products with requested quantities to purchase
      */
@@ -6,7 +6,10 @@ package ci553.happyshop.storageAccess;
  *
  * Responsibilities:
  * - Holds the database URL used to connect to the database.
- * - Creates instances of DatabaseRW (e.g., DerbyRW, MySQLRW, SQLiteRW).
+ * - Owns the ConnectionPool shared by all DatabaseRW instances, and its configuration.
+ * - Creates instances of DatabaseRW (e.g., DerbyRW, MySQLRW, SQLiteRW),
+ *   wrapped in a CachingDatabaseRW product cache shared by all clients.
+ * - Creates the AsyncDatabaseRW used by the JavaFX clients to query the database off the UI thread.
  *
  * Benefits:
  * - Database Abstraction: Keeps the system decoupled from specific database implementations.
@@ -24,11 +27,61 @@ public class DatabaseRWFactory {
 
     public static String dbURL = "jdbc:derby:happyShopDB"; //or other database URL in the future (eg MySQLRW or SQLiteRW)
 
+    // Connection pool configuration, must be set before the first DatabaseRW is created
+    public static int poolMinSize = 2;                   // connections kept open even when idle
+    public static int poolMaxSize = 10;                  // maximum connections open at the same time
+    public static long poolIdleTimeoutMillis = 60_000;   // idle connections above poolMinSize are closed after this
+    public static long poolAcquireTimeoutMillis = 5_000; // how long a caller waits for a free connection
+
+    // Product cache configuration
+    public static boolean productCacheEnabled = true;
+    public static int productCacheMaxSize = 10_000;       // products kept in memory
+    public static long productCacheTtlMillis = 30_000;    // cached products are re-read from the database after this
+    public static long searchIndexRefreshMillis = 300_000; // the description search index is rebuilt after this
+
+    private static ConnectionPool connectionPool; // shared by all DatabaseRW instances, created on first use
+    private static CachingDatabaseRW cachingDatabaseRW; // shared by all clients, created on first use
+    private static AsyncDatabaseRW asyncDatabaseRW; // shared by all clients, created on first use
+
     /**
      * Creates an instance of DatabaseRW (currently returning DerbyRW, but can be modified to return other implementations).
+     * All instances share the same connection pool.
+     *
+     * When the product cache is enabled, every client gets the same CachingDatabaseRW,
+     * so a product changed through the warehouse client is also invalidated for the customer client.
+     */
+    public static synchronized DatabaseRW createDatabaseRW() {
+        if (!productCacheEnabled) {
+            return new DerbyRW(getConnectionPool()); // or other database implementations in the future (eg MySQLRW or SQLiteRW)
+        }
+        if (cachingDatabaseRW == null) {
+            cachingDatabaseRW = new CachingDatabaseRW(new DerbyRW(getConnectionPool()),
+                    productCacheMaxSize, productCacheTtlMillis, searchIndexRefreshMillis);
+        }
+        return cachingDatabaseRW;
+    }
+
+    /**
+     * Returns the AsyncDatabaseRW shared by all JavaFX clients. It wraps createDatabaseRW(),
+     * so it uses the same product cache and connection pool.
+     */
+    public static synchronized AsyncDatabaseRW createAsyncDatabaseRW() {
+        if (asyncDatabaseRW == null) {
+            asyncDatabaseRW = new AsyncDatabaseRW(createDatabaseRW());
+        }
+        return asyncDatabaseRW;
+    }
+
+    /**
+     * Returns the connection pool shared by all DatabaseRW instances, creating it on first use.
+     * Also useful for reading pool metrics, eg. DatabaseRWFactory.getConnectionPool().getActiveCount()
      */
-    public static DatabaseRW createDatabaseRW() {
-        return new DerbyRW(); // or other database implementations in the future (eg MySQLRW or SQLiteRW)
+    public static synchronized ConnectionPool getConnectionPool() {
+        if (connectionPool == null) {
+            connectionPool = new ConnectionPool(dbURL, poolMinSize, poolMaxSize,
+                    poolIdleTimeoutMillis, poolAcquireTimeoutMillis);
+        }
+        return connectionPool;
     }
 }
 
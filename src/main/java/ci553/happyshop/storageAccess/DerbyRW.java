@@ -1,11 +1,14 @@
 package ci553.happyshop.storageAccess;
 
 import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.utility.AppLogger;
 
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 /** ProductTable definition
  * "CREATE TABLE ProductTable(" +
@@ -19,8 +22,14 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 
 public class DerbyRW implements DatabaseRW {
-    private static String dbURL = DatabaseRWFactory.dbURL; // Shared by all instances
-    private  Lock lock = new ReentrantLock(); // Each instance has its own lock
+    private static final AppLogger log = AppLogger.getLogger(DerbyRW.class);
+    private final ConnectionPool connectionPool; // Shared by all instances, owned by DatabaseRWFactory
+    private static final int ID_BATCH_SIZE = 32;  // product IDs read per query by searchByProductIds
+
+    //connections are borrowed from the pool instead of being opened on every call
+    public DerbyRW(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
 
     //search product by product Id or name, return a list of products or null
     //search by Id at first, if get null, search by product name
@@ -37,9 +46,9 @@ public class DerbyRW implements DatabaseRW {
             productList = searchByProName(keyword);
         }
 
-        // If still no products found, print a message
+        // If still no products found, log a message
         if (productList.isEmpty()) {
-            System.out.println("Product " + keyword + " not found.");
+            log.debug(() -> "Product " + keyword + " not found.");
         }
         return productList;
     }
@@ -49,22 +58,22 @@ public class DerbyRW implements DatabaseRW {
         Product product = null;
         String query = "SELECT * FROM ProductTable WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
+        try (PooledConnection pooledConn = connectionPool.acquire()) {
+            PreparedStatement pstmt = pooledConn.prepareStatement(query); //cached with the connection, not closed here
             // Set the productId parameter
             pstmt.setString(1, proId);
 
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()){
                     product= makeProObjFromDbRecord(rs);
-                    System.out.println("Product " + proId + " found.");
+                    log.debug(() -> "Product " + proId + " found.");
                 }else{
-                    System.out.println("Product " + proId + " not found.");
+                    log.debug(() -> "Product " + proId + " not found.");
                 }
 
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error("Database query error, search by ID: " + proId, e);
         }
         return product;
     }
@@ -75,10 +84,9 @@ public class DerbyRW implements DatabaseRW {
         ArrayList<Product> productList = new ArrayList<>();
         String query = "SELECT * FROM ProductTable WHERE LOWER(description) LIKE LOWER(?)";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, "%" + name.toLowerCase() + "%");
+        try (PooledConnection pooledConn = connectionPool.acquire()) {
+            PreparedStatement stmt = pooledConn.prepareStatement(query); //cached with the connection, not closed here
+            stmt.setString(1, "%" + name.toLowerCase(Locale.ROOT) + "%");
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
@@ -86,17 +94,62 @@ public class DerbyRW implements DatabaseRW {
                 }
 
                 if (productList.isEmpty()) {
-                    System.out.println("Product " + name + " not found.");
+                    log.debug(() -> "Product " + name + " not found.");
                 }
             }
 
         } catch (SQLException e) {
-            System.out.println("Database query error, search by name: " + name + " " + e.getMessage());
+            log.error("Database query error, search by name: " + name, e);
         }
 
         return productList; // could be empty if no matches
     }
 
+    //read every product, used to build the in-memory search index (ProductSearchIndex)
+    public ArrayList<Product> getAllProducts() throws SQLException {
+        ArrayList<Product> productList = new ArrayList<>();
+        String query = "SELECT * FROM ProductTable";
+
+        try (PooledConnection pooledConn = connectionPool.acquire()) {
+            PreparedStatement stmt = pooledConn.prepareStatement(query); //cached with the connection, not closed here
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    productList.add(makeProObjFromDbRecord(rs));
+                }
+            }
+        }
+        return productList;
+    }
+
+    //read the products with the given IDs, ID_BATCH_SIZE at a time with one IN (...) query each.
+    //Every query has the same number of parameters (a short batch repeats its last ID),
+    //so the connection caches a single prepared statement for it.
+    public ArrayList<Product> searchByProductIds(Collection<String> productIds) throws SQLException {
+        ArrayList<Product> productList = new ArrayList<>();
+        if (productIds.isEmpty()) {
+            return productList;
+        }
+        String query = "SELECT * FROM ProductTable WHERE productID IN ("
+                + String.join(", ", Collections.nCopies(ID_BATCH_SIZE, "?")) + ")";
+        ArrayList<String> ids = new ArrayList<>(productIds);
+
+        try (PooledConnection pooledConn = connectionPool.acquire()) {
+            PreparedStatement stmt = pooledConn.prepareStatement(query); //cached with the connection, not closed here
+            for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+                List<String> batch = ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size()));
+                for (int i = 0; i < ID_BATCH_SIZE; i++) {
+                    stmt.setString(i + 1, batch.get(Math.min(i, batch.size() - 1)));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        productList.add(makeProObjFromDbRecord(rs));
+                    }
+                }
+            }
+        }
+        return productList;
+    }
+
     //make a Product object from the database record
     private Product makeProObjFromDbRecord(ResultSet rs) throws SQLException {
         Product product = null;
@@ -107,91 +160,72 @@ public class DerbyRW implements DatabaseRW {
         int inStock = rs.getInt("inStock");
         product =new Product(productId,description,imagePath,unitPrice,inStock);
 
-        // Show product details
-        System.out.println("Product ID: " + productId);
-        System.out.println("Description: " + description);
-        System.out.println("Image: " + imagePath);
-        System.out.println("unitPrice: " + unitPrice);
-
-        // Check availability and display message
-        if(inStock <= 0){
-            System.out.println("Product " + productId+ " is NOT in stock");
-        }
-        else if(inStock < 10) {
-            System.out.println("Product " + productId+ "low stock warning!" + inStock + " units left.");
-        }
-        else {
-            System.out.println("Product " + productId+ " is available");
+        // Show product details, called for every row of a search, so only when debug is enabled
+        if (log.isDebugEnabled()) {
+            String availability;
+            if(inStock <= 0){
+                availability = "NOT in stock";
+            }
+            else if(inStock < 10) {
+                availability = "low stock warning! " + inStock + " units left";
+            }
+            else {
+                availability = "available";
+            }
+            log.debug("Product ID: " + productId + ", Description: " + description + ", Image: " + imagePath
+                    + ", unitPrice: " + unitPrice + ", " + availability);
         }
-
-        System.out.println("-----"); // Divider for readability
         return product;
     }
 
+    // Reduces the stock of all products in one transaction, or of none of them.
+    // No JVM lock is needed: each UPDATE only succeeds if the row still has enough stock,
+    // and the check and the decrement happen in the same statement, so the database row lock
+    // makes it atomic even across DerbyRW instances and processes.
+    // An update count of 0 means the product did not have enough stock (or no longer exists).
     public ArrayList<Product> purchaseStocks(ArrayList<Product> proList) throws SQLException {
-        lock.lock();  // Lock the critical section to prevent concurrent access
         ArrayList<Product> insufficientProducts = new ArrayList<>();
+        if (proList.isEmpty()) {
+            return insufficientProducts;
+        }
 
-        String checkSql = "SELECT inStock FROM ProductTable WHERE productId = ?";
-        String updateSql = "UPDATE ProductTable SET inStock = inStock - ? WHERE productId = ?";
+        String updateSql = "UPDATE ProductTable SET inStock = inStock - ? WHERE productId = ? AND inStock >= ?";
 
-        // Use try-with-resources for Connection and PreparedStatements
-        try (Connection conn = DriverManager.getConnection(dbURL)) {
+        try (PooledConnection pooledConn = connectionPool.acquire()) {
+            Connection conn = pooledConn.getConnection();
             conn.setAutoCommit(false); // Turn off auto-commit for transaction
 
-            // Use a second try-with-resources for the PreparedStatements
-            try (PreparedStatement checkStmt = conn.prepareStatement(checkSql);
-                 PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-
-                boolean allSufficient = true; // Flag to track if all products have sufficient stock
-
+            try {
+                //cached with the pooled connection, so it is not closed here
+                PreparedStatement updateStmt = pooledConn.prepareStatement(updateSql);
                 for (Product product : proList) {
-                    checkStmt.setString(1, product.getProductId());
-                    ResultSet rs = checkStmt.executeQuery();
-
-                    if (rs.next()) {
-                        int currentStock = rs.getInt("inStock");
-                        int newStock = currentStock - product.getOrderedQuantity();
-
-                        // Debugging: Print values before update
-                        System.out.println("Product ID: " + product.getProductId());
-                        System.out.println("Before change: " + currentStock);
-                        System.out.println("Quantity Ordered: " + product.getOrderedQuantity());
-
-                        if (newStock >= 0) { // Ensure stock doesn't go negative
-                            updateStmt.setInt(1, product.getOrderedQuantity());
-                            updateStmt.setString(2, product.getProductId());
-                            updateStmt.addBatch();
-
-                            // Debugging: Print values after update
-                            System.out.println("After change: " + newStock);
-                            System.out.println("Update successful for Product ID: " + product.getProductId());
-                        } else {
-                            insufficientProducts.add(product);
-                            allSufficient = false; // Mark that there's at least one insufficient product
-                            System.out.println("Not enough stock for Product ID: " + product.getProductId());
-                        }
-                        System.out.println("--------------------------------");
+                    updateStmt.setInt(1, product.getOrderedQuantity());
+                    updateStmt.setString(2, product.getProductId());
+                    updateStmt.setInt(3, product.getOrderedQuantity());
+                    updateStmt.addBatch();
+                }
+
+                int[] updateCounts = updateStmt.executeBatch();
+                for (int i = 0; i < updateCounts.length; i++) {
+                    if (updateCounts[i] == 0) { // the WHERE clause did not match: not enough stock
+                        insufficientProducts.add(proList.get(i));
                     }
                 }
 
-                if (allSufficient) {
-                    // If all products have sufficient stock, execute the batch and commit
-                    updateStmt.executeBatch();
+                if (insufficientProducts.isEmpty()) {
                     conn.commit();  // Commit all updates if all updates succeed
-                    System.out.println("Database update successful.");
+                    log.debug("Database update successful.");
                 } else {
                     // If there's insufficient stock for any product, rollback the entire transaction
                     conn.rollback();
-                    System.out.println("Insufficient stock for some products, all updates rolled back.");
+                    log.info(() -> "Insufficient stock for " + insufficientProducts.size() + " products, all updates rolled back.");
                 }
 
             } catch (SQLException e) {
                 conn.rollback();  // Rollback if anything failed inside
-                System.out.println("Database update error, update failed");
+                log.error("Database update error, update failed", e);
+                throw e;
             }
-        } finally {
-            lock.unlock(); // Always release the lock after the operation
         }
 
         return insufficientProducts;
@@ -200,8 +234,6 @@ public class DerbyRW implements DatabaseRW {
 
     //warehouse edits an existing product
     public void updateProduct(String id, String des, double price, String iName, int stock) throws SQLException {
-        lock.lock();
-        String selectSql = "SELECT * FROM ProductTable WHERE productID = ?";
         String updateSql = "UPDATE ProductTable SET " +
                 "description = ?, " +
                 "unitPrice = ?, " +
@@ -209,25 +241,9 @@ public class DerbyRW implements DatabaseRW {
                 "inStock = ? " +
                 "WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
-             PreparedStatement selectStmt = conn.prepareStatement(selectSql);
-             PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-
-            // Print Before Update
-            selectStmt.setString(1, id);
-            try (ResultSet rs = selectStmt.executeQuery()) {
-                if (rs.next()) {
-                    System.out.println("Before Update:");
-                    System.out.println("ID: " + rs.getString("productID"));
-                    System.out.println("Description: " + rs.getString("description"));
-                    System.out.println("Unit Price: " + rs.getDouble("unitPrice"));
-                    System.out.println("Stock: " + rs.getInt("inStock"));
-                    System.out.println("Image: " + rs.getString("image"));
-                } else {
-                    System.out.println("Product not found: " + id);
-                    return; // Exit if product doesn't exist
-                }
-            }
+        try (PooledConnection pooledConn = connectionPool.acquire()) {
+            PreparedStatement updateStmt = pooledConn.prepareStatement(updateSql);
+            logProductRecord(pooledConn, "Before Update", id); // the extra query only runs when debug is enabled
 
             // Perform Update
             updateStmt.setString(1, des);
@@ -235,59 +251,33 @@ public class DerbyRW implements DatabaseRW {
             updateStmt.setString(3, iName);
             updateStmt.setInt(4, stock);
             updateStmt.setString(5, id);
-            updateStmt.executeUpdate();
-
-            // Print After Update
-            try (ResultSet rs = selectStmt.executeQuery()) {
-                if (rs.next()) {
-                    System.out.println("After Update:");
-                    System.out.println("ID: " + rs.getString("productID"));
-                    System.out.println("Description: " + rs.getString("description"));
-                    System.out.println("Unit Price: " + rs.getDouble("unitPrice"));
-                    System.out.println("Stock: " + rs.getInt("inStock"));
-                    System.out.println("image: " + rs.getString("image"));
-                }
+            if (updateStmt.executeUpdate() == 0) {
+                log.warn("Product not found: " + id);
+                return;
             }
-        }
-        finally {
-            lock.unlock(); // Always release the lock after the operation
+
+            logProductRecord(pooledConn, "After Update", id);
         }
     }
 
 //warehouse delete an existing product
     public void deleteProduct(String proId) throws SQLException {
-        lock.lock();
-        String selectSql = "SELECT * FROM ProductTable WHERE productID = ?";
         String deleteSql = "DELETE FROM ProductTable WHERE productID = ?";
 
-        try (Connection conn = DriverManager.getConnection(dbURL);
-             PreparedStatement selectStmt = conn.prepareStatement(selectSql);
-             PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
-            conn.setAutoCommit(true); // Set auto-commit to true immediately
-
-            // print product details before deletion
-            selectStmt.setString(1, proId);
-            try (ResultSet rs = selectStmt.executeQuery()) {
-                if (rs.next()) {
-                    System.out.println("Before delete:");
-                    System.out.println("ID: " + rs.getString("productID"));
-                    System.out.println("Description: " + rs.getString("description"));
-                    System.out.println("Unit Price: " + rs.getDouble("unitPrice"));
-                    System.out.println("Stock: " + rs.getInt("inStock"));
-                } else {
-                    System.out.println("Product not found: " + proId);
-                    return; // Exit if product does not exist
-                }
-            }
+        try (PooledConnection pooledConn = connectionPool.acquire()) {
+            PreparedStatement deleteStmt = pooledConn.prepareStatement(deleteSql);
+            pooledConn.getConnection().setAutoCommit(true); // Set auto-commit to true immediately
+
+            // log product details before deletion (debug only)
+            logProductRecord(pooledConn, "Before delete", proId);
 
             // delete from database
             deleteStmt.setString(1, proId);
-            deleteStmt.executeUpdate();
-            System.out.println("Product " + proId + " deleted from database.");
-        }
-
-        finally {
-            lock.unlock(); // Always release the lock after the operation
+            if (deleteStmt.executeUpdate() == 0) {
+                log.warn("Product not found: " + proId);
+                return;
+            }
+            log.info("Product " + proId + " deleted from database.");
         }
     }
 
@@ -296,17 +286,18 @@ public class DerbyRW implements DatabaseRW {
     public boolean isProIdAvailable(String proId) throws SQLException {
         String query = "SELECT COUNT(*) FROM ProductTable WHERE productID = ?";
                              //the count of records that match the given proId.
-        try (Connection conn = DriverManager.getConnection(dbURL);
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try (PooledConnection pooledConn = connectionPool.acquire()) {
+            PreparedStatement stmt = pooledConn.prepareStatement(query);
             stmt.setString(1, proId);
-            ResultSet rs = stmt.executeQuery();
-            // the rs is the COUNT(*) result (a single number): how many records that match the given proId.
-            // If count > 0, the ID is already in the database, so it's not available, return false
-            // If count = 0, the ID is available, return true
-            if (rs.next()) { // Move cursor to the first (and only) row
-                int count = rs.getInt(1); // Get the first column value (the count)
-                if (count == 0) return true;
-                else return false;
+            try (ResultSet rs = stmt.executeQuery()) {
+                // the rs is the COUNT(*) result (a single number): how many records that match the given proId.
+                // If count > 0, the ID is already in the database, so it's not available, return false
+                // If count = 0, the ID is available, return true
+                if (rs.next()) { // Move cursor to the first (and only) row
+                    int count = rs.getInt(1); // Get the first column value (the count)
+                    if (count == 0) return true;
+                    else return false;
+                }
             }
             return false; // Default case (should not happen)
         }
@@ -315,31 +306,39 @@ public class DerbyRW implements DatabaseRW {
     //   /images/0001TV.jpg
     //warehouse adds a new product to database
     public void insertNewProduct(String id, String des,double price,String image,int stock) throws SQLException {
-        lock.lock();
         String insertSql = "INSERT INTO ProductTable VALUES(?, ?, ?, ?, ?)";
-        String selectSql = "SELECT * FROM ProductTable WHERE productID = ?";
-        try (Connection conn = DriverManager.getConnection(dbURL);
-        PreparedStatement insertStmt = conn.prepareStatement(insertSql);
-        PreparedStatement selectStmt = conn.prepareStatement(selectSql)) {
-            conn.setAutoCommit(true); // Set auto-commit to true immediately
+        try (PooledConnection pooledConn = connectionPool.acquire()) {
+            PreparedStatement insertStmt = pooledConn.prepareStatement(insertSql);
+            pooledConn.getConnection().setAutoCommit(true); // Set auto-commit to true immediately
             insertStmt.setString(1, id);
             insertStmt.setString(2, des);
             insertStmt.setDouble(3, price);
             insertStmt.setString(4, image);
             insertStmt.setInt(5, stock);
-            selectStmt.setString(1, id);
             insertStmt.executeUpdate();
-            ResultSet rs = selectStmt.executeQuery();
-            if (rs.next()) { //print the inserted record
-                System.out.println("Insert successful for Product ID: \" + id");
-                System.out.println("ID: " + rs.getString("productID"));
-                System.out.println("Description: " + rs.getString("description"));
-                System.out.println("Unit Price: " + rs.getDouble("unitPrice"));
-                System.out.println("Stock: " + rs.getInt("inStock"));
-            }
+            log.info("Insert successful for Product ID: " + id);
+            logProductRecord(pooledConn, "Inserted", id); //log the inserted record (debug only)
+        }
+    }
+
+    // Reads a product record again and logs it, e.g. before and after an update.
+    // This is an extra query, so it only runs when debug logging is enabled.
+    private void logProductRecord(PooledConnection pooledConn, String label, String proId) throws SQLException {
+        if (!log.isDebugEnabled()) {
+            return;
         }
-        finally {
-            lock.unlock(); // Always release the lock after the operation
+        PreparedStatement selectStmt = pooledConn.prepareStatement("SELECT * FROM ProductTable WHERE productID = ?");
+        selectStmt.setString(1, proId);
+        try (ResultSet rs = selectStmt.executeQuery()) {
+            if (rs.next()) {
+                log.debug(label + ": ID: " + rs.getString("productID")
+                        + ", Description: " + rs.getString("description")
+                        + ", Unit Price: " + rs.getDouble("unitPrice")
+                        + ", Stock: " + rs.getInt("inStock")
+                        + ", Image: " + rs.getString("image"));
+            } else {
+                log.debug(label + ": product not found: " + proId);
+            }
         }
     }
 
@@ -0,0 +1,179 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.AppLogger;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FolderOrderStore keeps the original order storage layout: each order is a text file (e.g. 12.txt)
+ * in the folder of its state, and a state change edits the file and moves it to the folder of the new state.
+ * With binaryRecords, new orders are written as binary order records instead (e.g. 12.ord, see OrderRecordCodec),
+ * whose state and timestamps are changed in place. Text and binary order files can be mixed in the folders.
+ *   orders/ordered      orders in the "ordered" state
+ *   orders/progressing  orders in the "progressing" state
+ *   orders/collected    orders in the "collected" state
+ * The files themselves are written by OrderFileManager.
+ *
+ * Every state change costs several file system operations (read, write a temp file, rename, move),
+ * see JournalOrderStore for a store that only appends.
+ *
+ * Startup: listing the folders gets slow with tens of thousands of open orders, so OrderHub normally loads
+ * the open orders from the OrderStateTable instead. The watermark of this store is the last-modified times of
+ * the ordered and progressing folders; adding or moving an order file changes them, so if they differ from the
+ * ones saved in the table (e.g. after a crash), the table is stale and loadOpenOrders() scans the folders,
+ * both at the same time.
+ */
+
+public class FolderOrderStore implements OrderStore {
+    private static final AppLogger log = AppLogger.getLogger(FolderOrderStore.class);
+
+    private final Path orderedPath;
+    private final Path progressingPath;
+    private final Path collectedPath;
+    private final boolean binaryRecords;
+
+    // order files created since the last flush
+    private final ConcurrentLinkedQueue<Path> unsyncedFiles = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param binaryRecords true to write new orders as binary order records, false for text files
+     */
+    public FolderOrderStore(Path orderedPath, Path progressingPath, Path collectedPath, boolean binaryRecords) {
+        this.orderedPath = orderedPath;
+        this.progressingPath = progressingPath;
+        this.collectedPath = collectedPath;
+        this.binaryRecords = binaryRecords;
+    }
+
+    //write the order to file for the orderId in orderedPath (ie. orders/ordered)
+    @Override
+    public void createOrder(Order order) throws IOException {
+        int orderId = order.getOrderId();
+        if (binaryRecords) {
+            OrderFileManager.createOrderRecordFile(orderedPath, order);
+            unsyncedFiles.add(orderedPath.resolve(orderId + OrderRecordCodec.FILE_EXTENSION));
+        } else {
+            OrderFileManager.createOrderFile(orderedPath, orderId, order.orderDetails());
+            unsyncedFiles.add(orderedPath.resolve(orderId + ".txt"));
+        }
+    }
+
+    //change orderState in order file and move the file to new state folder
+    @Override
+    public boolean updateOrderState(int orderId, OrderState oldState, OrderState newState, String dateTime) throws IOException {
+        return OrderFileManager.updateAndMoveOrderFile(orderId, newState, dateTime, folderOf(oldState), folderOf(newState));
+    }
+
+    @Override
+    public String readOrder(int orderId, OrderState state) throws IOException {
+        return OrderFileManager.readOrderFile(folderOf(state), orderId);
+    }
+
+    //Loads the IDs of the orders in the ordered and progressing folders by scanning both folders at the same time.
+    @Override
+    public SortedMap<Integer, OrderState> loadOpenOrders() {
+        return scanFolders();
+    }
+
+    //The last-modified times of the ordered and progressing folders: adding or moving an order file changes them.
+    @Override
+    public String watermark() throws IOException {
+        return "folders:" + lastModified(orderedPath) + ":" + lastModified(progressingPath);
+    }
+
+    //Forces the new order files to the disk, called when the application shuts down.
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    //Forces the order files created since the last flush, and the ordered folder listing them, to the disk.
+    //The folder layout needs one fsync per file; the journal needs only one for all of them.
+    @Override
+    public void flush() throws IOException {
+        Path file;
+        boolean created = false;
+        while ((file = unsyncedFiles.poll()) != null) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            created = true;
+        }
+        if (created) {
+            try (FileChannel folder = FileChannel.open(orderedPath, StandardOpenOption.READ)) {
+                folder.force(true); // makes the new file names durable
+            } catch (IOException e) {
+                log.debug(() -> "Cannot sync folder " + orderedPath + " on this platform");
+            }
+        }
+    }
+
+    private Path folderOf(OrderState state) {
+        switch (state) {
+            case Ordered:
+                return orderedPath;
+            case Progressing:
+                return progressingPath;
+            default:
+                return collectedPath;
+        }
+    }
+
+    // Lists the ordered and progressing folders, both at the same time.
+    private SortedMap<Integer, OrderState> scanFolders() {
+        CompletableFuture<ArrayList<Integer>> orderedIds = CompletableFuture.supplyAsync(() -> orderIdsLoader(orderedPath));
+        ArrayList<Integer> progressingIds = orderIdsLoader(progressingPath);
+
+        TreeMap<Integer, OrderState> scanned = new TreeMap<>();
+        for (Integer orderId : orderedIds.join()) {
+            scanned.put(orderId, OrderState.Ordered);
+        }
+        for (Integer orderId : progressingIds) {
+            scanned.put(orderId, OrderState.Progressing);
+        }
+        return scanned;
+    }
+
+    // The last-modified time of a folder, in nanoseconds (as precise as the file system records it).
+    private static long lastModified(Path dir) throws IOException {
+        return Files.getLastModifiedTime(dir).to(TimeUnit.NANOSECONDS);
+    }
+
+    // Loads a list of order IDs from the specified directory.
+    // Used internally by scanFolders(). The folder is read entry by entry, not collected into a list first.
+    private ArrayList<Integer> orderIdsLoader(Path dir) {
+        ArrayList<Integer> orderIds = new ArrayList<>();
+
+        if (Files.exists(dir) && Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.{txt,ord}")) { // only order files
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    try {
+                        orderIds.add(Integer.parseInt(fileName.substring(0, fileName.lastIndexOf('.'))));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid file name: " + fileName);
+                    }
+                }
+                log.debug(() -> orderIds.size() + " orders found in " + dir);
+            } catch (IOException e) {
+                log.error("Error reading " + dir + ", " + e.getMessage());
+            }
+        } else {
+            log.warn(dir + " does not exist.");
+        }
+        return orderIds;
+    }
+}
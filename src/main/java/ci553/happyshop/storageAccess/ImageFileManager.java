@@ -1,10 +1,13 @@
 package ci553.happyshop.storageAccess;
 
+import ci553.happyshop.utility.AppLogger;
+import ci553.happyshop.utility.ImageCache;
+import ci553.happyshop.utility.StorageLocation;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 
 /**
  * The ImageFileManager class handles the file operations related to product images in the warehouse system.
@@ -15,9 +18,17 @@ import java.nio.file.StandardCopyOption;
  *  destination folder with the product's ID as the image file name, including the original file extension.
  *
  * The class provides utility methods to delete image files and copy them to a new location.
+ * Both drop the image from ImageCache, so the views do not keep showing the old decoded image.
+ *
+ * The image files are kept in the folder's ImageStore: an image with the same content as a stored one
+ * is not stored again, the image name is linked to the stored file instead.
+ *
+ * Each image copied in also gets thumbnails at the sizes the clients show it at (see ThumbnailGenerator),
+ * and imageUri(...) tells the clients which file to load for a size: the thumbnail, or the full-size image.
  */
 
 public class ImageFileManager {
+    private static final AppLogger log = AppLogger.getLogger(ImageFileManager.class);
     /**
      * Deletes an image file from the specified folder.
      *
@@ -30,10 +41,12 @@ public class ImageFileManager {
         Path iPath = locationFolder.resolve(fileName); // Full path to the image file
 
         if (Files.exists(iPath)) { // Check if the file exists
-            Files.delete(iPath); // Permanently delete the file
-            System.out.println("Deleted: " + iPath);
+            ImageStore.of(locationFolder).remove(fileName); // Delete the file, and the stored image if no other name uses it
+            ThumbnailGenerator.deleteThumbnails(locationFolder, fileName);
+            log.debug(() -> "Deleted: " + iPath);
+            ImageCache.invalidate(fileName);
         } else {
-            System.out.println("File not found: " + iPath);
+            log.warn("File not found: " + iPath);
         }
     }
 
@@ -60,10 +73,35 @@ public class ImageFileManager {
         String fileNameWithExtension = fileNameWithoutExtension + fileExtension;
         Path destinationPath = destinationFolderPath.resolve(fileNameWithExtension);  // Combine the product ID (fileNameWithoutExtension) with the extension
 
-        // Copy the file to the destination folder with the specified name
-        Files.copy(sourcePath, destinationPath, StandardCopyOption.REPLACE_EXISTING);
-        System.out.println("File copied successfully to: " + destinationPath);
+        // Store the file in the destination folder's image store, under the specified name
+        ImageStore.of(destinationFolderPath).add(sourcePath, fileNameWithExtension);
+        log.debug(() -> "File copied successfully to: " + destinationPath);
+        ThumbnailGenerator.generateThumbnails(destinationPath); // before the invalidate, so the next load finds them
+        ImageCache.invalidate(fileNameWithExtension); // the file may have replaced an image that is cached
         return fileNameWithExtension;
     }
 
+    /**
+     * Returns the URI of the file to load for showing a product image at the given size:
+     * its thumbnail if there is an up-to-date one, otherwise the full-size image in the image folder.
+     *
+     * @param imageName The name of the image in the image folder (e.g. "0001.jpg").
+     * @param width The width the image is shown at.
+     * @param height The height the image is shown at.
+     * @return The full URI of the file, e.g. "file:/.../images/thumbnails/0001.jpg.50x45.png".
+     */
+    public static String imageUri(String imageName, int width, int height) {
+        Path imagePath = StorageLocation.imageFolderPath.resolve(imageName).toAbsolutePath();
+        Path thumbnailPath = ThumbnailGenerator.thumbnailPath(StorageLocation.imageFolderPath, imageName, width, height)
+                                               .toAbsolutePath();
+        try {
+            if (Files.getLastModifiedTime(thumbnailPath).compareTo(Files.getLastModifiedTime(imagePath)) >= 0) {
+                return thumbnailPath.toUri().toString();
+            }
+        } catch (IOException e) {
+            // no thumbnail at this size (or no image), load the image itself
+        }
+        return imagePath.toUri().toString();
+    }
+
 }
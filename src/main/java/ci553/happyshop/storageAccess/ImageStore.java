@@ -0,0 +1,246 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.utility.AppLogger;
+import ci553.happyshop.utility.StorageLocation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ImageStore keeps the image files of an image folder by their content, so identical images are stored once.
+ *
+ * How it works:
+ * - Every distinct image is kept once in the "store" subfolder, named after the SHA-256 hash of its bytes
+ *   (e.g. images/store/3f5a...). Such a file is never changed: a changed image is a new hash, i.e. a new file.
+ * - The image name used by the products (e.g. images/0011.jpg) is a hard link to that file, so the products,
+ *   the views and the database keep using the image names as before. If the file system has no hard links,
+ *   the name is a copy instead.
+ * - The store counts the image names that refer to each hash. The names and their hashes are saved in
+ *   store/refs.txt ("imageName hash" per line), the counts are worked out from it when the store is opened.
+ *   When the last name of a hash is removed, the stored file is deleted.
+ *
+ * Why:
+ * - Products with the same picture share one file, and ImageCache keeps one decoded image for them,
+ *   because it keys images by hash (see hashOf).
+ * - Resetting the images (SetDatabase, copyAllFrom) copies each distinct backup image once. The backup folder
+ *   (images_resetDB) is only read: it is a plain, version-controlled folder and gets no store of its own.
+ *
+ * Note: a name and its stored file are the same file on disk, so an image must never be edited in place;
+ * add(...) always writes a new stored file and moves the name over to it.
+ *
+ * Example Usage:
+ *     ImageStore store = ImageStore.of(StorageLocation.imageFolderPath);
+ *     store.add(Paths.get("C:/Users/shan/Desktop/mark.jpg"), "0013.jpg");
+ *     store.remove("0013.jpg");
+ */
+
+public class ImageStore {
+    private static final AppLogger log = AppLogger.getLogger(ImageStore.class);
+    private static final String REFS_FILE = "refs.txt";
+
+    // one ImageStore per image folder, shared by all users of the folder in this JVM
+    private static final ConcurrentHashMap<Path, ImageStore> stores = new ConcurrentHashMap<>();
+
+    private final Path imageFolder;
+    private final Path storeFolder;
+    private final HashMap<String, String> refs = new HashMap<>();         // imageName -> hash
+    private final HashMap<String, Integer> refCounts = new HashMap<>();   // hash -> number of image names
+
+    //Returns the ImageStore of an image folder, opening it on first use.
+    public static ImageStore of(Path imageFolder) {
+        return stores.computeIfAbsent(imageFolder.toAbsolutePath().normalize(), folder -> {
+            try {
+                return new ImageStore(folder);
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot open the image store of " + folder, e);
+            }
+        });
+    }
+
+    private ImageStore(Path imageFolder) throws IOException {
+        this.imageFolder = imageFolder;
+        this.storeFolder = imageFolder.resolve(StorageLocation.imageStoreSubfolder);
+        Path refsPath = storeFolder.resolve(REFS_FILE);
+        if (Files.exists(refsPath)) {
+            for (String line : Files.readAllLines(refsPath, StandardCharsets.UTF_8)) {
+                int space = line.lastIndexOf(' ');
+                if (space > 0) {
+                    addRef(line.substring(0, space), line.substring(space + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores an image under an image name, replacing the image the name had before.
+     * If an image with the same bytes is stored already, the name is linked to it and nothing is copied.
+     * @param source the image file to store, e.g. the file the user selected
+     * @param imageName the name in the image folder, e.g. "0013.jpg"
+     * @return the hash of the image
+     */
+    public synchronized String add(Path source, String imageName) throws IOException {
+        String hash = store(source, imageName);
+        saveRefs();
+        return hash;
+    }
+
+    // add(...) without saving refs.txt, so copyAllFrom saves it once for all images.
+    private String store(Path source, String imageName) throws IOException {
+        Files.createDirectories(storeFolder);
+        // copy to a temporary file and hash the bytes on the way, so the source is only read once
+        Path tempPath = Files.createTempFile(storeFolder, "add", ".tmp");
+        String hash;
+        try (InputStream in = new DigestInputStream(Files.newInputStream(source), sha256())) {
+            Files.copy(in, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            hash = HexFormat.of().formatHex(((DigestInputStream) in).getMessageDigest().digest());
+        }
+        Path blob = blobPath(hash);
+        if (Files.exists(blob)) {
+            Files.delete(tempPath); // stored already
+            log.debug(() -> imageName + " is a duplicate of a stored image");
+        } else {
+            Files.move(tempPath, blob, StandardCopyOption.ATOMIC_MOVE);
+        }
+        linkOrCopy(imageFolder.resolve(imageName), blob);
+        setRef(imageName, hash);
+        return hash;
+    }
+
+    /**
+     * Removes an image name from the image folder. The stored image is deleted when no other name refers to it.
+     * A file that is not in the store (e.g. an image put into the folder by hand) is just deleted.
+     */
+    public synchronized void remove(String imageName) throws IOException {
+        Files.deleteIfExists(imageFolder.resolve(imageName));
+        if (refs.containsKey(imageName)) {
+            removeRef(imageName);
+            saveRefs();
+        }
+    }
+
+    //Returns the hash of the image stored under an image name, or null if the name is not in the store.
+    public synchronized String hashOf(String imageName) {
+        return refs.get(imageName);
+    }
+
+    //Returns how many image names refer to the stored image with this hash.
+    public synchronized int refCount(String hash) {
+        return refCounts.getOrDefault(hash, 0);
+    }
+
+    /**
+     * Makes this store hold exactly the images of another folder, e.g. the backup images when resetting.
+     * Every distinct image is copied into this store once, images with the same bytes share it.
+     * The other folder is only read. Images of this store the other folder has not are removed.
+     * @return the number of images
+     */
+    public synchronized int copyAllFrom(Path sourceFolder) throws IOException {
+        HashMap<String, Path> sources = new HashMap<>(); // imageName -> file
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(sourceFolder)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    sources.put(file.getFileName().toString(), file);
+                }
+            }
+        }
+        for (String imageName : new ArrayList<>(refs.keySet())) {
+            if (!sources.containsKey(imageName)) {
+                Files.deleteIfExists(imageFolder.resolve(imageName));
+                removeRef(imageName);
+            }
+        }
+        for (Map.Entry<String, Path> source : sources.entrySet()) {
+            store(source.getValue(), source.getKey());
+        }
+        saveRefs();
+        log.debug(() -> "Copied " + sources.size() + " images from " + sourceFolder + " into " + imageFolder);
+        return sources.size();
+    }
+
+    private Path blobPath(String hash) {
+        return storeFolder.resolve(hash);
+    }
+
+    private void addRef(String imageName, String hash) {
+        refs.put(imageName, hash);
+        refCounts.merge(hash, 1, Integer::sum);
+    }
+
+    // Points an image name at a hash. The new hash is counted before the old one is released,
+    // so setting a name to the hash it already has never deletes the stored file.
+    private void setRef(String imageName, String hash) throws IOException {
+        String oldHash = refs.put(imageName, hash);
+        refCounts.merge(hash, 1, Integer::sum);
+        if (oldHash != null) {
+            release(oldHash);
+        }
+    }
+
+    // Drops the image name's reference.
+    private void removeRef(String imageName) throws IOException {
+        String hash = refs.remove(imageName);
+        if (hash != null) {
+            release(hash);
+        }
+    }
+
+    // Counts one reference less, and deletes the stored file if it was the last one.
+    private void release(String hash) throws IOException {
+        if (refCounts.merge(hash, -1, Integer::sum) <= 0) {
+            refCounts.remove(hash);
+            Files.deleteIfExists(blobPath(hash));
+        }
+    }
+
+    // Writes refs.txt to a temporary file first, then moves it in place, so it is never half written.
+    private void saveRefs() throws IOException {
+        Path refsPath = storeFolder.resolve(REFS_FILE);
+        Path tempPath = storeFolder.resolve(REFS_FILE + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> ref : refs.entrySet()) {
+                writer.write(ref.getKey() + " " + ref.getValue());
+                writer.newLine();
+            }
+        }
+        Files.move(tempPath, refsPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Points link at the same file as target: a hard link, or a copy if the file system has no hard links.
+    // The link is made under a temporary name and moved in place, so the name never goes missing.
+    private static void linkOrCopy(Path link, Path target) throws IOException {
+        if (Files.exists(link) && Files.isSameFile(link, target)) {
+            return; // linked already; renaming a link over another link of the same file would do nothing
+        }
+        Path tempPath = link.resolveSibling(link.getFileName() + ".link.tmp");
+        Files.deleteIfExists(tempPath);
+        try {
+            Files.createLink(tempPath, target);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(target, tempPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(tempPath, link, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // every JDK has it
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.AppLogger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * JournalOrderStore stores orders in an append-only journal instead of one text file per order.
+ *
+ * With FolderOrderStore every state change reads the order file, writes a temp file, renames it and moves it
+ * to another folder. Here a new order and a state change are each one record appended to the end of the
+ * journal, so the order throughput is bounded by sequential write bandwidth instead of file system operations.
+ *
+ * How it works:
+ * - The journal is a folder (orders/journal) of segment files: segment-000001.log, segment-000002.log, ...
+ *   Records are only appended to the newest (active) segment. Once it is larger than segmentMaxBytes,
+ *   it is synced and a new segment is started.
+ * - An "order created" record holds the order details text; a "state changed" record only holds the new
+ *   state and the time of the change. Every record carries a CRC32 checksum of its content.
+ * - Group commit: appending does not wait for the disk. The appended records are forced to the disk together
+ *   every syncIntervalMillis (or by flush()), so one fsync covers all orders of that interval.
+ *   With a syncIntervalMillis of 0 every record is forced to the disk before its method returns.
+ * - An in-memory index (orderId -> where its "order created" record is, its state and state-change times)
+ *   is rebuilt at startup by reading all segments in order. A record with a wrong checksum or cut off by
+ *   a crash ends the replay of its segment; in the active segment the damaged tail is cut off.
+ * - Compaction: once there are compactAfterSegments full segments, the orders still in them are rewritten
+ *   to the active segment as one "order created" record each (with their current text), collected orders
+ *   are appended to the archive file collected-orders.txt instead, and the full segments are deleted.
+ *   Before the archive is written, a "compacted" record (the first segment kept and the size of the archive
+ *   before this compaction) is appended and synced together with the rewritten records. If the application
+ *   stops before the full segments are deleted, the next start finds that record and finishes the compaction:
+ *   if no segment was deleted yet, the archive is cut back to its old size and written again, so no collected
+ *   order is archived twice (or only partly); the segments are deleted oldest first.
+ * - A full segment that recovery could not read to the end (a damaged record in the middle of the journal)
+ *   is never deleted by compaction: it is renamed to segment-NNNNNN.log.damaged and kept for inspection.
+ *
+ * Record format (numbers are big-endian):
+ *   int length, int CRC32 of the body, then the body of length bytes:
+ *   byte type (1 = order created, 2 = state changed, 3 = compacted), int orderId, byte state (OrderState ordinal),
+ *   then the order details (order created), the time of the change (state changed), or the first segment compacted,
+ *   the first segment kept and the archive size as three longs (compacted, its orderId and state are not used).
+ */
+
+public class JournalOrderStore implements OrderStore {
+    private static final AppLogger log = AppLogger.getLogger(JournalOrderStore.class);
+
+    private static final byte ORDER_CREATED = 1;
+    private static final byte STATE_CHANGED = 2;
+    private static final byte COMPACTED = 3;
+    private static final int HEADER_BYTES = 8;          // length and checksum
+    private static final int BODY_FIXED_BYTES = 6;      // type, orderId and state
+    private static final int MAX_BODY_BYTES = 16 * 1024 * 1024; // a larger length can only come from a damaged record
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COLLECTED_ARCHIVE = "collected-orders.txt";
+    private static final String DAMAGED_SUFFIX = ".damaged";
+
+    // Where the current text of an order comes from: its latest "order created" record,
+    // and the state changes recorded after it.
+    private record OrderEntry(long segment, long position, OrderState state,
+                              String progressingDateTime, String collectedDateTime) {
+        OrderEntry changedTo(OrderState newState, String dateTime) {
+            return new OrderEntry(segment, position, newState,
+                    newState == OrderState.Progressing ? dateTime : progressingDateTime,
+                    newState == OrderState.Collected ? dateTime : collectedDateTime);
+        }
+    }
+
+    // A compaction recorded in the journal: the segments firstCompacted to firstKept - 1 are no longer needed
+    // once the collected orders in them are in the archive, which was archiveStart bytes long before.
+    private record Compaction(long firstCompacted, long firstKept, long archiveStart) {}
+
+    private final Path journalDir;
+    private final long segmentMaxBytes;
+    private final int compactAfterSegments;
+    private final long syncIntervalMillis;
+
+    private final ConcurrentHashMap<Integer, OrderEntry> orders = new ConcurrentHashMap<>();
+    // segment number -> open channel, for all segments including the active one
+    private final ConcurrentSkipListMap<Long, FileChannel> segments = new ConcurrentSkipListMap<>();
+    // full segments recovery could not read to the end, they are kept when compacted
+    private final Set<Long> damagedSegments = ConcurrentHashMap.newKeySet();
+    // the latest compaction found by recovery, only used while the journal is opened
+    private Compaction lastCompaction;
+
+    // Guards the active segment: appending, syncing, starting a new segment and compacting.
+    private final Object writeLock = new Object();
+    private FileChannel activeChannel;
+    private long activeSegment;
+    private long activePosition;        // where the next record is appended
+    private boolean unsynced = false;   // records were appended since the last fsync
+    private volatile boolean closed = false;
+
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-journal-sync");
+        thread.setDaemon(true); // must not keep the JVM alive when the application exits
+        return thread;
+    });
+
+    /**
+     * Opens the journal in journalDir, creating it if needed, and replays its records.
+     * @param segmentMaxBytes      a new segment is started once the active one is larger than this
+     * @param compactAfterSegments the full segments are compacted once there are this many
+     * @param syncIntervalMillis   how often appended records are forced to the disk, 0 for after every record
+     */
+    public JournalOrderStore(Path journalDir, long segmentMaxBytes, int compactAfterSegments,
+                             long syncIntervalMillis) throws IOException {
+        this.journalDir = journalDir;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.compactAfterSegments = compactAfterSegments;
+        this.syncIntervalMillis = syncIntervalMillis;
+
+        Files.createDirectories(journalDir);
+        recover();
+        if (activeChannel == null) {
+            openSegment(1);
+        }
+        if (lastCompaction != null && !segments.headMap(lastCompaction.firstKept()).isEmpty()) {
+            log.warn("The last compaction of the order journal was interrupted, it is finished now");
+            synchronized (writeLock) {
+                List<Integer> collected = collectedOrdersBefore(lastCompaction.firstKept());
+                // The segments are deleted oldest first, and only after the archive is complete.
+                // While the oldest one is still there the archive may be incomplete, so it is written again.
+                if (segments.containsKey(lastCompaction.firstCompacted())) {
+                    archive(lastCompaction, collected);
+                }
+                deleteCompactedSegments(lastCompaction, collected);
+            }
+        }
+        lastCompaction = null;
+        if (syncIntervalMillis > 0) {
+            syncer.scheduleWithFixedDelay(() -> {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    log.error("Syncing the order journal failed", e);
+                }
+            }, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        log.info("Order journal opened: " + orders.size() + " orders in " + segments.size() + " segment(s)");
+    }
+
+    @Override
+    public void createOrder(Order order) throws IOException {
+        int orderId = order.getOrderId();
+        byte[] detail = order.orderDetails().getBytes(UTF_8);
+        synchronized (writeLock) {
+            if (orders.containsKey(orderId)) {
+                log.warn("Order " + orderId + " already exists in the journal");
+                return;
+            }
+            long position = append(ORDER_CREATED, orderId, OrderState.Ordered, detail);
+            orders.put(orderId, new OrderEntry(activeSegment, position, OrderState.Ordered, null, null));
+            afterAppend();
+        }
+    }
+
+    @Override
+    public boolean updateOrderState(int orderId, OrderState oldState, OrderState newState, String dateTime) throws IOException {
+        synchronized (writeLock) {
+            OrderEntry entry = orders.get(orderId);
+            if (entry == null || entry.state() != oldState) {
+                log.warn("Order " + orderId + " not found in the journal in state " + oldState);
+                return false;
+            }
+            append(STATE_CHANGED, orderId, newState, dateTime.getBytes(UTF_8));
+            orders.put(orderId, entry.changedTo(newState, dateTime));
+            afterAppend();
+            return true;
+        }
+    }
+
+    @Override
+    public String readOrder(int orderId, OrderState state) throws IOException {
+        while (true) {
+            OrderEntry entry = orders.get(orderId);
+            if (entry == null) {
+                throw new IOException("Order not found in the journal: " + orderId);
+            }
+            try {
+                return render(readDetail(entry), entry);
+            } catch (ClosedChannelException e) {
+                if (closed) {
+                    throw e;
+                }
+                // the segment was compacted meanwhile, the entry now points to the rewritten record
+            }
+        }
+    }
+
+    @Override
+    public SortedMap<Integer, OrderState> loadOpenOrders() {
+        TreeMap<Integer, OrderState> openOrders = new TreeMap<>();
+        for (Map.Entry<Integer, OrderEntry> entry : orders.entrySet()) {
+            if (entry.getValue().state() != OrderState.Collected) {
+                openOrders.put(entry.getKey(), entry.getValue().state());
+            }
+        }
+        return openOrders;
+    }
+
+    //The active segment and where the next record goes: every new order and state change moves it.
+    @Override
+    public String watermark() {
+        synchronized (writeLock) {
+            return "journal:" + activeSegment + ":" + activePosition;
+        }
+    }
+
+    //Forces all records appended so far to the disk, one fsync for all of them.
+    @Override
+    public void flush() throws IOException {
+        synchronized (writeLock) {
+            if (unsynced && !closed) {
+                activeChannel.force(false);
+                unsynced = false;
+            }
+        }
+    }
+
+    //Syncs the journal and closes all segments.
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        synchronized (writeLock) {
+            flush();
+            closed = true;
+            for (FileChannel channel : segments.values()) {
+                channel.close();
+            }
+        }
+    }
+
+    // Appends one record to the active segment and returns its position. Caller must hold writeLock.
+    private long append(byte type, int orderId, OrderState state, byte[] payload) throws IOException {
+        if (closed) {
+            throw new IOException("The order journal is closed");
+        }
+        int length = BODY_FIXED_BYTES + payload.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.putInt(length).putInt(0) // checksum filled in below
+                .put(type).putInt(orderId).put((byte) state.ordinal()).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+
+        long position = activePosition;
+        try {
+            while (record.hasRemaining()) {
+                activePosition += activeChannel.write(record, activePosition);
+            }
+        } catch (IOException e) {
+            activePosition = position; // the next record overwrites the partly written one
+            throw e;
+        }
+        unsynced = true;
+        return position;
+    }
+
+    // Syncs now if every record must be durable straight away, and starts a new segment if the active one is full.
+    // Caller must hold writeLock.
+    private void afterAppend() throws IOException {
+        if (syncIntervalMillis <= 0) {
+            activeChannel.force(false);
+            unsynced = false;
+        }
+        if (activePosition >= segmentMaxBytes) {
+            activeChannel.force(false); // a full segment is never written again, it only needs syncing once
+            unsynced = false;
+            openSegment(activeSegment + 1);
+            if (segments.size() - 1 >= compactAfterSegments) {
+                compact();
+            }
+        }
+    }
+
+    // Creates a new segment and makes it the active one. Caller must hold writeLock (or be the constructor).
+    private void openSegment(long segment) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.put(segment, channel);
+        activeChannel = channel;
+        activeSegment = segment;
+        activePosition = channel.size();
+    }
+
+    /**
+     * Rewrites the orders of all full segments into the active segment, then deletes the full segments.
+     * Orders that are still open get one "order created" record with their current text,
+     * collected orders are appended to the collected-orders archive and dropped from the journal.
+     * The compaction is recorded in the journal before the archive is written, see the class comment.
+     * Caller must hold writeLock.
+     */
+    private void compact() throws IOException {
+        long firstKept = activeSegment;
+        int rewritten = 0;
+        for (Map.Entry<Integer, OrderEntry> order : orders.entrySet()) {
+            OrderEntry entry = order.getValue();
+            if (entry.segment() >= firstKept || entry.state() == OrderState.Collected) {
+                continue; // already in the active segment, or archived below
+            }
+            String text = render(readDetail(entry), entry);
+            long position = append(ORDER_CREATED, order.getKey(), entry.state(), text.getBytes(UTF_8));
+            orders.put(order.getKey(), new OrderEntry(activeSegment, position, entry.state(), null, null));
+            rewritten++;
+        }
+
+        Path archivePath = journalDir.resolve(COLLECTED_ARCHIVE);
+        Compaction compaction = new Compaction(segments.firstKey(), firstKept,
+                Files.exists(archivePath) ? Files.size(archivePath) : 0);
+        append(COMPACTED, 0, OrderState.Ordered, ByteBuffer.allocate(24) // orderId and state are not used
+                .putLong(compaction.firstCompacted()).putLong(compaction.firstKept())
+                .putLong(compaction.archiveStart()).array());
+        activeChannel.force(false); // the rewritten records and the compacted record, before anything is archived
+        unsynced = false;
+
+        List<Integer> collected = collectedOrdersBefore(firstKept);
+        archive(compaction, collected);
+        deleteCompactedSegments(compaction, collected);
+        final int rewrittenCount = rewritten;
+        log.info(() -> "Order journal compacted: " + rewrittenCount + " open orders rewritten, "
+                + collected.size() + " collected orders archived");
+    }
+
+    // The orderIds of the collected orders whose records are in the segments before firstKept.
+    private List<Integer> collectedOrdersBefore(long firstKept) {
+        List<Integer> collected = new ArrayList<>();
+        for (Map.Entry<Integer, OrderEntry> order : orders.entrySet()) {
+            if (order.getValue().segment() < firstKept && order.getValue().state() == OrderState.Collected) {
+                collected.add(order.getKey());
+            }
+        }
+        return collected;
+    }
+
+    // Writes the collected orders to the archive, starting at compaction.archiveStart(), so anything an interrupted
+    // run of the same compaction wrote after that is replaced. Caller must hold writeLock.
+    private void archive(Compaction compaction, List<Integer> collected) throws IOException {
+        StringBuilder archive = new StringBuilder();
+        for (Integer orderId : collected) {
+            OrderEntry entry = orders.get(orderId);
+            archive.append(render(readDetail(entry), entry)).append("\n\n");
+        }
+        Path archivePath = journalDir.resolve(COLLECTED_ARCHIVE);
+        if (!archive.isEmpty() || Files.exists(archivePath)) {
+            try (FileChannel archiveChannel = FileChannel.open(archivePath,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (archiveChannel.size() > compaction.archiveStart()) {
+                    archiveChannel.truncate(compaction.archiveStart());
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(archive.toString().getBytes(UTF_8));
+                long position = compaction.archiveStart();
+                while (bytes.hasRemaining()) {
+                    position += archiveChannel.write(bytes, position);
+                }
+                archiveChannel.force(false);
+            }
+        }
+    }
+
+    // Drops the archived orders from the index and deletes the compacted segments, oldest first,
+    // except damaged ones, which are renamed and kept. Caller must hold writeLock.
+    private void deleteCompactedSegments(Compaction compaction, List<Integer> collected) throws IOException {
+        for (Integer orderId : collected) {
+            orders.remove(orderId);
+        }
+
+        // Only now the full segments are no longer needed.
+        for (Long segment : new ArrayList<>(segments.headMap(compaction.firstKept()).keySet())) {
+            segments.remove(segment).close();
+            Path path = segmentPath(segment);
+            if (damagedSegments.remove(segment)) {
+                Path kept = path.resolveSibling(path.getFileName() + DAMAGED_SUFFIX);
+                Files.move(path, kept, StandardCopyOption.REPLACE_EXISTING);
+                log.error(path + " was not read to the end, it is kept as " + kept);
+            } else {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // Reads the order details from an "order created" record.
+    private String readDetail(OrderEntry entry) throws IOException {
+        FileChannel channel = segments.get(entry.segment());
+        if (channel == null) {
+            throw new ClosedChannelException(); // the segment has been compacted
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, entry.position());
+        ByteBuffer body = ByteBuffer.allocate(header.getInt(0));
+        readFully(channel, body, entry.position() + HEADER_BYTES);
+        body.flip().position(BODY_FIXED_BYTES);
+        return UTF_8.decode(body).toString();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of order journal segment");
+            }
+        }
+    }
+
+    // Applies the recorded state changes to the order details, in the same way as the order files are edited.
+    private static String render(String detail, OrderEntry entry) {
+        return detail.lines().map(line -> {
+            if (entry.progressingDateTime() != null) {
+                line = OrderFileManager.updateStateLine(line, OrderState.Progressing, entry.progressingDateTime());
+            }
+            if (entry.collectedDateTime() != null) {
+                line = OrderFileManager.updateStateLine(line, OrderState.Collected, entry.collectedDateTime());
+            }
+            return line;
+        }).collect(Collectors.joining("\n"));
+    }
+
+    // Rebuilds the index from all segments, in order, and opens them. The newest segment becomes the active one.
+    private void recover() throws IOException {
+        List<Long> segmentNumbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(journalDir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segmentNumbers.add(Long.parseLong(
+                                name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid journal segment name: " + name);
+                    }
+                }
+            }
+        }
+        Collections.sort(segmentNumbers);
+
+        for (int i = 0; i < segmentNumbers.size(); i++) {
+            long segment = segmentNumbers.get(i);
+            boolean newest = i == segmentNumbers.size() - 1;
+            Path path = segmentPath(segment);
+            long validEnd = replaySegment(segment, path);
+            FileChannel channel = newest
+                    ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(path, StandardOpenOption.READ);
+            if (validEnd < channel.size()) {
+                if (newest) {
+                    log.warn(path + " has a damaged or incomplete record at position " + validEnd + ", it is cut off");
+                    channel.truncate(validEnd);
+                } else {
+                    log.error(path + " is damaged at position " + validEnd + ", the records after it are skipped");
+                    damagedSegments.add(segment);
+                }
+            }
+            segments.put(segment, channel);
+            if (newest) {
+                activeChannel = channel;
+                activeSegment = segment;
+                activePosition = validEnd;
+            }
+        }
+    }
+
+    // Applies the records of one segment to the index. Returns the position after the last valid record.
+    private long replaySegment(long segment, Path path) throws IOException {
+        long position = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                byte[] body;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < BODY_FIXED_BYTES || length > MAX_BODY_BYTES) {
+                        return position;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                } catch (EOFException e) {
+                    return position; // the end of the segment, or a record cut off by a crash
+                }
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    return position;
+                }
+                apply(segment, position, ByteBuffer.wrap(body));
+                position += HEADER_BYTES + body.length;
+            }
+        }
+    }
+
+    // Applies one record, read during recovery, to the index.
+    private void apply(long segment, long position, ByteBuffer body) {
+        byte type = body.get();
+        int orderId = body.getInt();
+        OrderState state = OrderState.values()[body.get()];
+        if (type == ORDER_CREATED) {
+            orders.put(orderId, new OrderEntry(segment, position, state, null, null));
+        } else if (type == STATE_CHANGED) {
+            String dateTime = UTF_8.decode(body).toString();
+            orders.computeIfPresent(orderId, (id, entry) -> entry.changedTo(state, dateTime));
+        } else if (type == COMPACTED) {
+            lastCompaction = new Compaction(body.getLong(), body.getLong(), body.getLong());
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return journalDir.resolve(SEGMENT_PREFIX + String.format("%06d", segment) + SEGMENT_SUFFIX);
+    }
+}
@@ -1,14 +1,20 @@
 package ci553.happyshop.storageAccess;
 
+import ci553.happyshop.catalogue.Order;
 import ci553.happyshop.orderManagement.OrderState;
+import ci553.happyshop.utility.AppLogger;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
@@ -40,9 +46,16 @@ import java.time.format.DateTimeFormatter;
  *  1. update state from Ordered to Progressing, (then move the file to progressing folder)
  *  2. update state from Progressing to Collected (then move the file to collected folder)
  * </p>
+ *
+ * <p>
+ * An order can also be stored as a binary order record (e.g.,12.ord, see OrderRecordCodec).
+ * Its state and timestamp are then changed in place, by writing a few bytes at fixed offsets,
+ * instead of rewriting the whole file. The methods below handle both kinds of order file.
+ * </p>
  */
 
 public class OrderFileManager {
+    private static final AppLogger log = AppLogger.getLogger(OrderFileManager.class);
 
     //Creates a new order file in the specified directory with the given content.
     public static void createOrderFile(Path dir, int orderId, String orderDetail) throws IOException {
@@ -53,11 +66,25 @@ public class OrderFileManager {
             try (BufferedWriter writer = Files.newBufferedWriter(path)) {
                 writer.write(orderDetail);
                 writer.newLine();
-                System.out.println(path + " created");
+                log.debug(() -> path + " created");
             }
         }
         else{
-            System.out.println(path + " already exists");
+            log.warn(path + " already exists");
+        }
+    }
+
+    //Creates a new binary order record file (e.g. orders/ordered/12.ord) for the order.
+    public static void createOrderRecordFile(Path dir, Order order) throws IOException {
+        Path path = dir.resolve(order.getOrderId() + OrderRecordCodec.FILE_EXTENSION);
+        ByteBuffer record = OrderRecordCodec.encode(order);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            log.debug(() -> path + " created");
+        } catch (FileAlreadyExistsException e) {
+            log.warn(path + " already exists");
         }
     }
 
@@ -66,17 +93,34 @@ public class OrderFileManager {
     //Progressing state in orders/progressing
     //Collected state in orders/collected
     public static boolean updateAndMoveOrderFile(int orderId, OrderState newState, Path sourceDir, Path targetDir) throws IOException {
+        String dateTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        return updateAndMoveOrderFile(orderId, newState, dateTime, sourceDir, targetDir);
+    }
+
+    // Same as above, with the time of the state change given by the caller (eg. OrderHub), formatted as "yyyy-MM-dd HH:mm:ss".
+    public static boolean updateAndMoveOrderFile(int orderId, OrderState newState, String dateTime, Path sourceDir, Path targetDir) throws IOException {
+        String recordFileName = orderId + OrderRecordCodec.FILE_EXTENSION;
+        Path recordPath = sourceDir.resolve(recordFileName);
+        if (Files.exists(recordPath)) { // a binary order record, updated in place
+            try (FileChannel channel = FileChannel.open(recordPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                OrderRecordCodec.updateState(channel, newState, dateTime);
+            }
+            if(!sourceDir.equals(targetDir))
+                Files.move(recordPath, targetDir.resolve(recordFileName));
+            return true;
+        }
+
         String orderFileName = String.valueOf(orderId)+".txt";
         Path sourcePath = sourceDir.resolve(orderFileName);
         Path targetPath = targetDir.resolve(orderFileName);
         if (Files.exists(sourcePath)) {
-            updateOrderStateAndTime(sourceDir,orderId,newState); //Edit the file to update order state and add time
+            updateOrderStateAndTime(sourceDir,orderId,newState,dateTime); //Edit the file to update order state and add time
             if(!sourceDir.equals(targetDir)) //Move the file only if the source and destination are different
                 Files.move(sourcePath,targetPath);
             return true;
         }
         else{
-            System.out.println(sourcePath + " not found in ");
+            log.warn(sourcePath + " not found");
             return false;
         }
     }
@@ -86,7 +130,7 @@ public class OrderFileManager {
      * This method creates a temporary file with the updated content and replaces
      * the original file once updates are complete.
      */
-    private static void updateOrderStateAndTime(Path sourceDir, int orderId, OrderState newState) throws IOException {
+    private static void updateOrderStateAndTime(Path sourceDir, int orderId, OrderState newState, String dateTime) throws IOException {
         String orderFileName = String.valueOf(orderId)+".txt";
         String tempFileName = String.valueOf(orderId) + "_temp.txt";
         Path sourcePath = sourceDir.resolve(orderFileName);
@@ -96,13 +140,7 @@ public class OrderFileManager {
              BufferedWriter writer = Files.newBufferedWriter(tempFilePath, StandardCharsets.UTF_8)) {
             String line;
             while ((line = reader.readLine()) != null) {
-                if (line.startsWith("State")) {
-                    line = "State: " + newState;
-                } else if (newState.equals(OrderState.Progressing) && line.startsWith("ProgressingDateTime")) {
-                    line = "ProgressingDateTime: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-                } else if (newState.equals(OrderState.Collected) && line.startsWith("CollectedDateTime")) {
-                    line = "CollectedDateTime: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-                }
+                line = updateStateLine(line, newState, dateTime);
                 writer.write(line);
                 writer.newLine();
             }
@@ -112,13 +150,35 @@ public class OrderFileManager {
         try {
             Files.move(tempFilePath, sourcePath, StandardCopyOption.REPLACE_EXISTING);
         } catch (IOException e) {
-            System.err.println("Move failed: " + e.getMessage());
+            log.error("Move failed: " + e.getMessage());
             Files.deleteIfExists(tempFilePath); // Delete temp file ONLY IF move failed and it still exists
         }
     }
 
+    /**
+     * Returns one line of an order's details, updated for a change to newState at dateTime:
+     * the "State" line gets the new state, the timestamp line of the new state gets dateTime,
+     * every other line is returned unchanged.
+     * Also used by JournalOrderStore, which keeps the same order details format.
+     */
+    static String updateStateLine(String line, OrderState newState, String dateTime) {
+        if (line.startsWith("State")) {
+            return "State: " + newState;
+        } else if (newState.equals(OrderState.Progressing) && line.startsWith("ProgressingDateTime")) {
+            return "ProgressingDateTime: " + dateTime;
+        } else if (newState.equals(OrderState.Collected) && line.startsWith("CollectedDateTime")) {
+            return "CollectedDateTime: " + dateTime;
+        }
+        return line;
+    }
+
     //Reads the content of an order file as a single string.
+    //A binary order record is rendered as the same text, by Order.orderDetails().
     public static String readOrderFile(Path dir, int orderId) throws IOException {
+        Path recordPath = dir.resolve(orderId + OrderRecordCodec.FILE_EXTENSION);
+        if (Files.exists(recordPath)) {
+            return OrderRecordCodec.decode(ByteBuffer.wrap(Files.readAllBytes(recordPath))).orderDetails();
+        }
         String orderFileName = String.valueOf(orderId)+".txt";
         Path path = dir.resolve(orderFileName);
         // Check if the file exists before reading
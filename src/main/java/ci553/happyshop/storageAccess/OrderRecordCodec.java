@@ -0,0 +1,188 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.orderManagement.OrderState;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * OrderRecordCodec converts an Order to and from a compact binary order record (an .ord file).
+ *
+ * Text order files (Order.orderDetails()) have no fixed layout: changing the state means reading every line,
+ * matching it with startsWith and writing the whole file again. A binary order record has a fixed-size
+ * header, so the state and each timestamp are always at the same offset, and a state change is one small
+ * write into the existing file (updateState). The text is only rendered for display, by Order.orderDetails().
+ *
+ * Record layout, version 1 (numbers are big-endian):
+ *   offset  0  int      magic "HSOR"
+ *   offset  4  short    version
+ *   offset  6  byte     state (OrderState ordinal)
+ *   offset  7  byte     reserved, 0
+ *   offset  8  int      orderId
+ *   offset 12  19 bytes orderedDateTime       "yyyy-MM-dd HH:mm:ss" in ASCII, all zero if not set
+ *   offset 31  19 bytes progressingDateTime
+ *   offset 50  19 bytes collectedDateTime
+ *   offset 69  int      number of products
+ *   offset 73  the products, each: productId, description and image name (short length + UTF-8),
+ *              double unit price, int ordered quantity
+ * A newer version may add fields after the products; an older reader rejects it by its version.
+ */
+
+public class OrderRecordCodec {
+    public static final String FILE_EXTENSION = ".ord";
+
+    private static final int MAGIC = 0x48534F52; // "HSOR"
+    private static final short VERSION = 1;
+
+    private static final int STATE_OFFSET = 6;
+    private static final int ORDER_ID_OFFSET = 8;
+    private static final int ORDERED_AT_OFFSET = 12;
+    private static final int PROGRESSING_AT_OFFSET = 31;
+    private static final int COLLECTED_AT_OFFSET = 50;
+    private static final int DATE_TIME_BYTES = 19;
+    private static final int PRODUCT_COUNT_OFFSET = 69;
+    private static final int HEADER_BYTES = 73;
+    private static final int MAX_STRING_BYTES = 0xFFFF; // written with an unsigned short length
+
+    //Encodes an order as a binary order record.
+    //Throws IllegalArgumentException if a product string is longer than its short length field can hold (65535 bytes).
+    public static ByteBuffer encode(Order order) {
+        ArrayList<Product> products = order.getProductList();
+        ArrayList<byte[]> strings = new ArrayList<>(products.size() * 3);
+        int size = HEADER_BYTES;
+        for (Product product : products) {
+            for (String value : new String[]{product.getProductId(), product.getProductDescription(),
+                                             product.getProductImageName()}) {
+                byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > MAX_STRING_BYTES) {
+                    throw new IllegalArgumentException("Order " + order.getOrderId() + " has a product value of "
+                            + bytes.length + " bytes, an order record holds at most " + MAX_STRING_BYTES);
+                }
+                strings.add(bytes);
+                size += 2 + bytes.length;
+            }
+            size += 8 + 4; // unit price, ordered quantity
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putShort(VERSION).put((byte) order.getState().ordinal()).put((byte) 0);
+        buffer.putInt(order.getOrderId());
+        buffer.put(dateTimeBytes(order.getOrderedDateTime()));
+        buffer.put(dateTimeBytes(order.getProgressingDateTime()));
+        buffer.put(dateTimeBytes(order.getCollectedDateTime()));
+        buffer.putInt(products.size());
+        int i = 0;
+        for (Product product : products) {
+            for (int field = 0; field < 3; field++) {
+                byte[] bytes = strings.get(i++);
+                buffer.putShort((short) bytes.length).put(bytes);
+            }
+            buffer.putDouble(product.getUnitPrice()).putInt(product.getOrderedQuantity());
+        }
+        return buffer.flip();
+    }
+
+    //Decodes a binary order record back into an Order.
+    //Throws IOException if the record is damaged, e.g. an unknown state or cut off in the middle of the products.
+    public static Order decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an order record");
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported order record version " + version);
+        }
+        byte stateOrdinal = buffer.get(STATE_OFFSET);
+        if (stateOrdinal < 0 || stateOrdinal >= OrderState.values().length) {
+            throw new IOException("Invalid order state " + stateOrdinal + " in order record");
+        }
+        OrderState state = OrderState.values()[stateOrdinal];
+        int orderId = buffer.getInt(ORDER_ID_OFFSET);
+        String orderedDateTime = readDateTime(buffer, ORDERED_AT_OFFSET);
+        String progressingDateTime = readDateTime(buffer, PROGRESSING_AT_OFFSET);
+        String collectedDateTime = readDateTime(buffer, COLLECTED_AT_OFFSET);
+        int productCount = buffer.getInt(PRODUCT_COUNT_OFFSET);
+        if (productCount < 0) {
+            throw new IOException("Invalid product count " + productCount + " in order record");
+        }
+
+        ArrayList<Product> products = new ArrayList<>();
+        buffer.position(HEADER_BYTES);
+        try {
+            for (int i = 0; i < productCount; i++) {
+                String productId = readString(buffer);
+                String description = readString(buffer);
+                String imageName = readString(buffer);
+                double unitPrice = buffer.getDouble();
+                int orderedQuantity = buffer.getInt();
+                Product product = new Product(productId, description, imageName, unitPrice, 0);
+                product.setOrderedQuantity(orderedQuantity);
+                products.add(product);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Order record " + orderId + " is cut off after " + products.size() + " products");
+        }
+
+        Order order = new Order(orderId, state, orderedDateTime, products);
+        order.setProgressingDateTime(progressingDateTime);
+        order.setCollectedDateTime(collectedDateTime);
+        return order;
+    }
+
+    /**
+     * Changes the state of the order record in the file, and sets the timestamp of the new state.
+     * Only the state byte and one timestamp are written, in place; the rest of the record is untouched.
+     */
+    public static void updateState(FileChannel channel, OrderState newState, String dateTime) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(6);
+        if (channel.read(header, 0) < 6 || header.getInt(0) != MAGIC || header.getShort(4) != VERSION) {
+            throw new IOException("Not a version " + VERSION + " order record");
+        }
+        int dateTimeOffset = switch (newState) {
+            case Progressing -> PROGRESSING_AT_OFFSET;
+            case Collected -> COLLECTED_AT_OFFSET;
+            default -> -1; // the ordered time never changes
+        };
+        if (dateTimeOffset >= 0) {
+            writeFully(channel, ByteBuffer.wrap(dateTimeBytes(dateTime)), dateTimeOffset);
+        }
+        writeFully(channel, ByteBuffer.wrap(new byte[]{(byte) newState.ordinal()}), STATE_OFFSET);
+    }
+
+    // A timestamp as exactly DATE_TIME_BYTES ASCII bytes, all zero if it is not set.
+    private static byte[] dateTimeBytes(String dateTime) {
+        byte[] bytes = new byte[DATE_TIME_BYTES];
+        if (dateTime != null && !dateTime.isEmpty()) {
+            byte[] ascii = dateTime.getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(ascii, 0, bytes, 0, Math.min(ascii.length, DATE_TIME_BYTES));
+        }
+        return bytes;
+    }
+
+    private static String readDateTime(ByteBuffer buffer, int offset) {
+        if (buffer.get(offset) == 0) {
+            return "";
+        }
+        byte[] bytes = new byte[DATE_TIME_BYTES];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII).trim();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
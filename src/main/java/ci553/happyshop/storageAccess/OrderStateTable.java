@@ -0,0 +1,197 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.orderManagement.OrderState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * OrderStateTable is a memory-mapped file (orders/orderStates.dat) holding the state of every order
+ * and the time it reached each state, as one fixed-width record per orderId.
+ * Each storage engine has its own table, see OrderStoreFactory.createOrderStateTable().
+ *
+ * The record of an order is always at offset orderId * RECORD_BYTES, so recording a state change means
+ * writing a few bytes into a mapped page; the operating system writes the page to the file.
+ * At startup the states of all orders are read back with one sequential pass over the file,
+ * instead of listing order folders or replaying a journal.
+ *
+ * Record layout (RECORD_BYTES = 64):
+ *   offset  0  byte     state: 0 = no order with this orderId, otherwise OrderState ordinal + 1
+ *   offset  1  19 bytes orderedDateTime      "yyyy-MM-dd HH:mm:ss" in ASCII, all zero if not set
+ *   offset 20  19 bytes progressingDateTime
+ *   offset 39  19 bytes collectedDateTime
+ *   offset 58  unused
+ * Record 0 is the header (orderId 0 is never used): magic "HSOT" (offset 0), version (offset 4),
+ * and the watermark of the OrderStore the table was last saved with (offset 5 its length, from offset 6 in ASCII).
+ *
+ * The table is a startup index, not the record of the orders: the OrderStore still keeps each order with
+ * its state and times, and readOrder reads them from there. The table can only be trusted while it matches
+ * the store, which is what the watermark is for (see OrderStore.watermark()): it is saved at a clean shutdown
+ * and cleared again at startup, so after a crash, or when the store was changed by anything else meanwhile,
+ * the saved watermark differs from the store's and OrderHub rebuilds the table from the store.
+ * The times in the table are informational and may be empty: orders copied in by rebuild(...) have no times,
+ * only the states they reach afterward do.
+ *
+ * The file is mapped in regions of REGION_RECORDS records, a new region is mapped (and the file extended)
+ * the first time an orderId in it is written. Records of different orders can be written by different threads
+ * at the same time, each record is only written by the thread that changes that order's state.
+ */
+
+public class OrderStateTable implements Closeable {
+    private static final int MAGIC = 0x48534F54; // "HSOT"
+    private static final byte VERSION = 1;
+
+    private static final int RECORD_BYTES = 64;
+    private static final int DATE_TIME_BYTES = 19;
+    private static final int ORDERED_AT_OFFSET = 1;
+    private static final int PROGRESSING_AT_OFFSET = 20;
+    private static final int COLLECTED_AT_OFFSET = 39;
+    private static final int HEADER_WATERMARK_OFFSET = 5; // the length, then the watermark
+    private static final int MAX_WATERMARK_BYTES = RECORD_BYTES - HEADER_WATERMARK_OFFSET - 1;
+    private static final int REGION_RECORDS = 65_536; // 4 MB per region
+    private static final long REGION_BYTES = (long) REGION_RECORDS * RECORD_BYTES;
+
+    private final FileChannel channel;
+    private final ArrayList<MappedByteBuffer> regions = new ArrayList<>(); // guarded by itself
+
+    public OrderStateTable(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer header = region(0);
+        if (header.getInt(0) != MAGIC) { // a new table
+            header.putInt(0, MAGIC);
+            header.put(4, VERSION);
+            header.put(HEADER_WATERMARK_OFFSET, (byte) 0); // none, the table does not match any store yet
+        } else if (header.get(4) != VERSION) {
+            throw new IOException("Unsupported order state table version " + header.get(4) + " in " + path);
+        }
+    }
+
+    /**
+     * Records that an order has reached a state at the given time.
+     * @param dateTime formatted as "yyyy-MM-dd HH:mm:ss", or empty if unknown
+     */
+    public void put(int orderId, OrderState state, String dateTime) throws IOException {
+        if (orderId <= 0) {
+            throw new IllegalArgumentException("Invalid orderId " + orderId);
+        }
+        MappedByteBuffer region = region(orderId / REGION_RECORDS);
+        int offset = (orderId % REGION_RECORDS) * RECORD_BYTES;
+        int dateTimeOffset = switch (state) {
+            case Ordered -> ORDERED_AT_OFFSET;
+            case Progressing -> PROGRESSING_AT_OFFSET;
+            case Collected -> COLLECTED_AT_OFFSET;
+        };
+        byte[] dateTimeBytes = new byte[DATE_TIME_BYTES];
+        byte[] ascii = dateTime.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(ascii, 0, dateTimeBytes, 0, Math.min(ascii.length, DATE_TIME_BYTES));
+        region.put(offset + dateTimeOffset, dateTimeBytes);
+        region.put(offset, (byte) (state.ordinal() + 1)); // the state last, it makes the record count
+    }
+
+    /**
+     * Reads the orders that are not collected yet with one sequential pass over the table.
+     * @return orderId -> state, sorted by orderId
+     */
+    public SortedMap<Integer, OrderState> loadOpenOrders() throws IOException {
+        TreeMap<Integer, OrderState> openOrders = new TreeMap<>();
+        OrderState[] states = OrderState.values();
+        long records = channel.size() / RECORD_BYTES;
+        for (int regionIndex = 0; (long) regionIndex * REGION_RECORDS < records; regionIndex++) {
+            MappedByteBuffer region = region(regionIndex);
+            for (int i = 0; i < REGION_RECORDS; i++) {
+                int orderId = regionIndex * REGION_RECORDS + i;
+                byte state = region.get(i * RECORD_BYTES);
+                if (orderId > 0 && state > 0 && state <= states.length && states[state - 1] != OrderState.Collected) {
+                    openOrders.put(orderId, states[state - 1]);
+                }
+            }
+        }
+        return openOrders;
+    }
+
+    //The watermark of the store the table matches, saved by setWatermark, or "" if there is none.
+    public String getWatermark() throws IOException {
+        MappedByteBuffer header = region(0);
+        int length = Math.min(header.get(HEADER_WATERMARK_OFFSET) & 0xFF, MAX_WATERMARK_BYTES);
+        byte[] watermark = new byte[length];
+        header.get(HEADER_WATERMARK_OFFSET + 1, watermark);
+        return new String(watermark, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Writes all changed pages to the file, then saves the watermark, so the watermark never describes
+     * states that are not in the file yet. "" clears it: the table must then not be trusted at the next startup.
+     * @throws IllegalArgumentException if the watermark is longer than 58 ASCII characters
+     */
+    public void setWatermark(String watermark) throws IOException {
+        byte[] ascii = watermark.getBytes(StandardCharsets.US_ASCII);
+        if (ascii.length > MAX_WATERMARK_BYTES) {
+            throw new IllegalArgumentException("Order store watermark too long: " + watermark);
+        }
+        force();
+        MappedByteBuffer header = region(0);
+        header.put(HEADER_WATERMARK_OFFSET + 1, ascii);
+        header.put(HEADER_WATERMARK_OFFSET, (byte) ascii.length);
+        header.force();
+    }
+
+    //Replaces everything in the table with orders loaded from the store, e.g. when the table does not match it.
+    //Their times are left empty: the store keeps them in the order details, reading every order here would
+    //cost the startup time the table is meant to save. The watermark is cleared.
+    public void rebuild(Map<Integer, OrderState> orders) throws IOException {
+        setWatermark("");
+        byte[] noOrder = new byte[RECORD_BYTES];
+        long records = channel.size() / RECORD_BYTES;
+        for (int regionIndex = 0; (long) regionIndex * REGION_RECORDS < records; regionIndex++) {
+            MappedByteBuffer region = region(regionIndex);
+            for (int i = regionIndex == 0 ? 1 : 0; i < REGION_RECORDS; i++) { // record 0 is the header
+                region.put(i * RECORD_BYTES, noOrder);
+            }
+        }
+        for (Map.Entry<Integer, OrderState> order : orders.entrySet()) {
+            put(order.getKey(), order.getValue(), ""); // the times are not known here
+        }
+        force();
+    }
+
+    //Writes all changed pages to the file.
+    public void force() {
+        synchronized (regions) {
+            for (MappedByteBuffer region : regions) {
+                if (region != null) {
+                    region.force();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    // Returns the mapped region, mapping it (and extending the file) on first use.
+    private MappedByteBuffer region(int regionIndex) throws IOException {
+        synchronized (regions) {
+            while (regions.size() <= regionIndex) {
+                regions.add(null);
+            }
+            MappedByteBuffer region = regions.get(regionIndex);
+            if (region == null) {
+                region = channel.map(FileChannel.MapMode.READ_WRITE, regionIndex * REGION_BYTES, REGION_BYTES);
+                regions.set(regionIndex, region);
+            }
+            return region;
+        }
+    }
+}
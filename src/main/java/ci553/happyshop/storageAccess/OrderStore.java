@@ -0,0 +1,75 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.orderManagement.OrderState;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.SortedMap;
+
+/**
+ * The OrderStore interface defines the contract for storing orders, used by OrderHub.
+ * It is implemented by:
+ * - FolderOrderStore:  the original layout, one text file per order in a folder for each state
+ *                      (orders/ordered, orders/progressing, orders/collected), see OrderFileManager.
+ * - JournalOrderStore: an append-only journal (orders/journal) of order-created and state-changed records.
+ * OrderStoreFactory decides which one is used.
+ *
+ * A state change sets the state of the stored order and the timestamp of the new state, and readOrder
+ * returns the order details text (as rendered by Order.orderDetails()), whichever way the order is stored.
+ *
+ * Why use this interface:
+ * OrderHub does not need to know how orders are kept, so the storage engine can be changed
+ * (e.g. to the journal for a higher order throughput) without changing the order logic.
+ */
+
+public interface OrderStore extends Closeable {
+
+    /**
+     * Stores a new order in the "ordered" state.
+     * @param order the new order
+     */
+    void createOrder(Order order) throws IOException;
+
+    /**
+     * Changes the state of a stored order and records the time of the change.
+     * @param oldState the state the order is in now
+     * @param newState the new state
+     * @param dateTime the time of the change, formatted as "yyyy-MM-dd HH:mm:ss"
+     * @return false if the order was not found in oldState
+     */
+    boolean updateOrderState(int orderId, OrderState oldState, OrderState newState, String dateTime) throws IOException;
+
+    /**
+     * Reads the order details of a stored order.
+     * @param state the state the order is in now
+     * @throws IOException if the order is not found
+     */
+    String readOrder(int orderId, OrderState state) throws IOException;
+
+    /**
+     * Loads the orders that are not collected yet, i.e. in the "ordered" or "progressing" state.
+     * Used by OrderHub during system startup.
+     * @return orderId -> state, sorted by orderId
+     */
+    SortedMap<Integer, OrderState> loadOpenOrders() throws IOException;
+
+    /**
+     * Describes the stored orders as they are now, in at most 58 ASCII characters: it changes whenever an order
+     * is added or changes state, also when that is done by anything other than this store (e.g. order files
+     * moved by hand). OrderHub saves it in the OrderStateTable at shutdown, and only loads the open orders from
+     * the table at the next startup if the store's watermark is still the same.
+     */
+    String watermark() throws IOException;
+
+    /**
+     * Makes all changes stored so far durable, i.e. forces them to the disk.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Makes all changes durable and releases the store, called when the application shuts down.
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,116 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.utility.AppLogger;
+import ci553.happyshop.utility.StorageLocation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The OrderStoreFactory class centralizes the order storage configuration and creates the OrderStore used by OrderHub.
+ *
+ * Two storage engines are available:
+ * - FolderOrderStore (default): one text file per order, in a folder for each state.
+ * - JournalOrderStore: an append-only, checksummed journal with group commit and compaction,
+ *   chosen with journalEnabled, e.g. by starting the application with -Dhappyshop.orderJournal=true
+ * The two do not share their data: orders stored by one engine are not seen by the other.
+ *
+ * It also creates the BatchingOrderWriter that stores new orders in batches, one flush per batch,
+ * and the memory-mapped OrderStateTable that records every state change in place.
+ *
+ * Example Usage:
+ *     OrderStore orderStore = OrderStoreFactory.createOrderStore();
+ *     BatchingOrderWriter orderWriter = OrderStoreFactory.createOrderWriter();
+ */
+
+public class OrderStoreFactory {
+    private static final AppLogger log = AppLogger.getLogger(OrderStoreFactory.class);
+
+    // Which storage engine is used, must be set before the OrderStore is created
+    public static boolean journalEnabled = Boolean.getBoolean("happyshop.orderJournal");
+
+    // Folder store configuration: write new orders as binary order records (.ord) instead of text files (.txt)
+    public static boolean binaryOrderRecords = Boolean.getBoolean("happyshop.binaryOrderRecords");
+
+    // Journal configuration
+    public static long journalSegmentMaxBytes = 16 * 1024 * 1024; // a new segment is started after this
+    public static int journalCompactAfterSegments = 4;            // full segments are compacted once there are this many
+    public static long journalSyncIntervalMillis = 50;            // group commit interval, 0 to sync after every record
+
+    // New orders written with one flush at most
+    public static int orderWriteMaxBatchSize = 256;
+
+    private static OrderStore orderStore; // shared, created on first use
+    private static BatchingOrderWriter orderWriter; // shared, created on first use
+    private static OrderStateTable orderStateTable; // shared, created on first use
+
+    /**
+     * Returns the OrderStore, creating it on first use.
+     * The store is closed when the JVM shuts down: a journal is synced, so no record is lost on a normal exit,
+     * and the folder store forces its new order files to the disk.
+     */
+    public static synchronized OrderStore createOrderStore() {
+        if (orderStore == null) {
+            if (journalEnabled) {
+                try {
+                    orderStore = new JournalOrderStore(StorageLocation.journalPath,
+                            journalSegmentMaxBytes, journalCompactAfterSegments, journalSyncIntervalMillis);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot open the order journal in " + StorageLocation.journalPath, e);
+                }
+            } else {
+                orderStore = new FolderOrderStore(StorageLocation.orderedPath,
+                        StorageLocation.progressingPath, StorageLocation.collectedPath, binaryOrderRecords);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    orderStore.close();
+                } catch (IOException e) {
+                    log.error("Closing the order store failed", e);
+                }
+            }, "order-store-shutdown"));
+        }
+        return orderStore;
+    }
+
+    /**
+     * Returns the BatchingOrderWriter that stores new orders in the OrderStore, creating it on first use.
+     */
+    public static synchronized BatchingOrderWriter createOrderWriter() {
+        if (orderWriter == null) {
+            orderWriter = new BatchingOrderWriter(createOrderStore(), orderWriteMaxBatchSize);
+        }
+        return orderWriter;
+    }
+
+    /**
+     * Returns the OrderStateTable of the selected storage engine, creating it on first use.
+     * Each engine has its own table (orders/orderStates.dat, orders/journal/orderStates.dat), so switching
+     * the engine never loads the orders of the other one. When the JVM shuts down, its pages are written
+     * to the file and the OrderStore's watermark is saved in it, so the next startup can trust the table.
+     */
+    public static synchronized OrderStateTable createOrderStateTable() {
+        if (orderStateTable == null) {
+            Path tablePath = journalEnabled ? StorageLocation.journalStateTablePath : StorageLocation.orderStateTablePath;
+            try {
+                Files.createDirectories(tablePath.getParent());
+                orderStateTable = new OrderStateTable(tablePath);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open the order state table " + tablePath, e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    OrderStore store = createOrderStore();
+                    store.flush();
+                    orderStateTable.setWatermark(store.watermark()); // the table matches the store now
+                    orderStateTable.close();
+                } catch (IOException e) {
+                    log.error("Closing the order state table failed", e);
+                }
+            }, "order-state-table-shutdown"));
+        }
+        return orderStateTable;
+    }
+}
@@ -0,0 +1,123 @@
+package ci553.happyshop.storageAccess;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A database connection borrowed from the ConnectionPool.
+ *
+ * It wraps the real JDBC Connection and remembers when it was last used, so the pool can
+ * validate or evict it. Closing a PooledConnection does not close the real connection,
+ * it hands the connection back to the pool for the next caller.
+ *
+ * Each pooled connection also keeps a small statement cache keyed by SQL text.
+ * DerbyRW runs the same handful of queries over and over, so prepareStatement(sql) returns the
+ * already compiled PreparedStatement instead of asking Derby to compile the SQL again.
+ * The cache is LRU bounded; statements dropped from it, or left in it when the connection
+ * is closed for good, are closed at that point.
+ *
+ * Note: statements returned by prepareStatement(sql) belong to the cache,
+ * so callers must NOT close them (close their ResultSets only).
+ */
+
+public class PooledConnection implements AutoCloseable {
+    private final Connection connection;
+    private final ConnectionPool pool;
+    private volatile long lastUsedMillis = System.currentTimeMillis();
+    private boolean borrowed = false;
+
+    private static final int STATEMENT_CACHE_SIZE = 20; // more than enough for the queries in DerbyRW
+
+    // SQL text -> compiled statement, in access order so the eldest entry is the least recently used
+    private final LinkedHashMap<String, PreparedStatement> statementCache =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > STATEMENT_CACHE_SIZE) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    PooledConnection(Connection connection, ConnectionPool pool) {
+        this.connection = connection;
+        this.pool = pool;
+    }
+
+    //the real JDBC connection, valid until this PooledConnection is closed
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Returns a PreparedStatement for the given SQL, reusing the cached one if this connection
+     * has prepared the same SQL before. Parameters and batches left over from the last use are cleared.
+     * The returned statement must not be closed by the caller.
+     */
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        PreparedStatement stmt = statementCache.get(sql);
+        if (stmt != null && !stmt.isClosed()) {
+            pool.recordStatementCacheHit();
+            stmt.clearParameters();
+            stmt.clearBatch();
+            return stmt;
+        }
+        pool.recordStatementCacheMiss();
+        stmt = connection.prepareStatement(sql);
+        statementCache.put(sql, stmt);
+        return stmt;
+    }
+
+    //the number of statements currently cached for this connection
+    public int getCachedStatementCount() {
+        return statementCache.size();
+    }
+
+    //gives the connection back to the pool, calling it more than once has no effect
+    @Override
+    public void close() {
+        if (borrowed) {
+            borrowed = false;
+            pool.release(this);
+        }
+    }
+
+    void markBorrowed() {
+        borrowed = true;
+        lastUsedMillis = System.currentTimeMillis();
+    }
+
+    void markReturned() {
+        lastUsedMillis = System.currentTimeMillis();
+    }
+
+    long getIdleMillis() {
+        return System.currentTimeMillis() - lastUsedMillis;
+    }
+
+    //closes the cached statements and the real connection, used by the pool when a connection is evicted or broken
+    void closePhysically() {
+        for (PreparedStatement stmt : statementCache.values()) {
+            closeQuietly(stmt);
+        }
+        statementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // the connection is being thrown away anyway
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // nothing useful can be done, the statement is no longer used
+        }
+    }
+}
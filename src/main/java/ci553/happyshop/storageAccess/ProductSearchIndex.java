@@ -0,0 +1,219 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory inverted index over product descriptions, used to answer keyword searches
+ * without running  LOWER(description) LIKE '%keyword%'  (a full table scan) in the database.
+ *
+ * How it works:
+ * - Every lower-cased description is split into trigrams (all 3-character substrings),
+ *   e.g. "usb drive" -> "usb", "sb ", "b d", " dr", "dri", "riv", "ive".
+ * - For each trigram the index keeps a posting set: the IDs of all products whose description contains it.
+ * - A keyword can only be contained in a description that contains every trigram of the keyword,
+ *   so the search intersects the posting sets of the keyword's trigrams (smallest set first)
+ *   and then checks the few remaining candidates with String.contains().
+ *   The keyword is matched as plain text: for a keyword without the LIKE wildcards '%' and '_' this gives
+ *   the same matches as the LIKE query, just without a scan. Keywords with wildcards are patterns
+ *   the index cannot match, CachingDatabaseRW sends them to the database.
+ * - Every description is also split into tokens (its words, separated by whitespace), with a posting set per token.
+ *   Tokens alone cannot answer a substring search ("usb" is inside the word "usb3"), but a word that has whitespace
+ *   on both sides inside the keyword, e.g. "inch" in "40 inch tv", must be a whole word of a matching description.
+ *   The posting sets of such words are intersected together with the trigram sets; a whole word is usually
+ *   far more selective than any of its trigrams.
+ * - Keywords shorter than 3 characters have no trigrams, they are checked against the in-memory descriptions.
+ * - Text is lower-cased with Locale.ROOT, like everywhere else keywords are compared (SearchResultCache, DerbyRW),
+ *   so the result does not depend on the default locale (e.g. the Turkish dotless i).
+ *
+ * The index is maintained incrementally: put() when a product is inserted or its description is updated,
+ * remove() when a product is deleted. Searches can run in parallel, updates are exclusive (ReadWriteLock).
+ */
+
+public class ProductSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final HashMap<String, String> descriptions = new HashMap<>();        // productID -> lower-cased description
+    private final HashMap<String, Set<String>> postings = new HashMap<>();       // trigram -> productIDs
+    private final HashMap<String, Set<String>> tokenPostings = new HashMap<>();  // word -> productIDs
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //builds an index from a complete product list, eg. everything in ProductTable
+    public ProductSearchIndex(Collection<Product> products) {
+        for (Product product : products) {
+            addToIndex(product.getProductId(), normalize(product.getProductDescription()));
+        }
+    }
+
+    //adds a product, or replaces its description if it is already indexed
+    public void put(String productId, String description) {
+        lock.writeLock().lock();
+        try {
+            removeFromIndex(productId);
+            addToIndex(productId, normalize(description));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String productId) {
+        lock.writeLock().lock();
+        try {
+            removeFromIndex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //true if a product with exactly this ID is indexed
+    public boolean containsProductId(String productId) {
+        lock.readLock().lock();
+        try {
+            return descriptions.containsKey(productId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return descriptions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds all products whose description contains the keyword (case-insensitive).
+     * @return the matching product IDs in ascending order, empty if nothing matches
+     */
+    public List<String> search(String keyword) {
+        String key = normalize(keyword);
+        ArrayList<String> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            Collection<String> candidates = key.length() < GRAM_LENGTH ? descriptions.keySet() : candidatesFor(key);
+            for (String productId : candidates) {
+                if (descriptions.get(productId).contains(key)) {
+                    matches.add(productId);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Collections.sort(matches);
+        return matches;
+    }
+
+    // Intersects the posting sets of all trigrams and whole words of the key, starting from the smallest set.
+    // Caller must hold the read lock.
+    private Collection<String> candidatesFor(String key) {
+        ArrayList<Set<String>> sets = new ArrayList<>();
+        for (String gram : gramsOf(key)) {
+            Set<String> posting = postings.get(gram);
+            if (posting == null) {
+                return Collections.emptyList(); // no description contains this trigram
+            }
+            sets.add(posting);
+        }
+        for (String word : wholeWordsOf(key)) {
+            Set<String> posting = tokenPostings.get(word);
+            if (posting == null) {
+                return Collections.emptyList(); // no description has this word
+            }
+            sets.add(posting);
+        }
+        sets.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        HashSet<String> candidates = new HashSet<>(sets.get(0));
+        for (int i = 1; i < sets.size() && !candidates.isEmpty(); i++) {
+            candidates.retainAll(sets.get(i));
+        }
+        return candidates;
+    }
+
+    // Caller must hold the write lock (or be the constructor).
+    private void addToIndex(String productId, String description) {
+        descriptions.put(productId, description);
+        for (String gram : gramsOf(description)) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(productId);
+        }
+        for (String token : tokensOf(description)) {
+            tokenPostings.computeIfAbsent(token, t -> new HashSet<>()).add(productId);
+        }
+    }
+
+    // Caller must hold the write lock.
+    private void removeFromIndex(String productId) {
+        String oldDescription = descriptions.remove(productId);
+        if (oldDescription == null) {
+            return;
+        }
+        removeFromPostings(postings, gramsOf(oldDescription), productId);
+        removeFromPostings(tokenPostings, tokensOf(oldDescription), productId);
+    }
+
+    // Caller must hold the write lock.
+    private static void removeFromPostings(HashMap<String, Set<String>> postingMap, Set<String> keys, String productId) {
+        for (String key : keys) {
+            Set<String> posting = postingMap.get(key);
+            if (posting != null) {
+                posting.remove(productId);
+                if (posting.isEmpty()) {
+                    postingMap.remove(key);
+                }
+            }
+        }
+    }
+
+    // all distinct trigrams of a (normalized) text
+    private static Set<String> gramsOf(String text) {
+        HashSet<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    // all distinct words of a (normalized) text
+    private static Set<String> tokensOf(String text) {
+        HashSet<String> tokens = new HashSet<>();
+        for (String token : WHITESPACE.split(text)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // The words of a keyword with whitespace on both sides, e.g. "inch" in "40 inch tv" (not "40" or "tv",
+    // they can be the end of a longer word in the description). A matching description has them as whole words.
+    private static Set<String> wholeWordsOf(String key) {
+        HashSet<String> words = new HashSet<>();
+        String[] parts = WHITESPACE.split(key, -1);
+        for (int i = 1; i < parts.length - 1; i++) {
+            if (!parts[i].isEmpty()) {
+                words.add(parts[i]);
+            }
+        }
+        return words;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
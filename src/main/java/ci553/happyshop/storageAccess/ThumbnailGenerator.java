@@ -0,0 +1,145 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.utility.AppLogger;
+import ci553.happyshop.utility.StorageLocation;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * ThumbnailGenerator creates small, pre-scaled copies (thumbnails) of the product images, so the clients
+ * load a file of a few KB instead of decoding a full-size JPEG and scaling it down every time.
+ *
+ * A thumbnail is made for each size the clients show a product image at (see thumbnailSizes):
+ *   - 50x45:  the product rows of CustomerView and WarehouseView
+ *   - 60x60:  the product preview on the CustomerView search page
+ *   - 100x70: the product image in the WarehouseView edit and new product forms
+ * Thumbnails are PNG files in the "thumbnails" subfolder of the image folder, named after the image and the size,
+ * e.g. images/0001.jpg -> images/thumbnails/0001.jpg.50x45.png. Like JavaFX with preserveRatio, the image is scaled
+ * to fit the size, keeping its aspect ratio.
+ *
+ * How the clients use them: ImageFileManager.imageUri(imageName, width, height) returns the thumbnail if it exists
+ * and is up to date, otherwise the full-size image, which JavaFX scales as before.
+ *
+ * Thumbnails are written to a temporary file first and then moved in place, so a client never reads half a file.
+ */
+
+public class ThumbnailGenerator {
+    private static final AppLogger log = AppLogger.getLogger(ThumbnailGenerator.class);
+
+    public record ThumbnailSize(int width, int height) {}
+
+    // the sizes product images are shown at in the clients
+    public static ThumbnailSize[] thumbnailSizes = {
+            new ThumbnailSize(50, 45),
+            new ThumbnailSize(60, 60),
+            new ThumbnailSize(100, 70)
+    };
+
+    //The thumbnail file of an image at a size, e.g. images/thumbnails/0001.jpg.50x45.png
+    public static Path thumbnailPath(Path imageFolder, String imageName, int width, int height) {
+        return imageFolder.resolve(StorageLocation.thumbnailSubfolder)
+                          .resolve(imageName + "." + width + "x" + height + ".png");
+    }
+
+    /**
+     * Creates the thumbnails of an image at every size in thumbnailSizes, replacing existing ones.
+     * @param imageFile an image in an image folder, e.g. images/0001.jpg
+     * @return false if the image could not be read (e.g. not a format ImageIO knows), no thumbnails are made then
+     */
+    public static boolean generateThumbnails(Path imageFile) throws IOException {
+        BufferedImage image = ImageIO.read(imageFile.toFile());
+        if (image == null) {
+            log.warn("No thumbnails for " + imageFile + ", not a readable image");
+            return false;
+        }
+        Path imageFolder = imageFile.toAbsolutePath().getParent();
+        String imageName = imageFile.getFileName().toString();
+        Files.createDirectories(imageFolder.resolve(StorageLocation.thumbnailSubfolder));
+        for (ThumbnailSize size : thumbnailSizes) {
+            BufferedImage thumbnail = scaleToFit(image, size.width(), size.height());
+            Path thumbnailPath = thumbnailPath(imageFolder, imageName, size.width(), size.height());
+            Path tempPath = thumbnailPath.resolveSibling(thumbnailPath.getFileName() + ".tmp");
+            ImageIO.write(thumbnail, "png", tempPath.toFile());
+            Files.move(tempPath, thumbnailPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        log.debug(() -> "Thumbnails created for " + imageFile);
+        return true;
+    }
+
+    //Deletes the thumbnails of an image, if there are any.
+    public static void deleteThumbnails(Path imageFolder, String imageName) throws IOException {
+        for (ThumbnailSize size : thumbnailSizes) {
+            Files.deleteIfExists(thumbnailPath(imageFolder, imageName, size.width(), size.height()));
+        }
+    }
+
+    /**
+     * Creates the missing or outdated thumbnails of all images in a folder.
+     * Thumbnails newer than their image are kept, so running it again only does the new work.
+     * @return the number of images thumbnails were created for
+     */
+    public static int generateAll(Path imageFolder) throws IOException {
+        int generated = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(imageFolder)) {
+            for (Path imageFile : stream) {
+                if (Files.isRegularFile(imageFile) && !isUpToDate(imageFolder, imageFile)
+                        && generateThumbnails(imageFile)) {
+                    generated++;
+                }
+            }
+        }
+        return generated;
+    }
+
+    //Returns true if every thumbnail of the image exists and is not older than the image.
+    static boolean isUpToDate(Path imageFolder, Path imageFile) throws IOException {
+        String imageName = imageFile.getFileName().toString();
+        for (ThumbnailSize size : thumbnailSizes) {
+            Path thumbnailPath = thumbnailPath(imageFolder, imageName, size.width(), size.height());
+            if (!Files.exists(thumbnailPath)
+                    || Files.getLastModifiedTime(thumbnailPath).compareTo(Files.getLastModifiedTime(imageFile)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scales an image to fit width x height, keeping its aspect ratio.
+     * A large image is halved step by step before the last step, one bilinear step straight down
+     * from a megapixel image would skip most of its pixels and look grainy.
+     */
+    private static BufferedImage scaleToFit(BufferedImage image, int width, int height) {
+        double scale = Math.min((double) width / image.getWidth(), (double) height / image.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = Math.max(targetWidth, currentWidth / 2);
+            currentHeight = Math.max(targetHeight, currentHeight / 2);
+            if (currentWidth < targetWidth * 2 || currentHeight < targetHeight * 2) { // the last step
+                currentWidth = targetWidth;
+                currentHeight = targetHeight;
+            }
+            BufferedImage scaled = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = scaled.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            g.dispose();
+            current = scaled;
+        } while (currentWidth != targetWidth || currentHeight != targetHeight);
+        return current;
+    }
+}
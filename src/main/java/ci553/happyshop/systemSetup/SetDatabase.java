@@ -1,6 +1,8 @@
 package ci553.happyshop.systemSetup;
 
 import ci553.happyshop.storageAccess.DatabaseRWFactory;
+import ci553.happyshop.storageAccess.ImageStore;
+import ci553.happyshop.storageAccess.ThumbnailGenerator;
 import ci553.happyshop.utility.StorageLocation;
 
 import java.io.IOException;
@@ -22,8 +24,11 @@ import java.util.concurrent.locks.ReentrantLock;
  * 1. Deletes all existing tables in the database.
  * 2. Recreates the database tables based on the initial schema.
  * 3. Inserts default values into the newly created tables.
- * 4. Deletes all existing image files from the working image folder (images/).
- * 5. Copies all image files from the backup folder (images_resetDB/) into the working image folder.
+ * 4. Makes the working image folder (images/) hold the image files of the backup folder (images_resetDB/),
+ *    through its ImageStore (see ImageStore.copyAllFrom): each distinct image is copied once, and images the
+ *    backup folder does not have are removed. The folder is not wiped first, so the store and the thumbnails
+ *    are kept. The backup folder is only read.
+ * 5. Copies the thumbnails of the backup folder too, and creates any that are missing (see SetThumbnails).
  */
 
 public class SetDatabase {
@@ -46,8 +51,8 @@ public class SetDatabase {
         setDB.clearTables(); // clear all tables in the tables array from database if they are existing
         setDB.initializeTable();//create and initialize databse and tables
         setDB.queryTableAfterInitilization();
-        deleteFilesInFolder(imageWorkingFolderPath);
-        copyFolderContents(imageBackupFolderPath, imageWorkingFolderPath);
+        copyBackupImages(); // replaces the working images, no need to delete them first
+        resetThumbnails();
 
     }
 
@@ -165,6 +170,22 @@ public class SetDatabase {
         }
     }
 
+    // Copies the images of the backup folder into the working folder's store (see ImageStore.copyAllFrom).
+    private static void copyBackupImages() throws IOException {
+        int copied = ImageStore.of(imageWorkingFolderPath).copyAllFrom(imageBackupFolderPath);
+        System.out.println("Copied " + copied + " images from: " + imageBackupFolderPath + " → " + imageWorkingFolderPath);
+    }
+
+    // Copies the backup thumbnails (copied after the images, so they count as up to date), then creates the missing ones
+    private static void resetThumbnails() throws IOException {
+        Path backupThumbnails = imageBackupFolderPath.resolve(StorageLocation.thumbnailSubfolder);
+        if (Files.exists(backupThumbnails)) {
+            copyFolderContents(backupThumbnails, imageWorkingFolderPath.resolve(StorageLocation.thumbnailSubfolder));
+        }
+        int generated = ThumbnailGenerator.generateAll(imageWorkingFolderPath);
+        System.out.println("Created thumbnails of " + generated + " images in: " + imageWorkingFolderPath);
+    }
+
     // Recursively deletes all files in a folder
     public static void deleteFilesInFolder(Path folder) throws IOException {
         if (Files.exists(folder)) {
@@ -20,6 +20,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * 2. Ensures that all required order-related folders exist:
  *    - The main orders folder (`orders/`)
  *    - Subfolders for each order state: `ordered/`, `progressing/`, and `collected/`
+ *    - The subfolder for the order journal: `journal/`
  * 3. Creates the orderCounter.txt file inside the 'orders/' folder if it does not already exist, initializing it to "0".
  *   - The `orderCounter.txt`
  *
@@ -35,7 +36,8 @@ public class SetOrderFileSystem {
             StorageLocation.ordersPath,
             StorageLocation.orderedPath,
             StorageLocation.progressingPath,
-            StorageLocation.collectedPath
+            StorageLocation.collectedPath,
+            StorageLocation.journalPath
     };
 
     public static void main(String[] args) throws IOException {
@@ -0,0 +1,36 @@
+package ci553.happyshop.systemSetup;
+
+import ci553.happyshop.storageAccess.ThumbnailGenerator;
+import ci553.happyshop.utility.StorageLocation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * This class creates the thumbnails (pre-scaled copies) of all product images, see ThumbnailGenerator.
+ *
+ * New images get their thumbnails when the warehouse adds them (ImageFileManager.copyFileToDestination),
+ * so this class is only needed for images that were put into the folders directly, e.g. the images that
+ * came with the project, or after ThumbnailGenerator.thumbnailSizes has been changed.
+ *
+ * It performs the following actions for the working image folder (images/) and the backup folder (images_resetDB/):
+ * 1. Creates the thumbnails subfolder if it does not exist.
+ * 2. Creates the thumbnails of every image that has none, or only older ones. Up-to-date thumbnails are kept,
+ *    so running it again is quick.
+ *
+ * SetDatabase copies the backup thumbnails together with the images when it resets the database.
+ */
+
+public class SetThumbnails {
+    private static Path[] imageFolderPaths = {
+            StorageLocation.imageFolderPath,
+            StorageLocation.imageResetFolderPath
+    };
+
+    public static void main(String[] args) throws IOException {
+        for (Path folder : imageFolderPaths) {
+            int generated = ThumbnailGenerator.generateAll(folder);
+            System.out.println("Created thumbnails of " + generated + " images in: " + folder);
+        }
+    }
+}
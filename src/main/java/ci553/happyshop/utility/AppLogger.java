@@ -0,0 +1,154 @@
+package ci553.happyshop.utility;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A small levelled, asynchronous logger used instead of System.out.println in the
+ * storageAccess, orderManagement and client packages.
+ *
+ * Why not println:
+ * - System.out is synchronized, so every println from a busy thread (e.g., DerbyRW building a product
+ *   from every row of a search result) waits for the console. Under load that is the most expensive part of the query.
+ * - Diagnostic output could not be switched off.
+ *
+ * How it works:
+ * - Each message has a level: DEBUG < INFO < WARN < ERROR. Messages below the current level are dropped
+ *   straight away, before the message string is even built if the Supplier overloads are used.
+ * - Messages that are logged are put into a bounded queue, and a single daemon thread writes them to the console.
+ *   The calling thread never waits for the console. If the queue is full the message is dropped and counted
+ *   instead of blocking the caller.
+ * - The level is read from the system property happyshop.logLevel (DEBUG, INFO, WARN, ERROR or OFF),
+ *   default INFO, and can be changed at runtime with setLevel().
+ *
+ * Example Usage:
+ *     private static final AppLogger log = AppLogger.getLogger(DerbyRW.class);
+ *     log.debug(() -> "Product " + id + " found");      // message only built when debug is enabled
+ *     if (log.isDebugEnabled()) { ... extra diagnostic query ... }
+ *     log.warn("Database update error, update failed", e);
+ */
+
+public class AppLogger {
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile Level level = parseLevel(System.getProperty("happyshop.logLevel"));
+    private static final BlockingQueue<LogRecord> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong droppedCount = new AtomicLong(0);    // all messages dropped since startup
+    private static final AtomicLong unreportedDrops = new AtomicLong(0); // dropped since the last "were dropped" line
+
+    static {
+        Thread writer = new Thread(AppLogger::writeLoop, "app-logger");
+        writer.setDaemon(true); // must not keep the JVM alive when the application exits
+        writer.start();
+        // write whatever is still queued when the JVM shuts down
+        Runtime.getRuntime().addShutdownHook(new Thread(AppLogger::drain, "app-logger-flush"));
+    }
+
+    private final String name;
+
+    private AppLogger(String name) {
+        this.name = name;
+    }
+
+    //returns a logger that tags its messages with the simple name of the class
+    public static AppLogger getLogger(Class<?> clazz) {
+        return new AppLogger(clazz.getSimpleName());
+    }
+
+    public static void setLevel(Level newLevel) { level = newLevel; }
+    public static Level getLevel() { return level; }
+    //the number of messages dropped because the queue was full, since startup
+    public static long getDroppedCount() { return droppedCount.get(); }
+
+    public boolean isDebugEnabled() { return isEnabled(Level.DEBUG); }
+    public boolean isEnabled(Level msgLevel) { return msgLevel.compareTo(level) >= 0 && msgLevel != Level.OFF; }
+
+    public void debug(String msg) { log(Level.DEBUG, msg, null); }
+    public void debug(Supplier<String> msg) { if (isEnabled(Level.DEBUG)) log(Level.DEBUG, msg.get(), null); }
+    public void info(String msg) { log(Level.INFO, msg, null); }
+    public void info(Supplier<String> msg) { if (isEnabled(Level.INFO)) log(Level.INFO, msg.get(), null); }
+    public void warn(String msg) { log(Level.WARN, msg, null); }
+    public void warn(String msg, Throwable t) { log(Level.WARN, msg, t); }
+    public void error(String msg) { log(Level.ERROR, msg, null); }
+    public void error(String msg, Throwable t) { log(Level.ERROR, msg, t); }
+
+    private void log(Level msgLevel, String msg, Throwable t) {
+        if (!isEnabled(msgLevel)) {
+            return;
+        }
+        LogRecord record = new LogRecord(System.currentTimeMillis(), msgLevel, Thread.currentThread().getName(), name, msg, t);
+        if (!queue.offer(record)) {
+            droppedCount.incrementAndGet();
+            unreportedDrops.incrementAndGet();
+        }
+    }
+
+    // Run by the writer thread: waits for a message, then writes everything that is queued in one go.
+    private static void writeLoop() {
+        ArrayList<LogRecord> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private static void drain() {
+        ArrayList<LogRecord> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        write(batch);
+    }
+
+    private static void write(ArrayList<LogRecord> batch) {
+        PrintStream out = System.out;
+        long dropped = unreportedDrops.getAndSet(0);
+        if (dropped > 0) {
+            out.println("[AppLogger] " + dropped + " log messages were dropped, the queue was full");
+        }
+        for (LogRecord record : batch) {
+            PrintStream stream = record.level.compareTo(Level.WARN) >= 0 ? System.err : out;
+            stream.println(record.format());
+            if (record.throwable != null) {
+                record.throwable.printStackTrace(stream);
+            }
+        }
+        out.flush();
+    }
+
+    private static Level parseLevel(String value) {
+        if (value == null || value.isBlank()) {
+            return Level.INFO;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return Level.INFO;
+        }
+    }
+
+    // a message waiting to be written, formatted on the writer thread
+    private record LogRecord(long timeMillis, Level level, String threadName, String loggerName,
+                             String message, Throwable throwable) {
+        String format() {
+            return String.format("%s %-5s [%s] %s - %s", TIME_FORMAT.format(Instant.ofEpochMilli(timeMillis)),
+                    level, threadName, loggerName, message);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package ci553.happyshop.utility;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * FxBatchDispatcher collects changes coming from any thread and applies them in batches on the
+ * JavaFX Application Thread, rendering only once per batch.
+ *
+ * Why: during a checkout burst OrderHub sends an event for every single order. Rendering the
+ * order list for each of them (and doing it on whatever thread sent the event) swamps the UI thread.
+ *
+ * How it works:
+ * - submit(change) only adds the change to a lock-free queue, so it is cheap for the sending thread.
+ * - The first change of a batch schedules one flush, at most maxLatencyMillis later.
+ *   Changes submitted before the flush runs join the same batch; no further flush is scheduled for them.
+ * - The flush runs on the JavaFX Application Thread: it applies every queued change in the order
+ *   they were submitted, then calls render once.
+ * So the display is updated at most once per maxLatencyMillis, and never more than maxLatencyMillis late.
+ * With a maxLatencyMillis of 0 the flush is handed to Platform.runLater straight away,
+ * which still merges all changes that arrive before the JavaFX thread gets to it.
+ *
+ * Example Usage:
+ *     FxBatchDispatcher dispatcher = new FxBatchDispatcher(FxBatchDispatcher.defaultMaxLatencyMillis, this::display);
+ *     dispatcher.submit(() -> ordersMap.put(orderId, state)); // from any thread
+ */
+
+public class FxBatchDispatcher {
+    // how long a change may wait before it is shown, about two frames at 60 fps
+    public static long defaultMaxLatencyMillis = 33;
+
+    // one timer thread shared by all dispatchers, it only hands flushes over to the JavaFX thread
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fx-batch-dispatcher");
+        thread.setDaemon(true); // must not keep the JVM alive when the application exits
+        return thread;
+    });
+
+    private final long maxLatencyMillis;
+    private final Runnable render;
+    private final ConcurrentLinkedQueue<Runnable> pendingChanges = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    /**
+     * @param maxLatencyMillis the longest time a submitted change waits before it is applied and rendered
+     * @param render           called on the JavaFX Application Thread once after each batch of changes
+     */
+    public FxBatchDispatcher(long maxLatencyMillis, Runnable render) {
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.render = render;
+    }
+
+    //for changes that update the display themselves, e.g. changes to a list shown in a ListView
+    public FxBatchDispatcher(long maxLatencyMillis) {
+        this(maxLatencyMillis, () -> { });
+    }
+
+    //queues a change to be applied on the JavaFX Application Thread, can be called from any thread
+    public void submit(Runnable change) {
+        pendingChanges.add(change);
+        if (flushScheduled.compareAndSet(false, true)) { // only the first change of a batch schedules the flush
+            if (maxLatencyMillis <= 0) {
+                Platform.runLater(this::flush);
+            } else {
+                timer.schedule(() -> Platform.runLater(this::flush), maxLatencyMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Runs on the JavaFX Application Thread.
+    private void flush() {
+        // Cleared before draining: a change submitted from now on schedules the next flush,
+        // a change submitted before is drained by this one.
+        flushScheduled.set(false);
+        Runnable change;
+        boolean applied = false;
+        while ((change = pendingChanges.poll()) != null) {
+            change.run();
+            applied = true;
+        }
+        if (applied) {
+            render.run();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ci553.happyshop.utility;
+
+import ci553.happyshop.storageAccess.ImageFileManager;
+import ci553.happyshop.storageAccess.ImageStore;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ImageCache keeps decoded, pre-scaled product images, shared by all views (CustomerView, WarehouseView).
+ *
+ * Why: a ListView calls its cell factory every time a row scrolls into view. Creating a new Image there
+ * reads and decodes the full JPEG from the images folder on the JavaFX Application Thread, again and again
+ * for the same product, which makes scrolling through a long search result stutter.
+ *
+ * How it works:
+ * - Images are kept by content and size (e.g. "3f5a...@50x45"), scaled to that size when they are decoded,
+ *   so a thumbnail only keeps the pixels it shows. The content is the image's hash in the ImageStore, so products
+ *   sharing a picture share one decoded image; an image that is not in the store is kept by its name
+ *   (e.g. "0001.jpg@50x45"). The file decoded is the pre-generated thumbnail of that size if there is one
+ *   (see ImageFileManager.imageUri), so usually only a few KB are read.
+ * - load(imageView, imageName, width, height) shows a cached image straight away. Otherwise it shows the
+ *   placeholder (imageHolder.jpg) and starts decoding the image in the background (JavaFX background loading);
+ *   the placeholder is swapped for the image once it is decoded. If the ImageView has meanwhile been given
+ *   another image (the cell was reused for another product), the swap is skipped.
+ * - At most maxSize images are kept; the least recently used one is dropped when a new image is added.
+ * - invalidate(imageName) drops all sizes of an image, ImageFileManager calls it when an image file
+ *   is replaced or deleted, so the next load reads the new file.
+ *
+ * Example Usage:
+ *     ImageView ivPro = new ImageView();
+ *     ImageCache.load(ivPro, product.getProductImageName(), 50, 45);
+ */
+
+public class ImageCache {
+    public static int maxSize = 500; // the most images kept, about 9 KB each at 50x45
+    public static String placeholderImage = "imageHolder.jpg"; // from the resources folder
+
+    // key -> image, in access order for the LRU, guarded by itself
+    private static final LinkedHashMap<String, Image> images = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Image> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * Shows a product image in the ImageView, from the cache if possible.
+     * Must be called on the JavaFX Application Thread.
+     * @param imageName the file name in the images folder (e.g. "0001.jpg")
+     */
+    public static void load(ImageView imageView, String imageName, double width, double height) {
+        String hash = ImageStore.of(StorageLocation.imageFolderPath).hashOf(imageName);
+        String key = key(hash != null ? hash : imageName, width, height);
+        imageView.setUserData(key); // which image this ImageView shows now
+        Image image = get(key, imageName, width, height);
+        if (image.getProgress() >= 1 && !image.isError()) {
+            imageView.setImage(image);
+            return;
+        }
+        if (image.isError()) { // e.g. the file is missing
+            remove(key);
+            imageView.setImage(placeholder(width, height));
+            return;
+        }
+        imageView.setImage(placeholder(width, height));
+        image.progressProperty().addListener((obs, oldProgress, progress) -> {
+            if (progress.doubleValue() >= 1 && key.equals(imageView.getUserData())) {
+                if (image.isError()) {
+                    remove(key);
+                } else {
+                    imageView.setImage(image);
+                }
+            }
+        });
+    }
+
+    //Drops all sizes of an image kept by its name, so it is read again from the images folder next time.
+    //An image kept by its hash needs no invalidating: a changed image has a new hash.
+    public static void invalidate(String imageName) {
+        String prefix = imageName + "@";
+        synchronized (images) {
+            images.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
+    //Drops every image, so each test starts with an empty cache.
+    static void clear() {
+        synchronized (images) {
+            images.clear();
+        }
+    }
+
+    private static void remove(String key) {
+        synchronized (images) {
+            images.remove(key);
+        }
+    }
+
+    private static Image get(String key, String imageName, double width, double height) {
+        synchronized (images) {
+            Image image = images.get(key);
+            if (image == null) {
+                // the pre-scaled thumbnail if there is one, otherwise the full-size image
+                String imageUri = ImageFileManager.imageUri(imageName, (int) width, (int) height);
+                image = new Image(imageUri, width, height, true, true, true); // decoded in the background
+                images.put(key, image);
+            }
+            return image;
+        }
+    }
+
+    private static Image placeholder(double width, double height) {
+        String key = key(placeholderImage, width, height) + "#placeholder";
+        synchronized (images) {
+            return images.computeIfAbsent(key, k -> new Image(placeholderImage, width, height, true, true));
+        }
+    }
+
+    private static String key(String imageName, double width, double height) {
+        return imageName + "@" + (int) width + "x" + (int) height;
+    }
+}
@@ -0,0 +1,115 @@
+package ci553.happyshop.utility;
+
+import ci553.happyshop.orderManagement.OrderState;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.util.Callback;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * An ObservableList of (orderId, state) entries, kept sorted by orderId, for showing orders in a ListView.
+ *
+ * The OrderTracker and the picker used to rebuild one big TextArea string from all orders on every change.
+ * A ListView only creates cells for the rows that are visible, and it only redraws what a list change touches,
+ * so this class changes the list with targeted operations instead of replacing its content:
+ * - put(orderId, state):  finds the row by binary search (O(log n)), then either sets it or inserts a new row.
+ * - remove(orderId):      finds the row by binary search and removes it.
+ * - setAll(orders):       replaces all rows in one list change, used for snapshots.
+ *
+ * Like every list shown by JavaFX controls, it must only be changed on the JavaFX Application Thread.
+ * cellFactory(gap) returns the cell factory that shows a row as "orderId    state", shared by the views.
+ *
+ * Example Usage:
+ *     SortedOrderList orderList = new SortedOrderList();
+ *     ListView<SortedOrderList.Entry> lvOrders = new ListView<>(orderList.getItems());
+ *     lvOrders.setCellFactory(SortedOrderList.cellFactory(5));
+ *     orderList.put(12, OrderState.Ordered);
+ */
+
+public class SortedOrderList {
+    //one row of the list
+    public record Entry(int orderId, OrderState state) {}
+
+    private final ObservableList<Entry> items = FXCollections.observableArrayList();
+    private final ObservableList<Entry> readOnlyItems = FXCollections.unmodifiableObservableList(items);
+
+    //the rows, sorted by orderId, to be shown in a ListView. Only changed through this class.
+    public ObservableList<Entry> getItems() {
+        return readOnlyItems;
+    }
+
+    //adds the order, or changes its state if it is already in the list
+    public void put(int orderId, OrderState state) {
+        int index = indexOf(orderId);
+        if (index >= 0) {
+            if (items.get(index).state() != state) {
+                items.set(index, new Entry(orderId, state));
+            }
+        } else {
+            items.add(-index - 1, new Entry(orderId, state)); // insertion point keeps the list sorted
+        }
+    }
+
+    //removes the order, returns false if it was not in the list
+    public boolean remove(int orderId) {
+        int index = indexOf(orderId);
+        if (index < 0) {
+            return false;
+        }
+        items.remove(index);
+        return true;
+    }
+
+    //replaces all rows with the given orders (already sorted by orderId), as one list change
+    public void setAll(SortedMap<Integer, OrderState> orders) {
+        ArrayList<Entry> entries = new ArrayList<>(orders.size());
+        for (Map.Entry<Integer, OrderState> order : orders.entrySet()) {
+            entries.add(new Entry(order.getKey(), order.getValue()));
+        }
+        items.setAll(entries);
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    //a ListView cell factory showing each row as the orderId, gap spaces, then the state
+    public static Callback<ListView<Entry>, ListCell<Entry>> cellFactory(int gap) {
+        String separator = " ".repeat(gap);
+        return param -> new ListCell<>() {
+            @Override
+            protected void updateItem(Entry entry, boolean empty) {
+                super.updateItem(entry, empty);
+                if (empty || entry == null) {
+                    setText(null);
+                } else {
+                    setText(entry.orderId() + separator + entry.state());
+                }
+            }
+        };
+    }
+
+    // Binary search by orderId. Returns the index of the row if found,
+    // otherwise (-(insertion point) - 1), like Collections.binarySearch.
+    private int indexOf(int orderId) {
+        int low = 0;
+        int high = items.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = items.get(mid).orderId();
+            if (midId < orderId) {
+                low = mid + 1;
+            } else if (midId > orderId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
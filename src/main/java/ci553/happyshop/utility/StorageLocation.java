@@ -15,6 +15,12 @@ import java.nio.file.Paths;
  *    - imageResetFolder / imageResetFolderPath:
  *         A backup folder containing original product images.
  *         Used to restore image content when resetting the database.
+ *    - thumbnailSubfolder:
+ *         The subfolder of each image folder (images/thumbnails, images_resetDB/thumbnails) holding
+ *         pre-scaled copies of its images, see ThumbnailGenerator.
+ *    - imageStoreSubfolder:
+ *         The subfolder of each image folder (images/store, images_resetDB/store) holding every distinct image once,
+ *         named by the hash of its content; the image names are links to these files, see ImageStore.
  *
  * 2. Order Management:
  *    - ordersFolder / ordersPath:
@@ -25,6 +31,17 @@ import java.nio.file.Paths;
  *         Subfolder to store orders in the "Progressing" state (e.g., being prepared by a picker).
  *    - collectedPath:
  *         Subfolder to store orders in the "Collected" state (e.g., customer collected).
+ *    - journalPath:
+ *         Subfolder for the order journal, used instead of the three state folders when the
+ *         JournalOrderStore is enabled (see OrderStoreFactory).
+ *
+ *    - orderStateTableFile / orderStateTablePath:
+ *         A memory-mapped file (orders/orderStates.dat) with the state and state times of every order,
+ *         one fixed-width record per orderId. OrderHub loads the open orders from it at startup, instead of
+ *         listing the folders, while it still matches the order folders.
+ *    - journalStateTablePath:
+ *         The order state table of the journal (orders/journal/orderStates.dat). Each storage engine has its own
+ *         table, as they do not share their orders.
  *
  * 3. Order ID Tracking:
  *    - orderCounterFile / orderCounterPath:
@@ -54,12 +71,24 @@ public class StorageLocation {
     public static final String imageResetFolder = "images_resetDB";
     public static final Path imageResetFolderPath = Paths.get(imageResetFolder);
 
+    // Thumbnail subfolder of an image folder, e.g. images/thumbnails
+    public static final String thumbnailSubfolder = "thumbnails";
+
+    // Content-addressed image store subfolder of an image folder, e.g. images/store
+    public static final String imageStoreSubfolder = "store";
+
     // Orders folders and their Path
     public static final String ordersFolder = "orders";
     public static final Path ordersPath = Paths.get(ordersFolder);
     public static final Path orderedPath = ordersPath.resolve("ordered");//orders/ordered to store orders at Ordered state
     public static final Path progressingPath = ordersPath.resolve("progressing");// orders/progressing to store orders at Progressing state
     public static final Path collectedPath = ordersPath.resolve("collected");//orders/collected to store orders at Collected state
+    public static final Path journalPath = ordersPath.resolve("journal");//orders/journal to store the order journal segments
+
+    //Order state table File and its Path, ie orders/orderStates.dat
+    public static final String orderStateTableFile = "orderStates.dat";
+    public static final Path orderStateTablePath = ordersPath.resolve(orderStateTableFile);
+    public static final Path journalStateTablePath = journalPath.resolve(orderStateTableFile);
 
     //OrderCounter File and its Path, ie orders/orderCounter.txt
     public static final String orderCounterFile = "orderCounter.txt";
@@ -0,0 +1,28 @@
+package ci553.happyshop.catalogue;
+
+import ci553.happyshop.orderManagement.OrderState;
+
+import java.util.ArrayList;
+
+/**
+ * Orders and products for tests, so the tests of different stores and caches build them the same way.
+ */
+public final class TestCatalogue {
+    private TestCatalogue() {
+    }
+
+    //A new order with two products, ordered at 2025-01-01 09:00:00.
+    public static Order order(int orderId) {
+        ArrayList<Product> products = new ArrayList<>();
+        products.add(product("0001", "40 inch TV", 269.00, 2));
+        products.add(product("0002", "DAB radio", 29.99, 1));
+        return new Order(orderId, OrderState.Ordered, "2025-01-01 09:00:00", products);
+    }
+
+    //A product with 100 in stock, its image named after its ID.
+    public static Product product(String productId, String description, double unitPrice, int orderedQuantity) {
+        Product product = new Product(productId, description, productId + ".jpg", unitPrice, 100);
+        product.setOrderedQuantity(orderedQuantity);
+        return product;
+    }
+}
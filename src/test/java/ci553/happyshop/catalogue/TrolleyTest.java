@@ -0,0 +1,90 @@
+package ci553.happyshop.catalogue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the customer trolley: the same product is merged into one entry, the products stay in productId order,
+ * and the trolley is not changed through the products passed in or handed out.
+ */
+class TrolleyTest {
+
+    @Test
+    void sameProductIsMergedInProductIdOrder() {
+        Trolley trolley = new Trolley();
+        trolley.add(product("0003", 1));
+        trolley.add(product("0001", 2));
+        trolley.add(product("0003", 4));
+
+        assertEquals(2, trolley.size());
+        assertEquals(List.of("0001", "0003"), productIds(trolley.toPurchaseList()));
+        assertEquals(5, trolley.toPurchaseList().get(1).getOrderedQuantity());
+    }
+
+    @Test
+    void removeAndUpdateQuantity() {
+        Trolley trolley = new Trolley();
+        trolley.add(product("0001", 1));
+        trolley.add(product("0002", 1));
+
+        trolley.updateQuantity("0002", 7);
+        trolley.updateQuantity("0009", 3); // not in the trolley, ignored
+        trolley.remove("0001");
+
+        ArrayList<Product> purchaseList = trolley.toPurchaseList();
+        assertEquals(List.of("0002"), productIds(purchaseList));
+        assertEquals(7, purchaseList.get(0).getOrderedQuantity());
+
+        trolley.clear();
+        assertTrue(trolley.isEmpty());
+    }
+
+    @Test
+    void trolleyKeepsItsOwnCopies() {
+        Trolley trolley = new Trolley();
+        Product searchResult = product("0001", 1);
+        trolley.add(searchResult);
+        searchResult.setOrderedQuantity(9); // e.g. the customer picks the same search result again
+
+        ArrayList<Product> purchaseList = trolley.toPurchaseList();
+        purchaseList.get(0).setOrderedQuantity(5);
+
+        assertEquals(1, trolley.getProducts().iterator().next().getOrderedQuantity());
+        assertThrows(UnsupportedOperationException.class, () -> trolley.getProducts().clear());
+    }
+
+    @Test
+    void removePurchasedKeepsWhatWasAddedDuringTheCheckout() {
+        Trolley trolley = new Trolley();
+        trolley.add(product("0001", 2));
+        trolley.add(product("0002", 1));
+        trolley.add(product("0003", 1));
+        ArrayList<Product> purchaseList = trolley.toPurchaseList();
+
+        // the customer keeps shopping while the purchase runs
+        trolley.add(product("0001", 3));
+        trolley.add(product("0004", 1));
+        trolley.remove("0003");
+
+        trolley.removePurchased(purchaseList);
+
+        ArrayList<Product> left = trolley.toPurchaseList();
+        assertEquals(List.of("0001", "0004"), productIds(left));
+        assertEquals(3, left.get(0).getOrderedQuantity());
+        assertEquals(1, left.get(1).getOrderedQuantity());
+    }
+
+    private static Product product(String productId, int orderedQuantity) {
+        Product product = new Product(productId, "Product " + productId, productId + ".jpg", 1.00, 100);
+        product.setOrderedQuantity(orderedQuantity);
+        return product;
+    }
+
+    private static List<String> productIds(List<Product> products) {
+        return products.stream().map(Product::getProductId).toList();
+    }
+}
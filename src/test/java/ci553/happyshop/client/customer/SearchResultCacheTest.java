@@ -0,0 +1,115 @@
+package ci553.happyshop.client.customer;
+
+import ci553.happyshop.catalogue.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the search results cache of the customer client: cached results are reused until they expire,
+ * and a longer keyword is answered by filtering the results of a cached prefix, unless that could change the results.
+ */
+class SearchResultCacheTest {
+    private final long defaultTtlMillis = SearchResultCache.ttlMillis;
+    private final int defaultMaxSize = SearchResultCache.maxSize;
+
+    @AfterEach
+    void restoreSettings() {
+        SearchResultCache.ttlMillis = defaultTtlMillis;
+        SearchResultCache.maxSize = defaultMaxSize;
+    }
+
+    @Test
+    void resultsAreReusedIgnoringCase() {
+        SearchResultCache cache = new SearchResultCache();
+        ArrayList<Product> results = products("USB drive");
+        cache.put("USB", results);
+
+        assertSame(results, cache.get("usb"));
+        assertNull(cache.get("radio"));
+        cache.clear();
+        assertNull(cache.get("usb"));
+    }
+
+    @Test
+    void longerKeywordIsFilteredFromACachedPrefix() {
+        SearchResultCache cache = new SearchResultCache();
+        cache.put("us", products("USB drive", "USB3 hub", "Bus pass"));
+
+        assertEquals(List.of("USB3 hub"), descriptions(cache.get("usb3")));
+        assertEquals(List.of("USB drive", "USB3 hub"), descriptions(cache.get("usb"))); // "us" is still cached
+        assertEquals(List.of(), descriptions(cache.get("usb3 x")));
+    }
+
+    @Test
+    void prefixIsNotUsedWhenTheResultsCouldDiffer() {
+        SearchResultCache cache = new SearchResultCache();
+        cache.put("001", products("0011 cable", "0012 cable"));
+        assertNull(cache.get("0012"));  // could be a product ID
+        assertNull(cache.get("001%"));  // a LIKE pattern
+        assertNull(cache.get("001_"));
+
+        SearchResultCache idCache = new SearchResultCache();
+        idCache.put("0011", new ArrayList<>(List.of(product("0011", "40 inch TV"))));
+        assertNull(idCache.get("0011 t")); // "0011" was a product ID match, not a description match
+    }
+
+    @Test
+    void narrowingDoesNotDependOnTheLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr")); // "I".toLowerCase() is the dotless "ı" here
+        try {
+            SearchResultCache cache = new SearchResultCache();
+            cache.put("hd", products("HDMI CABLE", "HD RADIO"));
+            assertEquals(List.of("HDMI CABLE"), descriptions(cache.get("hdmi")));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void expiredResultsAreNotUsed() throws InterruptedException {
+        SearchResultCache.ttlMillis = 20;
+        SearchResultCache cache = new SearchResultCache();
+        cache.put("usb", products("USB drive"));
+        Thread.sleep(50);
+
+        assertNull(cache.get("usb"));
+        assertNull(cache.get("usb d"));
+    }
+
+    @Test
+    void leastRecentlyUsedKeywordIsDropped() {
+        SearchResultCache.maxSize = 2;
+        SearchResultCache cache = new SearchResultCache();
+        cache.put("tv", products("40 inch TV"));
+        cache.put("radio", products("DAB radio"));
+        cache.get("tv");
+        cache.put("hub", products("USB3 hub"));
+
+        assertNotNull(cache.get("tv"));
+        assertNull(cache.get("radio"));
+        assertNotNull(cache.get("hub"));
+    }
+
+    private static ArrayList<Product> products(String... descriptions) {
+        ArrayList<Product> products = new ArrayList<>();
+        for (int i = 0; i < descriptions.length; i++) {
+            products.add(product(String.format("%04d", i + 1), descriptions[i]));
+        }
+        return products;
+    }
+
+    private static Product product(String productId, String description) {
+        return new Product(productId, description, productId + ".jpg", 1.00, 100);
+    }
+
+    private static List<String> descriptions(List<Product> products) {
+        return products.stream().map(Product::getProductDescription).toList();
+    }
+}
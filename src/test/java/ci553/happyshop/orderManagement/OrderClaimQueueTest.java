@@ -0,0 +1,152 @@
+package ci553.happyshop.orderManagement;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the picker claim queue: orders are claimed oldest first and by one picker only,
+ * also when many pickers claim at the same time, and released orders are claimed next.
+ */
+class OrderClaimQueueTest {
+
+    @Test
+    void ordersAreClaimedOldestFirst() {
+        OrderClaimQueue queue = new OrderClaimQueue();
+        Object picker = new Object();
+        queue.offer(1);
+        queue.offer(2);
+
+        assertEquals(1, queue.claim(picker));
+        assertEquals(2, queue.claim(picker));
+        assertEquals(0, queue.claim(picker)); // nothing waiting
+    }
+
+    @Test
+    void onlyTheOwnerCanReleaseOrComplete() {
+        OrderClaimQueue queue = new OrderClaimQueue();
+        Object picker = new Object();
+        Object otherPicker = new Object();
+        queue.offer(1);
+        queue.offer(2);
+        queue.claim(picker);
+
+        assertTrue(queue.isClaimedBy(1, picker));
+        assertFalse(queue.isClaimedBy(1, otherPicker));
+        assertFalse(queue.release(1, otherPicker));
+        assertFalse(queue.complete(1, otherPicker));
+
+        assertTrue(queue.complete(1, picker));
+        assertFalse(queue.isClaimedBy(1, picker));
+        assertFalse(queue.complete(1, picker)); // already completed
+        assertEquals(2, queue.claim(otherPicker));
+    }
+
+    @Test
+    void releasedOrderIsClaimedNext() {
+        OrderClaimQueue queue = new OrderClaimQueue();
+        Object picker = new Object();
+        Object otherPicker = new Object();
+        queue.offer(1);
+        queue.offer(2);
+        queue.claim(picker);
+
+        assertTrue(queue.release(1, picker));
+        assertFalse(queue.isClaimedBy(1, picker));
+        assertEquals(1, queue.claim(otherPicker)); // ahead of order 2
+        assertTrue(queue.isClaimedBy(1, otherPicker));
+    }
+
+    @Test
+    void staleCopyOfAClaimedOrderIsSkipped() {
+        OrderClaimQueue queue = new OrderClaimQueue();
+        Object picker = new Object();
+        queue.offer(1);
+        queue.offer(1); // e.g. offered again while it was already waiting
+        queue.offer(2);
+
+        assertEquals(1, queue.claim(picker));
+        assertEquals(2, queue.claim(new Object()));
+        assertEquals(0, queue.claim(new Object()));
+    }
+
+    @Test
+    void concurrentPickersClaimEachOrderOnce() throws InterruptedException {
+        int orders = 20_000;
+        int pickers = 8;
+        OrderClaimQueue queue = new OrderClaimQueue();
+        Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+        AtomicInteger claimCount = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger(); // assertions in the picker threads would not fail the test
+        CountDownLatch start = new CountDownLatch(1);
+
+        // half the orders are waiting before the pickers start, the rest are offered while they claim
+        for (int orderId = 1; orderId <= orders / 2; orderId++) {
+            queue.offer(orderId);
+        }
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> {
+            awaitQuietly(start);
+            for (int orderId = orders / 2 + 1; orderId <= orders; orderId++) {
+                queue.offer(orderId);
+            }
+        }));
+        for (int i = 0; i < pickers; i++) {
+            threads.add(new Thread(() -> {
+                Object picker = new Object();
+                awaitQuietly(start);
+                int idleRounds = 0;
+                while (idleRounds < 1_000) {
+                    int orderId = queue.claim(picker);
+                    if (orderId == 0) {
+                        idleRounds++;
+                        Thread.yield();
+                        continue;
+                    }
+                    idleRounds = 0;
+                    // every tenth order is given back once, another picker has to claim it
+                    if (orderId % 10 == 0 && claimed.add(-orderId)) { // -orderId marks the order as released once
+                        if (!queue.release(orderId, picker)) {
+                            errors.incrementAndGet();
+                        }
+                        released.incrementAndGet();
+                        continue;
+                    }
+                    if (!claimed.add(orderId) || !queue.complete(orderId, picker)) {
+                        errors.incrementAndGet(); // claimed twice, or not owned by this picker
+                    }
+                    claimCount.incrementAndGet();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, errors.get());
+        assertEquals(orders / 10, released.get());
+        assertEquals(orders, claimCount.get());
+        for (int orderId = 1; orderId <= orders; orderId++) {
+            assertTrue(claimed.contains(orderId), "order " + orderId + " never claimed");
+        }
+        assertEquals(0, queue.claim(new Object()));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ci553.happyshop.orderManagement;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the order ID counter: one ID per file update by default, whole blocks of IDs per update in block mode,
+ * and the unused IDs of a block skipped after a restart, so no ID is ever handed out twice.
+ */
+class OrderCounterTest {
+    @TempDir
+    Path dir;
+
+    private Path counterPath;
+
+    @BeforeEach
+    void createCounterFile() throws IOException {
+        counterPath = Files.writeString(dir.resolve("orderCounter.txt"), "0"); // as SetOrderFileSystem creates it
+    }
+
+    @Test
+    void withoutBlocksEveryIdUpdatesTheFile() throws IOException {
+        OrderCounter counter = new OrderCounter(counterPath, 1);
+        assertEquals(1, counter.nextId());
+        assertEquals("1", Files.readString(counterPath));
+        assertEquals(2, counter.nextId());
+        assertEquals("2", Files.readString(counterPath));
+    }
+
+    @Test
+    void blockIsHandedOutFromMemory() throws IOException {
+        OrderCounter counter = new OrderCounter(counterPath, 10);
+        assertEquals(1, counter.nextId());
+        assertEquals("10", Files.readString(counterPath)); // the whole block is reserved at once
+
+        for (int expected = 2; expected <= 10; expected++) {
+            assertEquals(expected, counter.nextId());
+        }
+        assertEquals("10", Files.readString(counterPath)); // no update while the block lasts
+
+        assertEquals(11, counter.nextId()); // the block is used up, the next one is reserved
+        assertEquals("20", Files.readString(counterPath));
+    }
+
+    @Test
+    void unusedIdsAreSkippedAfterARestart() throws IOException {
+        OrderCounter beforeRestart = new OrderCounter(counterPath, 10);
+        assertEquals(1, beforeRestart.nextId());
+        assertEquals(2, beforeRestart.nextId());
+
+        OrderCounter afterRestart = new OrderCounter(counterPath, 10); // e.g. the next run of the application
+        assertEquals(11, afterRestart.nextId()); // 3 to 10 were reserved by the first run, they are never used
+        assertEquals(3, beforeRestart.nextId()); // a second process sharing the file keeps its own block
+    }
+
+    @Test
+    void concurrentCallersNeverGetTheSameId() throws Exception {
+        OrderCounter counter = new OrderCounter(counterPath, 7); // blocks run out while the threads are taking IDs
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        List<Exception> failures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int n = 0; n < 250; n++) {
+                        ids.add(counter.nextId());
+                    }
+                } catch (IOException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(List.of(), failures);
+        assertEquals(2_000, ids.size());
+        for (int id = 1; id <= 2_000; id++) {
+            assertTrue(ids.contains(id), "id " + id + " missing");
+        }
+    }
+
+    @Test
+    void invalidBlockSizeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderCounter(counterPath, 0));
+    }
+}
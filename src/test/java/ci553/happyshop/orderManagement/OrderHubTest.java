@@ -0,0 +1,365 @@
+package ci553.happyshop.orderManagement;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.storageAccess.BatchingOrderWriter;
+import ci553.happyshop.storageAccess.FolderOrderStore;
+import ci553.happyshop.storageAccess.OrderStateTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ci553.happyshop.catalogue.TestCatalogue.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests OrderHub over order folders in a temporary directory: new orders keep their own product list,
+ * a state change is made by one caller only, also when many pickers change the same order at once,
+ * and a change the store cannot make is undone. At startup the open orders come from the order state table
+ * only while its watermark matches the store, and the watermark is cleared until the next clean shutdown.
+ * Pickers get the details of a new order from the order cache, and from the store once it was evicted.
+ * Observers get every event once, in sequence number order and after OrderHub has released its lock,
+ * and an observer subscribing again is sent only the events it missed, or a snapshot if they are no longer kept.
+ */
+class OrderHubTest {
+    @TempDir
+    Path ordersDir;
+
+    private Path orderedPath;
+    private Path progressingPath;
+    private Path counterPath;
+    private FolderOrderStore store;
+    private OrderStateTable orderStateTable;
+    // set to make the store fail every state change
+    private volatile boolean storeFails = false;
+    private OrderHub hub;
+
+    @BeforeEach
+    void createHub() throws IOException {
+        orderedPath = Files.createDirectories(ordersDir.resolve("ordered"));
+        progressingPath = Files.createDirectories(ordersDir.resolve("progressing"));
+        Path collectedPath = Files.createDirectories(ordersDir.resolve("collected"));
+        counterPath = Files.writeString(ordersDir.resolve("orderCounter.txt"), "0");
+
+        store = new FolderOrderStore(orderedPath, progressingPath, collectedPath, false) {
+            @Override
+            public boolean updateOrderState(int orderId, OrderState oldState, OrderState newState, String dateTime)
+                    throws IOException {
+                if (storeFails) {
+                    throw new IOException("disk full");
+                }
+                return super.updateOrderState(orderId, oldState, newState, dateTime);
+            }
+        };
+        orderStateTable = new OrderStateTable(ordersDir.resolve("orderStates.dat"));
+        hub = new OrderHub(store, new BatchingOrderWriter(store, 16), orderStateTable, new OrderCounter(counterPath, 1));
+    }
+
+    @AfterEach
+    void closeTable() throws IOException {
+        orderStateTable.close();
+    }
+
+    @Test
+    void newOrderKeepsItsOwnCopyOfTheTrolley() throws Exception {
+        ArrayList<Product> trolley = trolley();
+        Order order = hub.newOrder(trolley).get(5, TimeUnit.SECONDS);
+        trolley.clear(); // e.g. the customer goes on shopping
+
+        assertEquals(2, order.getProductList().size());
+        Object picker = new Object();
+        assertEquals(order.getOrderId(), hub.claimNextOrder(picker));
+        String details = hub.getOrderDetailForPicker(order.getOrderId()); // served from the order cache
+        assertTrue(details.contains("40 inch TV"));
+        assertTrue(details.contains("DAB radio"));
+    }
+
+    @Test
+    void onlyOneOfManyConcurrentStateChangesWins() throws Exception {
+        int orderId = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger wins = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> pickers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread picker = new Thread(() -> {
+                try {
+                    start.await();
+                    if (hub.changeOrderStateMoveFile(orderId, OrderState.Progressing)) {
+                        wins.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            });
+            picker.start();
+            pickers.add(picker);
+        }
+        start.countDown();
+        for (Thread picker : pickers) {
+            picker.join();
+        }
+
+        assertEquals(0, failures.get());
+        assertEquals(1, wins.get());
+        assertEquals(OrderState.Progressing, stateOf(orderId));
+        assertTrue(Files.exists(progressingPath.resolve(orderId + ".txt")));
+        assertFalse(Files.exists(orderedPath.resolve(orderId + ".txt")));
+        assertEquals(OrderState.Progressing, orderStateTable.loadOpenOrders().get(orderId));
+    }
+
+    @Test
+    void aChangeTheStoreCannotMakeIsUndone() throws Exception {
+        int orderId = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe(listener);
+
+        storeFails = true;
+        assertThrows(IOException.class, () -> hub.changeOrderStateMoveFile(orderId, OrderState.Progressing));
+        assertEquals(OrderState.Ordered, stateOf(orderId));
+        assertEquals(List.of("StateChanged " + orderId + " Ordered->Progressing",
+                "StateChanged " + orderId + " Progressing->Ordered"), listener.events);
+
+        // claiming fails too, and the order is given back to the queue
+        Object picker = new Object();
+        assertThrows(IOException.class, () -> hub.claimNextOrder(picker));
+        storeFails = false;
+        assertEquals(orderId, hub.claimNextOrder(picker));
+        assertEquals(OrderState.Progressing, stateOf(orderId));
+    }
+
+    @Test
+    void aChangeOfAnOrderMissingFromTheStoreIsUndone() throws Exception {
+        int orderId = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+        Files.delete(orderedPath.resolve(orderId + ".txt")); // e.g. removed by hand
+
+        assertFalse(hub.changeOrderStateMoveFile(orderId, OrderState.Progressing));
+        assertEquals(OrderState.Ordered, stateOf(orderId));
+    }
+
+    @Test
+    void resubscribingReplaysOnlyTheMissedEvents() throws Exception {
+        int first = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe(listener);
+        long lastSeen = listener.snapshotSequenceNumber;
+        hub.unsubscribe(listener);
+
+        int second = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+        hub.changeOrderStateMoveFile(first, OrderState.Progressing);
+        hub.subscribe(listener, lastSeen);
+
+        assertEquals(lastSeen, listener.snapshotSequenceNumber); // no new snapshot
+        assertEquals(List.of("Created " + second + " null->Ordered",
+                "StateChanged " + first + " Ordered->Progressing"), listener.events);
+        assertEquals(List.of(lastSeen + 1, lastSeen + 2), listener.sequenceNumbers);
+
+        hub.subscribe(listener, lastSeen + 2); // nothing missed
+        assertEquals(2, listener.events.size());
+    }
+
+    @Test
+    void resubscribingAfterTheEventsAreDroppedSendsASnapshot() throws Exception {
+        int orderId = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe(listener);
+        long lastSeen = listener.snapshotSequenceNumber;
+        hub.unsubscribe(listener);
+
+        hub.initializeOrderMap(); // loading is not recorded as events, the kept events are dropped
+        hub.subscribe(listener, lastSeen);
+
+        assertTrue(listener.snapshotSequenceNumber > lastSeen);
+        assertEquals(OrderState.Ordered, listener.snapshot.get(orderId));
+        assertTrue(listener.events.isEmpty());
+    }
+
+    @Test
+    void concurrentChangesReachObserversInSequenceNumberOrder() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe(listener);
+        int threads = 4;
+        int ordersPerThread = 10;
+        AtomicInteger failures = new AtomicInteger();
+        List<Thread> customers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread customer = new Thread(() -> {
+                try {
+                    for (int n = 0; n < ordersPerThread; n++) {
+                        int orderId = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+                        hub.changeOrderStateMoveFile(orderId, OrderState.Progressing);
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            });
+            customer.start();
+            customers.add(customer);
+        }
+        for (Thread customer : customers) {
+            customer.join();
+        }
+
+        assertEquals(0, failures.get());
+        List<Long> received = listener.sequenceNumbers;
+        assertEquals(threads * ordersPerThread * 2, received.size());
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals(listener.snapshotSequenceNumber + i + 1, (long) received.get(i)); // each once, none skipped
+        }
+    }
+
+    @Test
+    void eventsAreDeliveredAfterTheLockIsReleased() throws Exception {
+        AtomicInteger blocked = new AtomicInteger();
+        RecordingListener nested = new RecordingListener();
+        OrderEventListener listener = new RecordingListener() {
+            @Override
+            public void onOrderEvent(OrderEvent event) {
+                // another thread subscribing needs the lock, it would wait forever if the lock was still held
+                Thread subscriber = new Thread(() -> hub.subscribe(nested));
+                subscriber.start();
+                try {
+                    subscriber.join(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (subscriber.isAlive()) {
+                    blocked.incrementAndGet();
+                }
+            }
+        };
+        hub.subscribe(listener);
+        int orderId = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+
+        assertEquals(0, blocked.get());
+        assertEquals(OrderState.Ordered, nested.snapshot.get(orderId));
+    }
+
+    @Test
+    void startupUsesTheStateTableWhileItMatchesTheStore() throws Exception {
+        int orderId = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+        orderStateTable.put(99, OrderState.Ordered, ""); // only in the table, shows where the orders came from
+        orderStateTable.setWatermark(store.watermark()); // as at a clean shutdown
+
+        OrderHub restarted = restart();
+        restarted.initializeOrderMap();
+        assertEquals(Set.of(orderId, 99), snapshotOf(restarted).keySet());
+        assertEquals("", orderStateTable.getWatermark(), "cleared until the next clean shutdown");
+    }
+
+    @Test
+    void startupRebuildsTheStateTableOnceTheStoreChanged() throws Exception {
+        int orderId = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+        orderStateTable.put(99, OrderState.Ordered, "");
+        orderStateTable.setWatermark(store.watermark());
+        Thread.sleep(10); // a later last-modified time of the folder, also on coarse file systems
+        Files.copy(orderedPath.resolve(orderId + ".txt"), orderedPath.resolve("7.txt")); // e.g. restored by hand
+
+        OrderHub restarted = restart();
+        restarted.initializeOrderMap();
+        assertEquals(Set.of(orderId, 7), snapshotOf(restarted).keySet());
+        assertEquals(Map.of(orderId, OrderState.Ordered, 7, OrderState.Ordered), orderStateTable.loadOpenOrders());
+
+        restarted = restart(); // a crash: no clean shutdown saved the watermark, so the table is rebuilt again
+        orderStateTable.put(99, OrderState.Ordered, "");
+        restarted.initializeOrderMap();
+        assertEquals(Set.of(orderId, 7), snapshotOf(restarted).keySet());
+    }
+
+    @Test
+    void pickerDetailsOfANewOrderComeFromTheCache() throws Exception {
+        int orderId = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+        assertEquals("the fuction is only for picker", hub.getOrderDetailForPicker(orderId)); // not progressing yet
+
+        assertEquals(orderId, hub.claimNextOrder(new Object()));
+        Files.delete(progressingPath.resolve(orderId + ".txt")); // proves the store is not read
+        String details = hub.getOrderDetailForPicker(orderId);
+        assertTrue(details.contains("State: Progressing"), details);
+        assertFalse(details.contains("ProgressingDateTime: null"), details); // the cached order follows the change
+    }
+
+    @Test
+    void pickerDetailsOfAnEvictedOrderAreReadFromTheStore() throws Exception {
+        int cacheMaxSize = OrderHub.orderCacheMaxSize;
+        OrderHub.orderCacheMaxSize = 1;
+        try {
+            int first = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId();
+            int second = hub.newOrder(trolley()).get(5, TimeUnit.SECONDS).getOrderId(); // evicts the first
+            Object picker = new Object();
+            assertEquals(first, hub.claimNextOrder(picker));
+            assertEquals(second, hub.claimNextOrder(picker));
+            Files.delete(progressingPath.resolve(second + ".txt")); // the second is served from the cache
+
+            assertTrue(hub.getOrderDetailForPicker(first).contains("Order ID: " + first));
+            assertTrue(hub.getOrderDetailForPicker(second).contains("Order ID: " + second));
+
+            Files.delete(progressingPath.resolve(first + ".txt"));
+            assertThrows(IOException.class, () -> hub.getOrderDetailForPicker(first)); // it was read from the store
+        } finally {
+            OrderHub.orderCacheMaxSize = cacheMaxSize;
+        }
+    }
+
+    // A new OrderHub over the same order folders and state table, as after restarting the application.
+    private OrderHub restart() {
+        return new OrderHub(store, new BatchingOrderWriter(store, 16), orderStateTable, new OrderCounter(counterPath, 1));
+    }
+
+    private static SortedMap<Integer, OrderState> snapshotOf(OrderHub orderHub) {
+        RecordingListener listener = new RecordingListener();
+        orderHub.subscribe(listener);
+        orderHub.unsubscribe(listener);
+        return listener.snapshot;
+    }
+
+    // the state of an order, as seen by an observer subscribing now
+    private OrderState stateOf(int orderId) {
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe(listener);
+        hub.unsubscribe(listener);
+        return listener.snapshot.get(orderId);
+    }
+
+    private static ArrayList<Product> trolley() {
+        ArrayList<Product> trolley = new ArrayList<>();
+        trolley.add(product("0001", "40 inch TV", 269.00, 1));
+        trolley.add(product("0002", "DAB radio", 29.99, 2));
+        return trolley;
+    }
+
+    // Keeps the latest snapshot and every event received after it, as text.
+    static class RecordingListener implements OrderEventListener {
+        volatile long snapshotSequenceNumber = -1;
+        volatile SortedMap<Integer, OrderState> snapshot;
+        final List<Long> sequenceNumbers = new CopyOnWriteArrayList<>();
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onSnapshot(long sequenceNumber, SortedMap<Integer, OrderState> orders) {
+            snapshotSequenceNumber = sequenceNumber;
+            snapshot = orders;
+        }
+
+        @Override
+        public void onOrderEvent(OrderEvent event) {
+            sequenceNumbers.add(event.getSequenceNumber());
+            events.add(event.getType() + " " + event.getOrderId() + " "
+                    + event.getOldState() + "->" + event.getNewState());
+        }
+    }
+}
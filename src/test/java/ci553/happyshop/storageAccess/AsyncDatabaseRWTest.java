@@ -0,0 +1,108 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the non-blocking DatabaseRW for the JavaFX clients: calls run on another thread,
+ * the caller gets its future straight away, and an SQLException arrives as the cause of the failed future.
+ */
+class AsyncDatabaseRWTest {
+    private FakeDatabaseRW database;
+    private AsyncDatabaseRW asyncDatabaseRW;
+
+    @BeforeEach
+    void fillDatabase() {
+        database = new FakeDatabaseRW();
+        database.insertNewProduct("0001", "40 inch TV", 269.00, "0001.jpg", 100);
+        asyncDatabaseRW = new AsyncDatabaseRW(database);
+    }
+
+    @AfterEach
+    void shutdown() {
+        asyncDatabaseRW.shutdown();
+    }
+
+    @Test
+    void callsRunOnAnotherThread() throws Exception {
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        FakeDatabaseRW recordingDatabase = new FakeDatabaseRW() {
+            @Override
+            public synchronized ArrayList<Product> searchProduct(String keyword) throws SQLException {
+                ranOn.set(Thread.currentThread());
+                return super.searchProduct(keyword);
+            }
+        };
+        recordingDatabase.insertNewProduct("0001", "40 inch TV", 269.00, "0001.jpg", 100);
+        AsyncDatabaseRW recording = new AsyncDatabaseRW(recordingDatabase);
+        try {
+            ArrayList<Product> products = recording.searchProduct("tv").get(5, TimeUnit.SECONDS);
+            assertEquals("0001", products.get(0).getProductId());
+            assertNotSame(Thread.currentThread(), ranOn.get());
+        } finally {
+            recording.shutdown();
+        }
+    }
+
+    @Test
+    void slowCallDoesNotBlockTheCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FakeDatabaseRW slowDatabase = new FakeDatabaseRW() {
+            @Override
+            public synchronized Product searchByProductId(String productId) {
+                try {
+                    release.await(); // a query that takes until the test lets it finish
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.searchByProductId(productId);
+            }
+        };
+        slowDatabase.insertNewProduct("0002", "DAB radio", 29.99, "0002.jpg", 5);
+        AsyncDatabaseRW slow = new AsyncDatabaseRW(slowDatabase);
+        try {
+            CompletableFuture<Product> pending = slow.searchByProductId("0002");
+            assertFalse(pending.isDone()); // the call returned while the query is still running
+
+            release.countDown();
+            assertEquals("DAB radio", pending.get(5, TimeUnit.SECONDS).getProductDescription());
+        } finally {
+            slow.shutdown();
+        }
+    }
+
+    @Test
+    void sqlExceptionIsTheCauseOfTheFailedFuture() {
+        SQLException failure = new SQLException("connection lost");
+        database.failure = failure;
+
+        CompletableFuture<ArrayList<Product>> search = asyncDatabaseRW.searchProduct("tv");
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> search.get(5, TimeUnit.SECONDS));
+        assertSame(failure, thrown.getCause());
+        CompletionException joined = assertThrows(CompletionException.class, search::join);
+        assertSame(failure, joined.getCause());
+    }
+
+    @Test
+    void writesCompleteAfterTheDatabaseChanged() throws Exception {
+        asyncDatabaseRW.insertNewProduct("0003", "USB drive", 9.99, "0003.jpg", 50).get(5, TimeUnit.SECONDS);
+        assertFalse(asyncDatabaseRW.isProIdAvailable("0003").get(5, TimeUnit.SECONDS));
+
+        asyncDatabaseRW.deleteProduct("0003").get(5, TimeUnit.SECONDS);
+        assertTrue(asyncDatabaseRW.isProIdAvailable("0003").get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,185 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.orderManagement.OrderState;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static ci553.happyshop.catalogue.TestCatalogue.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the batching order writer: orders queued while a batch is written share the next flush,
+ * a batch is never larger than maxBatchSize, futures complete only after the flush,
+ * and a failed order or a failed flush fails exactly the futures it concerns.
+ */
+class BatchingOrderWriterTest {
+
+    @Test
+    void ordersQueuedMeanwhileShareOneFlush() throws Exception {
+        RecordingOrderStore store = new RecordingOrderStore();
+        BatchingOrderWriter writer = new BatchingOrderWriter(store, 100);
+
+        List<CompletableFuture<Void>> stored = new ArrayList<>();
+        stored.add(writer.createOrder(order(1)));
+        assertTrue(store.firstOrderStarted.await(5, TimeUnit.SECONDS)); // the writer is busy with order 1
+        for (int orderId = 2; orderId <= 5; orderId++) {
+            stored.add(writer.createOrder(order(orderId)));
+        }
+        store.releaseFirstOrder.countDown();
+        CompletableFuture.allOf(stored.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(1, 2, 3, 4, 5), store.created);
+        assertEquals(List.of(1, 4), store.flushedBatchSizes); // order 1 alone, then the four queued meanwhile
+    }
+
+    @Test
+    void batchesAreNoLargerThanMaxBatchSize() throws Exception {
+        RecordingOrderStore store = new RecordingOrderStore();
+        BatchingOrderWriter writer = new BatchingOrderWriter(store, 2);
+
+        List<CompletableFuture<Void>> stored = new ArrayList<>();
+        stored.add(writer.createOrder(order(1)));
+        assertTrue(store.firstOrderStarted.await(5, TimeUnit.SECONDS));
+        for (int orderId = 2; orderId <= 5; orderId++) {
+            stored.add(writer.createOrder(order(orderId)));
+        }
+        store.releaseFirstOrder.countDown();
+        CompletableFuture.allOf(stored.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(1, 2, 2), store.flushedBatchSizes);
+    }
+
+    @Test
+    void futuresCompleteOnlyAfterTheFlush() throws Exception {
+        RecordingOrderStore store = new RecordingOrderStore();
+        store.releaseFirstOrder.countDown();
+        store.holdFlush = new CountDownLatch(1);
+        BatchingOrderWriter writer = new BatchingOrderWriter(store, 100);
+
+        CompletableFuture<Void> stored = writer.createOrder(order(1));
+        assertTrue(store.flushStarted.await(5, TimeUnit.SECONDS));
+        assertFalse(stored.isDone(), "the order is written but not flushed yet");
+        store.holdFlush.countDown();
+        stored.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void aFailedOrderFailsOnlyItsOwnFuture() throws Exception {
+        RecordingOrderStore store = new RecordingOrderStore();
+        store.releaseFirstOrder.countDown();
+        store.failingOrderId = 2;
+        BatchingOrderWriter writer = new BatchingOrderWriter(store, 100);
+
+        CompletableFuture<Void> first = writer.createOrder(order(1));
+        CompletableFuture<Void> failing = writer.createOrder(order(2));
+        CompletableFuture<Void> third = writer.createOrder(order(3));
+
+        first.get(5, TimeUnit.SECONDS);
+        third.get(5, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+    }
+
+    @Test
+    void aFailedFlushFailsEveryOrderOfTheBatch() throws Exception {
+        RecordingOrderStore store = new RecordingOrderStore();
+        store.failFlush = true;
+        BatchingOrderWriter writer = new BatchingOrderWriter(store, 100);
+
+        CompletableFuture<Void> first = writer.createOrder(order(1));
+        assertTrue(store.firstOrderStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = writer.createOrder(order(2));
+        CompletableFuture<Void> third = writer.createOrder(order(3));
+        store.releaseFirstOrder.countDown();
+
+        for (CompletableFuture<Void> stored : List.of(first, second, third)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> stored.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, e.getCause());
+        }
+        assertEquals(List.of(1, 2), store.flushedBatchSizes); // both batches tried to flush
+    }
+
+    // Records the orders created and the size of every flushed batch. Holds the first order until released.
+    private static class RecordingOrderStore implements OrderStore {
+        final CountDownLatch firstOrderStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstOrder = new CountDownLatch(1);
+        final CountDownLatch flushStarted = new CountDownLatch(1);
+        volatile CountDownLatch holdFlush = new CountDownLatch(0);
+        volatile int failingOrderId = 0;
+        volatile boolean failFlush = false;
+
+        final List<Integer> created = new CopyOnWriteArrayList<>();
+        final List<Integer> flushedBatchSizes = new CopyOnWriteArrayList<>();
+        private int sinceFlush = 0; // only used by the writer thread
+
+        @Override
+        public void createOrder(Order order) throws IOException {
+            if (order.getOrderId() == 1) {
+                firstOrderStarted.countDown();
+                await(releaseFirstOrder);
+            }
+            if (order.getOrderId() == failingOrderId) {
+                throw new IOException("disk full");
+            }
+            created.add(order.getOrderId());
+            sinceFlush++;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushStarted.countDown();
+            await(holdFlush);
+            flushedBatchSizes.add(sinceFlush);
+            sinceFlush = 0;
+            if (failFlush) {
+                throw new IOException("fsync failed");
+            }
+        }
+
+        private static void await(CountDownLatch latch) throws IOException {
+            try {
+                if (!latch.await(5, TimeUnit.SECONDS)) {
+                    throw new IOException("not released");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public boolean updateOrderState(int orderId, OrderState oldState, OrderState newState, String dateTime) {
+            return false;
+        }
+
+        @Override
+        public String readOrder(int orderId, OrderState state) throws IOException {
+            throw new IOException("Order not found: " + orderId);
+        }
+
+        @Override
+        public SortedMap<Integer, OrderState> loadOpenOrders() {
+            return new TreeMap<>();
+        }
+
+        @Override
+        public String watermark() {
+            return "";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ci553.happyshop.catalogue.TestCatalogue.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the product cache in front of DatabaseRW: repeat lookups are answered from memory, writes invalidate
+ * what they changed, and keyword searches are answered from the index with one batched read for uncached matches.
+ */
+class CachingDatabaseRWTest {
+    private FakeDatabaseRW database;
+    private CachingDatabaseRW cache;
+
+    @BeforeEach
+    void fillDatabase() {
+        database = new FakeDatabaseRW();
+        database.insertNewProduct("0001", "40 inch TV", 269.00, "0001.jpg", 100);
+        database.insertNewProduct("0002", "DAB radio", 29.99, "0002.jpg", 5);
+        database.insertNewProduct("0003", "USB drive", 9.99, "0003.jpg", 50);
+        cache = new CachingDatabaseRW(database, 100, 60_000, 300_000);
+    }
+
+    @Test
+    void repeatLookupIsAnsweredFromTheCache() throws SQLException {
+        assertEquals("DAB radio", cache.searchByProductId("0002").getProductDescription());
+        Product second = cache.searchByProductId("0002");
+        second.setOrderedQuantity(7); // a caller changing its copy does not change the cache
+
+        assertEquals(1, database.singleReads.get());
+        assertEquals(1, cache.searchByProductId("0002").getOrderedQuantity()); // the default, not 7
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    void writesInvalidateTheProduct() throws SQLException {
+        cache.searchByProductId("0002");
+        cache.updateProduct("0002", "Portable radio", 24.99, "0002.jpg", 5);
+        assertEquals("Portable radio", cache.searchByProductId("0002").getProductDescription());
+
+        ArrayList<Product> purchase = new ArrayList<>(List.of(product("0002", "Portable radio", 24.99, 2)));
+        assertTrue(cache.purchaseStocks(purchase).isEmpty());
+        assertEquals(3, cache.searchByProductId("0002").getStockQuantity());
+        assertEquals(3, database.singleReads.get());
+    }
+
+    @Test
+    void keywordSearchUsesTheIndexAndOneBatchedRead() throws SQLException {
+        assertEquals(List.of("0002"), productIds(cache.searchProduct("radio"))); // builds the index, fills the cache
+        assertEquals(1, database.fullReads.get());
+
+        cache.updateProduct("0001", "40 inch radio TV", 269.00, "0001.jpg", 100);
+        cache.updateProduct("0002", "DAB radio", 29.99, "0002.jpg", 4);
+        assertEquals(List.of("0001", "0002"), productIds(cache.searchProduct("RADIO")));
+
+        assertEquals(1, database.batchReads.get()); // both changed products in one read
+        assertEquals(0, database.singleReads.get());
+        assertEquals(0, database.keywordSearches.get());
+        assertEquals(1, database.fullReads.get());
+    }
+
+    @Test
+    void keywordWithWildcardsGoesToTheDatabase() throws SQLException {
+        cache.searchProduct("radio");
+        cache.searchProduct("D_B");
+        assertEquals(1, database.keywordSearches.get());
+    }
+
+    @Test
+    void indexFollowsInsertsAndDeletes() throws SQLException {
+        cache.searchProduct("usb");
+        cache.insertNewProduct("0004", "USB hub", 14.99, "0004.jpg", 10);
+        cache.deleteProduct("0003");
+
+        assertEquals(List.of("0004"), productIds(cache.searchProduct("usb")));
+        assertEquals(List.of("0004"), productIds(cache.searchProduct("0004"))); // as a product ID
+    }
+
+    @Test
+    void updatingAMissingIdDoesNotIndexIt() throws SQLException {
+        cache.searchProduct("radio"); // builds the index
+        cache.updateProduct("0009", "Kitchen radio", 19.99, "0009.jpg", 3); // no such product, changes nothing
+
+        assertEquals(List.of("0002"), productIds(cache.searchProduct("radio")));
+        assertEquals(List.of(), productIds(cache.searchProduct("kitchen")));
+        assertEquals(0, database.batchReads.get()); // an indexed 0009 would have been looked up
+    }
+
+    private static List<String> productIds(List<Product> products) {
+        return products.stream().map(Product::getProductId).toList();
+    }
+}
@@ -0,0 +1,95 @@
+package ci553.happyshop.storageAccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the connection pool against an in-memory Derby database: connections are reused instead of opened again,
+ * no more than maxSize are borrowed at once, and a returned connection carries no unfinished transaction.
+ */
+class ConnectionPoolTest {
+    private InMemoryDatabase database;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        database = InMemoryDatabase.create("CREATE TABLE Counter(val INT)", "INSERT INTO Counter VALUES (0)");
+        pool = new ConnectionPool(database.url(), 1, 2, 60_000, 200);
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        pool.shutdown();
+        database.drop();
+    }
+
+    @Test
+    void releasedConnectionIsReused() throws SQLException {
+        assertEquals(1, pool.getIdleCount()); // minSize is opened straight away
+
+        Connection first;
+        try (PooledConnection pooledConn = pool.acquire()) {
+            first = pooledConn.getConnection();
+            assertEquals(1, pool.getActiveCount());
+        }
+        try (PooledConnection pooledConn = pool.acquire()) {
+            assertSame(first, pooledConn.getConnection());
+        }
+
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getAcquireCount());
+    }
+
+    @Test
+    void acquireTimesOutWhenAllConnectionsAreBorrowed() throws SQLException {
+        try (PooledConnection first = pool.acquire(); PooledConnection second = pool.acquire()) {
+            assertNotSame(first.getConnection(), second.getConnection());
+            assertThrows(SQLException.class, () -> pool.acquire());
+            assertEquals(1, pool.getTimeoutCount());
+        }
+        try (PooledConnection pooledConn = pool.acquire()) { // the permits were given back
+            assertEquals(2, pool.getTotalCount());
+        }
+    }
+
+    @Test
+    void unfinishedTransactionIsRolledBackOnRelease() throws SQLException {
+        try (PooledConnection pooledConn = pool.acquire()) {
+            Connection conn = pooledConn.getConnection();
+            conn.setAutoCommit(false);
+            pooledConn.prepareStatement("UPDATE Counter SET val = 1").executeUpdate();
+        } // closed without commit
+
+        try (PooledConnection pooledConn = pool.acquire()) {
+            Connection conn = pooledConn.getConnection();
+            assertTrue(conn.getAutoCommit());
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT val FROM Counter")) {
+                assertTrue(rs.next());
+                assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void closedPoolRejectsAcquire() {
+        pool.shutdown();
+        assertEquals(0, pool.getIdleCount());
+        assertThrows(SQLException.class, () -> pool.acquire());
+    }
+
+    @Test
+    void invalidSizesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(database.url(), 3, 2, 60_000, 200));
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool(database.url(), 0, 0, 60_000, 200));
+    }
+}
@@ -0,0 +1,112 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ci553.happyshop.catalogue.TestCatalogue.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the stock decrement of DerbyRW.purchaseStocks against an in-memory Derby database:
+ * a purchase only succeeds while there is enough stock, also when many customers buy the same product at once,
+ * and a purchase that is short of one product changes no stock at all.
+ */
+class DerbyRWStockTest {
+    private InMemoryDatabase database;
+    private ConnectionPool connectionPool;
+    private DerbyRW databaseRW;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        database = InMemoryDatabase.createProductTable(
+                "INSERT INTO ProductTable VALUES ('0001', '40 inch TV', 269.00, '0001.jpg', 100)",
+                "INSERT INTO ProductTable VALUES ('0002', 'DAB radio', 29.99, '0002.jpg', 5)");
+        connectionPool = new ConnectionPool(database.url(), 2, 8, 60_000, 30_000);
+        databaseRW = new DerbyRW(connectionPool);
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        connectionPool.shutdown();
+        database.drop();
+    }
+
+    @Test
+    void purchaseIsRejectedWhenTheStockIsShort() throws SQLException {
+        ArrayList<Product> trolley = new ArrayList<>(List.of(product("0001", "40 inch TV", 269.00, 3),
+                product("0002", "DAB radio", 29.99, 6)));
+
+        ArrayList<Product> insufficient = databaseRW.purchaseStocks(trolley);
+
+        assertEquals(1, insufficient.size());
+        assertEquals("0002", insufficient.get(0).getProductId());
+        assertEquals(100, stockOf("0001")); // rolled back with the short product
+        assertEquals(5, stockOf("0002"));
+
+        trolley.get(1).setOrderedQuantity(5);
+        assertTrue(databaseRW.purchaseStocks(trolley).isEmpty());
+        assertEquals(97, stockOf("0001"));
+        assertEquals(0, stockOf("0002"));
+    }
+
+    @Test
+    void concurrentPurchasesNeverSellMoreThanTheStock() throws Exception {
+        int customers = 16;
+        int purchasesEach = 10; // 160 purchases of one unit, 100 in stock
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger(); // assertions in the customer threads would not fail the test
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < customers; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int purchase = 0; purchase < purchasesEach; purchase++) {
+                        ArrayList<Product> trolley = new ArrayList<>(List.of(product("0001", "40 inch TV", 269.00, 1)));
+                        if (databaseRW.purchaseStocks(trolley).isEmpty()) {
+                            sold.incrementAndGet();
+                        } else {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, errors.get());
+        assertEquals(100, sold.get());
+        assertEquals(customers * purchasesEach - 100, rejected.get());
+        assertEquals(0, stockOf("0001"));
+    }
+
+    private int stockOf(String productId) throws SQLException {
+        try (Connection conn = database.connect();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT inStock FROM ProductTable WHERE productID = ?")) {
+            pstmt.setString(1, productId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getInt(1);
+            }
+        }
+    }
+}
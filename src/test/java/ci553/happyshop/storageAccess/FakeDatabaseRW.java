@@ -0,0 +1,122 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A DatabaseRW that keeps the products in memory and counts the reads, for testing what is put in front of it
+ * (e.g. CachingDatabaseRW) without a database. It behaves like DerbyRW, including updates of missing IDs
+ * changing nothing.
+ */
+class FakeDatabaseRW implements DatabaseRW {
+    private final TreeMap<String, Product> products = new TreeMap<>(); // productID -> product
+
+    final AtomicInteger singleReads = new AtomicInteger();    // searchByProductId calls
+    final AtomicInteger batchReads = new AtomicInteger();     // searchByProductIds calls
+    final AtomicInteger fullReads = new AtomicInteger();      // getAllProducts calls
+    final AtomicInteger keywordSearches = new AtomicInteger(); // searchProduct calls
+    volatile SQLException failure; // thrown by searchProduct when set, like a broken connection
+
+    @Override
+    public synchronized ArrayList<Product> searchProduct(String keyword) throws SQLException {
+        keywordSearches.incrementAndGet();
+        if (failure != null) {
+            throw failure;
+        }
+        ArrayList<Product> productList = new ArrayList<>();
+        Product product = products.get(keyword);
+        if (product != null) {
+            productList.add(copyOf(product));
+            return productList;
+        }
+        String key = keyword.toLowerCase(Locale.ROOT);
+        for (Product p : products.values()) {
+            if (p.getProductDescription().toLowerCase(Locale.ROOT).contains(key)) {
+                productList.add(copyOf(p));
+            }
+        }
+        return productList;
+    }
+
+    @Override
+    public synchronized Product searchByProductId(String productId) {
+        singleReads.incrementAndGet();
+        Product product = products.get(productId);
+        return product == null ? null : copyOf(product);
+    }
+
+    @Override
+    public synchronized ArrayList<Product> getAllProducts() {
+        fullReads.incrementAndGet();
+        ArrayList<Product> productList = new ArrayList<>();
+        for (Product product : products.values()) {
+            productList.add(copyOf(product));
+        }
+        return productList;
+    }
+
+    @Override
+    public synchronized ArrayList<Product> searchByProductIds(Collection<String> productIds) {
+        batchReads.incrementAndGet();
+        ArrayList<Product> productList = new ArrayList<>();
+        for (String productId : productIds) {
+            Product product = products.get(productId);
+            if (product != null) {
+                productList.add(copyOf(product));
+            }
+        }
+        return productList;
+    }
+
+    @Override
+    public synchronized ArrayList<Product> purchaseStocks(ArrayList<Product> proList) {
+        ArrayList<Product> insufficientProducts = new ArrayList<>();
+        for (Product wanted : proList) {
+            Product product = products.get(wanted.getProductId());
+            if (product == null || product.getStockQuantity() < wanted.getOrderedQuantity()) {
+                insufficientProducts.add(wanted);
+            }
+        }
+        if (insufficientProducts.isEmpty()) {
+            for (Product wanted : proList) {
+                Product p = products.get(wanted.getProductId());
+                products.put(p.getProductId(), new Product(p.getProductId(), p.getProductDescription(),
+                        p.getProductImageName(), p.getUnitPrice(), p.getStockQuantity() - wanted.getOrderedQuantity()));
+            }
+        }
+        return insufficientProducts;
+    }
+
+    @Override
+    public synchronized void updateProduct(String id, String des, double price, String imageName, int stock) {
+        if (products.containsKey(id)) { // like the UPDATE, a missing ID changes nothing
+            products.put(id, new Product(id, des, imageName, price, stock));
+        }
+    }
+
+    @Override
+    public synchronized void deleteProduct(String id) {
+        products.remove(id);
+    }
+
+    @Override
+    public synchronized void insertNewProduct(String id, String des, double price, String image, int stock) {
+        products.put(id, new Product(id, des, image, price, stock));
+    }
+
+    @Override
+    public synchronized boolean isProIdAvailable(String productId) {
+        return !products.containsKey(productId);
+    }
+
+    private static Product copyOf(Product p) {
+        return new Product(p.getProductId(), p.getProductDescription(), p.getProductImageName(),
+                p.getUnitPrice(), p.getStockQuantity());
+    }
+}
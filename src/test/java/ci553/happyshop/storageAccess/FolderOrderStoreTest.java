@@ -0,0 +1,79 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.orderManagement.OrderState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static ci553.happyshop.catalogue.TestCatalogue.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the folder store: a state change moves the order file, text and binary order files are both found
+ * by the folder scan, and the watermark changes whenever an order file is added or moved.
+ */
+class FolderOrderStoreTest {
+    @TempDir
+    Path ordersDir;
+
+    private Path orderedPath;
+    private Path progressingPath;
+    private Path collectedPath;
+
+    @BeforeEach
+    void createFolders() throws IOException {
+        orderedPath = Files.createDirectories(ordersDir.resolve("ordered"));
+        progressingPath = Files.createDirectories(ordersDir.resolve("progressing"));
+        collectedPath = Files.createDirectories(ordersDir.resolve("collected"));
+    }
+
+    @Test
+    void stateChangesMoveTheOrderFile() throws IOException {
+        FolderOrderStore store = newStore(false);
+        store.createOrder(order(1));
+        assertTrue(store.updateOrderState(1, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00"));
+
+        assertTrue(Files.exists(progressingPath.resolve("1.txt")));
+        assertFalse(Files.exists(orderedPath.resolve("1.txt")));
+        assertTrue(store.readOrder(1, OrderState.Progressing).contains("ProgressingDateTime: 2025-01-02 10:00:00"));
+        assertFalse(store.updateOrderState(1, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00"));
+    }
+
+    @Test
+    void binaryAndTextOrdersAreBothFound() throws IOException {
+        newStore(false).createOrder(order(1));
+        FolderOrderStore binaryStore = newStore(true);
+        binaryStore.createOrder(order(2));
+        binaryStore.updateOrderState(2, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00");
+
+        SortedMap<Integer, OrderState> openOrders = newStore(false).loadOpenOrders();
+        assertEquals(Map.of(1, OrderState.Ordered, 2, OrderState.Progressing), openOrders);
+        assertTrue(Files.exists(progressingPath.resolve("2" + OrderRecordCodec.FILE_EXTENSION)));
+    }
+
+    @Test
+    void watermarkChangesWhenAnOrderIsAddedOrMoved() throws IOException, InterruptedException {
+        FolderOrderStore store = newStore(false);
+        String empty = store.watermark();
+        assertEquals(empty, newStore(false).watermark());
+
+        Thread.sleep(50); // some file systems only record modification times to a few milliseconds
+        store.createOrder(order(1));
+        String created = store.watermark();
+        assertNotEquals(empty, created);
+
+        Thread.sleep(50);
+        store.updateOrderState(1, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00");
+        assertNotEquals(created, store.watermark());
+    }
+
+    private FolderOrderStore newStore(boolean binaryRecords) {
+        return new FolderOrderStore(orderedPath, progressingPath, collectedPath, binaryRecords);
+    }
+}
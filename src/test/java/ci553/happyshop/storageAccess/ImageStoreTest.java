@@ -0,0 +1,101 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.utility.StorageLocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the content-addressed image store: identical images share one stored file, the stored file is deleted
+ * with its last name, and copyAllFrom fills the store from a folder it only reads.
+ */
+class ImageStoreTest {
+    @TempDir
+    Path dir;
+
+    private Path imageFolder;
+    private Path storeFolder;
+    private ImageStore store;
+
+    @BeforeEach
+    void openStore() throws IOException {
+        imageFolder = Files.createDirectories(dir.resolve("images"));
+        storeFolder = imageFolder.resolve(StorageLocation.imageStoreSubfolder);
+        store = ImageStore.of(imageFolder);
+    }
+
+    @Test
+    void identicalImagesShareOneStoredFile() throws IOException {
+        String hash = store.add(image("a.jpg", "red"), "0001.jpg");
+        assertEquals(hash, store.add(image("b.jpg", "red"), "0002.jpg"));
+        String otherHash = store.add(image("c.jpg", "blue"), "0003.jpg");
+
+        assertNotEquals(hash, otherHash);
+        assertEquals(2, store.refCount(hash));
+        assertEquals(1, store.refCount(otherHash));
+        assertEquals(hash, store.hashOf("0002.jpg"));
+        assertEquals("red", Files.readString(imageFolder.resolve("0002.jpg")));
+        assertTrue(Files.isSameFile(imageFolder.resolve("0001.jpg"), imageFolder.resolve("0002.jpg")));
+    }
+
+    @Test
+    void storedFileIsDeletedWithItsLastName() throws IOException {
+        String hash = store.add(image("a.jpg", "red"), "0001.jpg");
+        store.add(image("b.jpg", "red"), "0002.jpg");
+
+        store.remove("0001.jpg");
+        assertFalse(Files.exists(imageFolder.resolve("0001.jpg")));
+        assertTrue(Files.exists(storeFolder.resolve(hash)));
+        assertEquals(1, store.refCount(hash));
+
+        store.add(image("c.jpg", "blue"), "0002.jpg"); // replaces the last name of the red image
+        assertFalse(Files.exists(storeFolder.resolve(hash)));
+        assertEquals(0, store.refCount(hash));
+        assertNull(store.hashOf("0001.jpg"));
+        assertEquals("blue", Files.readString(imageFolder.resolve("0002.jpg")));
+    }
+
+    @Test
+    void addingTheSameImageAgainKeepsIt() throws IOException {
+        String hash = store.add(image("a.jpg", "red"), "0001.jpg");
+        store.add(image("a.jpg", "red"), "0001.jpg");
+
+        assertEquals(1, store.refCount(hash));
+        assertTrue(Files.exists(storeFolder.resolve(hash)));
+        assertEquals("red", Files.readString(imageFolder.resolve("0001.jpg")));
+    }
+
+    @Test
+    void copyAllFromOnlyReadsTheSourceFolder() throws IOException {
+        Path backup = Files.createDirectories(dir.resolve("images_resetDB"));
+        Files.writeString(backup.resolve("0001.jpg"), "red");
+        Files.writeString(backup.resolve("0002.jpg"), "red");
+        Files.writeString(backup.resolve("0003.jpg"), "blue");
+        store.add(image("x.jpg", "green"), "0009.jpg"); // not in the backup
+
+        assertEquals(3, store.copyAllFrom(backup));
+
+        assertFalse(Files.exists(imageFolder.resolve("0009.jpg")));
+        assertNull(store.hashOf("0009.jpg"));
+        assertEquals(store.hashOf("0001.jpg"), store.hashOf("0002.jpg"));
+        assertEquals(2, store.refCount(store.hashOf("0001.jpg")));
+        assertEquals("blue", Files.readString(imageFolder.resolve("0003.jpg")));
+        try (Stream<Path> files = Files.list(backup)) {
+            assertEquals(3, files.count()); // no store folder or other files added
+        }
+        for (String imageName : new String[]{"0001.jpg", "0002.jpg", "0003.jpg"}) {
+            assertFalse(Files.isSameFile(backup.resolve(imageName), imageFolder.resolve(imageName)));
+        }
+    }
+
+    private Path image(String fileName, String content) throws IOException {
+        return Files.writeString(dir.resolve(fileName), content);
+    }
+}
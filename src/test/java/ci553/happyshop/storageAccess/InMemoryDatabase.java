@@ -0,0 +1,71 @@
+package ci553.happyshop.storageAccess;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An in-memory Derby database for tests, with its own name so tests never see each other's tables.
+ *
+ * Example Usage:
+ *     database = InMemoryDatabase.create("CREATE TABLE ...", "INSERT INTO ...");
+ *     pool = new ConnectionPool(database.url(), 1, 2, 60_000, 200);
+ *     ...
+ *     database.drop(); // in @AfterEach
+ */
+final class InMemoryDatabase {
+    private static final AtomicInteger databaseCount = new AtomicInteger();
+
+    private final String url;
+
+    private InMemoryDatabase(String url) {
+        this.url = url;
+    }
+
+    //Creates a new empty database and runs the statements on it, e.g. CREATE TABLE and INSERT.
+    static InMemoryDatabase create(String... statements) throws SQLException {
+        InMemoryDatabase database = new InMemoryDatabase("jdbc:derby:memory:test" + databaseCount.incrementAndGet());
+        try (Connection conn = DriverManager.getConnection(database.url + ";create=true");
+             Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.executeUpdate(sql);
+            }
+        }
+        return database;
+    }
+
+    //The ProductTable of the real database (see DerbyRW), with the given INSERT statements run on it.
+    static InMemoryDatabase createProductTable(String... inserts) throws SQLException {
+        String[] statements = new String[inserts.length + 1];
+        statements[0] = "CREATE TABLE ProductTable(" +
+                "productID CHAR(4) PRIMARY KEY," +
+                "description VARCHAR(100)," +
+                "unitPrice DOUBLE," +
+                "image VARCHAR(100)," +
+                "inStock INT," +
+                "CHECK (inStock >= 0))";
+        System.arraycopy(inserts, 0, statements, 1, inserts.length);
+        return create(statements);
+    }
+
+    //the JDBC URL, e.g. for a ConnectionPool
+    String url() {
+        return url;
+    }
+
+    //a new connection of its own, closed by the caller
+    Connection connect() throws SQLException {
+        return DriverManager.getConnection(url);
+    }
+
+    //Drops the database and frees its memory.
+    void drop() {
+        try {
+            DriverManager.getConnection(url + ";drop=true");
+        } catch (SQLException e) {
+            // Derby reports a successful drop with an SQLException
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.orderManagement.OrderState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.stream.Stream;
+
+import static ci553.happyshop.catalogue.TestCatalogue.order;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the order journal: records written by one JournalOrderStore are read back by the next one,
+ * a damaged tail is cut off at startup, and compaction keeps open orders and archives collected ones,
+ * archives them only once when it was interrupted, and never deletes a segment that was not read to the end.
+ * syncIntervalMillis is 0 in every test, so no sync thread runs and each record is on the disk when the call returns.
+ */
+class JournalOrderStoreTest {
+    private static final long SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    @TempDir
+    Path journalDir;
+
+    @Test
+    void readOrderShowsTheRecordedStateChanges() throws IOException {
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            store.createOrder(order(1));
+            assertTrue(store.updateOrderState(1, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00"));
+
+            String details = store.readOrder(1, OrderState.Progressing);
+            assertTrue(details.contains("State: Progressing"), details);
+            assertTrue(details.contains("ProgressingDateTime: 2025-01-02 10:00:00"), details);
+            assertTrue(details.contains("OrderedDateTime: 2025-01-01 09:00:00"), details);
+        }
+    }
+
+    @Test
+    void updateFromAnotherStateIsRejected() throws IOException {
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            store.createOrder(order(1));
+            assertFalse(store.updateOrderState(1, OrderState.Progressing, OrderState.Collected, "2025-01-02 10:00:00"));
+            assertFalse(store.updateOrderState(2, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00"));
+            assertEquals(OrderState.Ordered, store.loadOpenOrders().get(1));
+        }
+    }
+
+    @Test
+    void reopeningReplaysTheJournal() throws IOException {
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            for (int orderId = 1; orderId <= 3; orderId++) {
+                store.createOrder(order(orderId));
+            }
+            store.updateOrderState(2, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00");
+            store.updateOrderState(3, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00");
+            store.updateOrderState(3, OrderState.Progressing, OrderState.Collected, "2025-01-02 11:00:00");
+        }
+
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            SortedMap<Integer, OrderState> openOrders = store.loadOpenOrders();
+            assertEquals(List.of(1, 2), new ArrayList<>(openOrders.keySet()));
+            assertEquals(OrderState.Ordered, openOrders.get(1));
+            assertEquals(OrderState.Progressing, openOrders.get(2));
+            assertTrue(store.readOrder(3, OrderState.Collected).contains("CollectedDateTime: 2025-01-02 11:00:00"));
+        }
+    }
+
+    @Test
+    void watermarkMovesWithEveryRecordAndSurvivesAReopen() throws IOException {
+        String written;
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            String empty = store.watermark();
+            store.createOrder(order(1));
+            String created = store.watermark();
+            assertNotEquals(empty, created);
+            store.updateOrderState(1, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00");
+            written = store.watermark();
+            assertNotEquals(created, written);
+        }
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            assertEquals(written, store.watermark());
+        }
+    }
+
+    @Test
+    void incompleteLastRecordIsCutOff() throws IOException {
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            store.createOrder(order(1));
+            store.createOrder(order(2));
+        }
+        Path segment = onlySegment();
+        long validSize = Files.size(segment);
+        // a record cut off by a crash: its length says 100 bytes, only 3 of them were written
+        Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2, 3, 4, 1, 0, 0}, StandardOpenOption.APPEND);
+
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            assertEquals(2, store.loadOpenOrders().size());
+            assertEquals(validSize, Files.size(segment));
+            store.createOrder(order(3)); // appended where the damaged record was
+        }
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            assertEquals(List.of(1, 2, 3), new ArrayList<>(store.loadOpenOrders().keySet()));
+        }
+    }
+
+    @Test
+    void recordWithWrongChecksumEndsTheReplay() throws IOException {
+        long firstRecordEnd;
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            store.createOrder(order(1));
+            firstRecordEnd = Files.size(onlySegment());
+            store.createOrder(order(2));
+        }
+        try (FileChannel channel = FileChannel.open(onlySegment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), firstRecordEnd + 20); // inside the second body
+        }
+
+        try (JournalOrderStore store = open(SEGMENT_BYTES, 4)) {
+            assertEquals(List.of(1), new ArrayList<>(store.loadOpenOrders().keySet()));
+        }
+    }
+
+    @Test
+    void compactionKeepsOpenOrdersAndArchivesCollectedOnes() throws IOException {
+        // small segments, so a few orders fill several of them and compaction runs
+        try (JournalOrderStore store = open(1024, 2)) {
+            for (int orderId = 1; orderId <= 40; orderId++) {
+                store.createOrder(order(orderId));
+                if (orderId % 2 == 0) {
+                    store.updateOrderState(orderId, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00");
+                    store.updateOrderState(orderId, OrderState.Progressing, OrderState.Collected, "2025-01-02 11:00:00");
+                }
+            }
+            assertTrue(segmentFiles().size() <= 3, "full segments are deleted after compaction");
+        }
+
+        Path archive = journalDir.resolve("collected-orders.txt");
+        assertTrue(Files.exists(archive));
+        assertTrue(Files.readString(archive).contains("CollectedDateTime: 2025-01-02 11:00:00"));
+
+        try (JournalOrderStore store = open(1024, 2)) {
+            SortedMap<Integer, OrderState> openOrders = store.loadOpenOrders();
+            assertEquals(20, openOrders.size());
+            for (int orderId = 1; orderId <= 40; orderId += 2) {
+                assertEquals(OrderState.Ordered, openOrders.get(orderId));
+                assertTrue(store.readOrder(orderId, OrderState.Ordered).startsWith("Order ID: " + orderId));
+            }
+        }
+    }
+
+    @Test
+    void interruptedCompactionIsFinishedWithoutArchivingTwice() throws IOException {
+        try (JournalOrderStore store = open(1024, 100)) { // several full segments, no compaction yet
+            createOrders(store, 1, 20);
+        }
+        Map<Path, byte[]> fullSegments = new HashMap<>();
+        for (Path segment : segmentFiles()) {
+            fullSegments.put(segment, Files.readAllBytes(segment));
+        }
+        try (JournalOrderStore store = open(1024, 2)) {
+            createOrders(store, 21, 22); // the next full segment starts the compaction
+        }
+        String archived = Files.readString(archive());
+        assertEquals(1, count(archived, "Order ID: 2 \n"));
+
+        // as if the application stopped after writing part of the archive, before deleting any segment
+        fullSegments.forEach((segment, bytes) -> {
+            try {
+                Files.write(segment, bytes);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        });
+        Files.writeString(archive(), archived.substring(0, archived.length() / 2));
+
+        try (JournalOrderStore store = open(1024, 2)) {
+            assertEquals(archived, Files.readString(archive()));
+            for (Path segment : fullSegments.keySet()) {
+                assertFalse(Files.exists(segment), segment + " is deleted");
+            }
+            createOrders(store, 23, 40); // later compactions archive only the new collected orders
+        }
+        String allArchived = Files.readString(archive());
+        for (int orderId = 2; orderId <= 40; orderId += 2) {
+            assertTrue(count(allArchived, "Order ID: " + orderId + " \n") <= 1, "order " + orderId + " archived once");
+        }
+        try (JournalOrderStore store = open(1024, 2)) {
+            SortedMap<Integer, OrderState> openOrders = store.loadOpenOrders();
+            for (int orderId = 1; orderId <= 40; orderId += 2) {
+                assertEquals(OrderState.Ordered, openOrders.get(orderId));
+            }
+        }
+    }
+
+    @Test
+    void segmentNotReadToTheEndIsKeptWhenCompacted() throws IOException {
+        try (JournalOrderStore store = open(1024, 100)) {
+            createOrders(store, 1, 20);
+        }
+        Path firstSegment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(firstSegment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), 100); // inside the first record
+        }
+        byte[] damaged = Files.readAllBytes(firstSegment);
+
+        try (JournalOrderStore store = open(1024, 2)) {
+            createOrders(store, 21, 22);
+        }
+
+        assertFalse(Files.exists(firstSegment));
+        Path kept = firstSegment.resolveSibling(firstSegment.getFileName() + ".damaged");
+        assertArrayEquals(damaged, Files.readAllBytes(kept));
+    }
+
+    // Creates the orders from first to last, the even ones are collected at once.
+    private static void createOrders(JournalOrderStore store, int first, int last) throws IOException {
+        for (int orderId = first; orderId <= last; orderId++) {
+            store.createOrder(order(orderId));
+            if (orderId % 2 == 0) {
+                store.updateOrderState(orderId, OrderState.Ordered, OrderState.Progressing, "2025-01-02 10:00:00");
+                store.updateOrderState(orderId, OrderState.Progressing, OrderState.Collected, "2025-01-02 11:00:00");
+            }
+        }
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    private Path archive() {
+        return journalDir.resolve("collected-orders.txt");
+    }
+
+    private JournalOrderStore open(long segmentMaxBytes, int compactAfterSegments) throws IOException {
+        return new JournalOrderStore(journalDir, segmentMaxBytes, compactAfterSegments, 0);
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segmentFiles();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Order;
+import ci553.happyshop.catalogue.Product;
+import ci553.happyshop.orderManagement.OrderState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static ci553.happyshop.catalogue.TestCatalogue.order;
+import static ci553.happyshop.catalogue.TestCatalogue.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the binary order record format: encode/decode round trips, in-place state updates,
+ * rejecting records that are not version 1 order records or are damaged, and values too long for a record.
+ */
+class OrderRecordCodecTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void decodeReturnsTheEncodedOrder() throws IOException {
+        Order order = order(12);
+        order.getProductList().add(product("0003", "Beyoncé – Lemonade (vinyl)", 24.50, 3)); // non-ASCII text
+        order.setState(OrderState.Progressing);
+        order.setProgressingDateTime("2025-01-02 10:00:00");
+
+        Order decoded = OrderRecordCodec.decode(OrderRecordCodec.encode(order));
+
+        assertEquals(order.orderDetails(), decoded.orderDetails());
+        ArrayList<Product> products = decoded.getProductList();
+        assertEquals(3, products.size());
+        assertEquals("Beyoncé – Lemonade (vinyl)", products.get(2).getProductDescription());
+        assertEquals("0003.jpg", products.get(2).getProductImageName());
+        assertEquals(24.50, products.get(2).getUnitPrice(), 0.0);
+        assertEquals(3, products.get(2).getOrderedQuantity());
+    }
+
+    @Test
+    void unsetTimestampsStayUnset() throws IOException {
+        Order decoded = OrderRecordCodec.decode(OrderRecordCodec.encode(order(1)));
+
+        assertEquals("2025-01-01 09:00:00", decoded.getOrderedDateTime());
+        assertEquals("", decoded.getProgressingDateTime()); // as in a new Order
+        assertEquals("", decoded.getCollectedDateTime());
+    }
+
+    @Test
+    void updateStateChangesOnlyTheStateAndItsTimestamp() throws IOException {
+        Path file = dir.resolve("7" + OrderRecordCodec.FILE_EXTENSION);
+        ByteBuffer encoded = OrderRecordCodec.encode(order(7));
+        Files.write(file, toArray(encoded));
+        long size = Files.size(file);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            OrderRecordCodec.updateState(channel, OrderState.Progressing, "2025-01-02 10:00:00");
+            OrderRecordCodec.updateState(channel, OrderState.Collected, "2025-01-02 11:00:00");
+        }
+
+        assertEquals(size, Files.size(file));
+        Order decoded = OrderRecordCodec.decode(ByteBuffer.wrap(Files.readAllBytes(file)));
+        assertEquals(OrderState.Collected, decoded.getState());
+        assertEquals("2025-01-01 09:00:00", decoded.getOrderedDateTime());
+        assertEquals("2025-01-02 10:00:00", decoded.getProgressingDateTime());
+        assertEquals("2025-01-02 11:00:00", decoded.getCollectedDateTime());
+        assertEquals(2, decoded.getProductList().size());
+    }
+
+    @Test
+    void otherDataIsRejected() throws IOException {
+        assertThrows(IOException.class, () -> OrderRecordCodec.decode(ByteBuffer.wrap(new byte[10])));
+        assertThrows(IOException.class, () -> OrderRecordCodec.decode(ByteBuffer.wrap(new byte[100])));
+
+        byte[] newerVersion = toArray(OrderRecordCodec.encode(order(1)));
+        newerVersion[5] = 2; // version 2, which this reader does not know
+        assertThrows(IOException.class, () -> OrderRecordCodec.decode(ByteBuffer.wrap(newerVersion)));
+
+        Path textFile = dir.resolve("1.txt");
+        Files.writeString(textFile, order(1).orderDetails());
+        try (FileChannel channel = FileChannel.open(textFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            assertThrows(IOException.class, () -> OrderRecordCodec.updateState(channel, OrderState.Progressing, "2025-01-02 10:00:00"));
+        }
+        assertEquals(order(1).orderDetails(), Files.readString(textFile)); // left unchanged
+    }
+
+    @Test
+    void damagedRecordsAreRejectedWithAnIOException() {
+        byte[] unknownState = toArray(OrderRecordCodec.encode(order(1)));
+        unknownState[6] = 7; // no such OrderState
+        assertThrows(IOException.class, () -> OrderRecordCodec.decode(ByteBuffer.wrap(unknownState)));
+
+        byte[] record = toArray(OrderRecordCodec.encode(order(1)));
+        byte[] cutOff = Arrays.copyOf(record, record.length - 5); // inside the last product
+        assertThrows(IOException.class, () -> OrderRecordCodec.decode(ByteBuffer.wrap(cutOff)));
+
+        byte[] negativeCount = toArray(OrderRecordCodec.encode(order(1)));
+        negativeCount[69] = (byte) 0x80; // product count below 0
+        assertThrows(IOException.class, () -> OrderRecordCodec.decode(ByteBuffer.wrap(negativeCount)));
+    }
+
+    @Test
+    void valuesLongerThanARecordHoldsAreRejected() throws IOException {
+        ArrayList<Product> products = new ArrayList<>();
+        products.add(product("0001", "x".repeat(65_535), 1.00, 1)); // the longest description that fits
+        Order longest = new Order(1, OrderState.Ordered, "2025-01-01 09:00:00", products);
+        assertEquals(65_535, OrderRecordCodec.decode(OrderRecordCodec.encode(longest))
+                .getProductList().get(0).getProductDescription().length());
+
+        products.set(0, product("0001", "é".repeat(32_768), 1.00, 1)); // 65536 bytes in UTF-8
+        Order tooLong = new Order(2, OrderState.Ordered, "2025-01-01 09:00:00", products);
+        assertThrows(IllegalArgumentException.class, () -> OrderRecordCodec.encode(tooLong));
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,101 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.orderManagement.OrderState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the memory-mapped order state table: states written by one table are read back by the next one,
+ * collected orders are left out, the store watermark survives a reopen, and rebuilding replaces every order.
+ */
+class OrderStateTableTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void statesAreReadBackAfterReopening() throws IOException {
+        Path path = dir.resolve("orderStates.dat");
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            table.put(1, OrderState.Ordered, "2025-01-01 09:00:00");
+            table.put(2, OrderState.Ordered, "2025-01-01 09:00:00");
+            table.put(2, OrderState.Progressing, "2025-01-01 10:00:00");
+            table.put(3, OrderState.Ordered, "2025-01-01 09:00:00");
+            table.put(3, OrderState.Collected, "2025-01-01 11:00:00");
+        }
+
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            assertEquals(Map.of(1, OrderState.Ordered, 2, OrderState.Progressing), table.loadOpenOrders());
+        }
+    }
+
+    @Test
+    void orderIdsInLaterRegionsExtendTheTable() throws IOException {
+        Path path = dir.resolve("orderStates.dat");
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            table.put(5, OrderState.Ordered, "2025-01-01 09:00:00");
+            table.put(200_000, OrderState.Progressing, "2025-01-01 10:00:00"); // the fourth region
+        }
+
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            assertEquals(Map.of(5, OrderState.Ordered, 200_000, OrderState.Progressing), table.loadOpenOrders());
+        }
+    }
+
+    @Test
+    void watermarkIsReadBackAfterReopening() throws IOException {
+        Path path = dir.resolve("orderStates.dat");
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            assertEquals("", table.getWatermark()); // a new table matches no store
+            table.setWatermark("folders:1700000000000000000:1700000000000000001");
+        }
+
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            assertEquals("folders:1700000000000000000:1700000000000000001", table.getWatermark());
+            table.setWatermark("");
+        }
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            assertEquals("", table.getWatermark());
+        }
+    }
+
+    @Test
+    void rebuildReplacesEveryOrder() throws IOException {
+        Path path = dir.resolve("orderStates.dat");
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            table.put(1, OrderState.Ordered, "2025-01-01 09:00:00");
+            table.put(200_000, OrderState.Progressing, "2025-01-01 10:00:00");
+            table.setWatermark("journal:1:100");
+
+            TreeMap<Integer, OrderState> stored = new TreeMap<>(Map.of(4, OrderState.Ordered, 9, OrderState.Progressing));
+            table.rebuild(stored);
+            assertEquals("", table.getWatermark());
+        }
+
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            assertEquals(Map.of(4, OrderState.Ordered, 9, OrderState.Progressing), table.loadOpenOrders());
+        }
+    }
+
+    @Test
+    void invalidInputIsRejected() throws IOException {
+        Path path = dir.resolve("orderStates.dat");
+        try (OrderStateTable table = new OrderStateTable(path)) {
+            assertThrows(IllegalArgumentException.class, () -> table.put(0, OrderState.Ordered, ""));
+            assertThrows(IllegalArgumentException.class, () -> table.setWatermark("x".repeat(59)));
+        }
+
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(4);
+            file.write(2); // a newer table version
+        }
+        assertThrows(IOException.class, () -> new OrderStateTable(path));
+    }
+}
@@ -0,0 +1,86 @@
+package ci553.happyshop.storageAccess;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the statement cache of pooled connections against an in-memory Derby database: the same SQL is prepared once
+ * per connection, a cached statement starts without old parameters, and the cache stays bounded.
+ */
+class PooledConnectionTest {
+    private InMemoryDatabase database;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        database = InMemoryDatabase.create("CREATE TABLE Item(id INT PRIMARY KEY, name VARCHAR(20))",
+                "INSERT INTO Item VALUES (1, 'one'), (2, 'two')");
+        pool = new ConnectionPool(database.url(), 1, 1, 60_000, 1_000); // one connection, so every acquire gets the same one
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        pool.shutdown();
+        database.drop();
+    }
+
+    @Test
+    void sameSqlIsPreparedOnce() throws SQLException {
+        String sql = "SELECT name FROM Item WHERE id = ?";
+        PreparedStatement first;
+        try (PooledConnection pooledConn = pool.acquire()) {
+            first = pooledConn.prepareStatement(sql);
+            assertEquals("one", nameOf(first, 1));
+        }
+        try (PooledConnection pooledConn = pool.acquire()) {
+            PreparedStatement again = pooledConn.prepareStatement(sql);
+            assertSame(first, again);
+            assertEquals("two", nameOf(again, 2));
+            assertEquals(1, pooledConn.getCachedStatementCount());
+        }
+
+        assertEquals(1, pool.getStatementCacheMisses());
+        assertEquals(1, pool.getStatementCacheHits());
+    }
+
+    @Test
+    void cachedStatementStartsWithoutOldParameters() throws SQLException {
+        String sql = "SELECT name FROM Item WHERE id = ?";
+        try (PooledConnection pooledConn = pool.acquire()) {
+            PreparedStatement stmt = pooledConn.prepareStatement(sql);
+            stmt.setInt(1, 1);
+            stmt.addBatch(); // left over, must not run with the next use
+
+            PreparedStatement again = pooledConn.prepareStatement(sql);
+            assertThrows(SQLException.class, again::executeQuery); // the parameter was cleared
+        }
+    }
+
+    @Test
+    void cacheIsBounded() throws SQLException {
+        try (PooledConnection pooledConn = pool.acquire()) {
+            PreparedStatement eldest = pooledConn.prepareStatement("SELECT name FROM Item WHERE id = 0");
+            for (int id = 1; id <= 40; id++) {
+                pooledConn.prepareStatement("SELECT name FROM Item WHERE id = " + id);
+            }
+
+            assertEquals(20, pooledConn.getCachedStatementCount());
+            assertTrue(eldest.isClosed()); // dropped from the cache and closed
+        }
+    }
+
+    private static String nameOf(PreparedStatement stmt, int id) throws SQLException {
+        stmt.setInt(1, id);
+        try (ResultSet rs = stmt.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getString(1);
+        }
+    }
+}
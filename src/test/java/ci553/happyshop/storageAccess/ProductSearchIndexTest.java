@@ -0,0 +1,111 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.catalogue.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static ci553.happyshop.catalogue.TestCatalogue.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the trigram index over product descriptions: it finds the same products as checking every description
+ * with contains() (what the LIKE query does for plain keywords), also after products are updated and removed.
+ */
+class ProductSearchIndexTest {
+
+    @Test
+    void searchIsCaseInsensitiveAndSorted() {
+        ProductSearchIndex index = new ProductSearchIndex(List.of(product("0003", "USB Drive 64GB", 9.99, 0),
+                product("0001", "usb-c cable", 4.99, 0), product("0002", "DAB radio", 29.99, 0)));
+
+        assertEquals(List.of("0001", "0003"), index.search("USB"));
+        assertEquals(List.of("0003"), index.search("b d"));
+        assertEquals(List.of("0002", "0003"), index.search("d")); // shorter than a trigram
+        assertEquals(List.of(), index.search("usb3"));
+        assertTrue(index.containsProductId("0002"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void updatesAndRemovalsAreFound() {
+        ProductSearchIndex index = new ProductSearchIndex(List.of(product("0001", "40 inch TV", 269.00, 0),
+                product("0002", "DAB radio", 29.99, 0)));
+
+        index.put("0001", "50 inch TV");
+        index.put("0003", "Portable radio");
+        index.remove("0002");
+
+        assertEquals(List.of(), index.search("40 inch"));
+        assertEquals(List.of("0001"), index.search("50 inch"));
+        assertEquals(List.of("0003"), index.search("radio"));
+        assertFalse(index.containsProductId("0002"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void wholeWordsInsideTheKeywordMustBeWholeWords() {
+        ProductSearchIndex index = new ProductSearchIndex(List.of(product("0001", "40 inch TV", 269.00, 0),
+                product("0002", "40 inches TV stand", 49.99, 0), product("0003", "USB3 hub", 14.99, 0)));
+
+        assertEquals(List.of("0001"), index.search("40 inch tv"));
+        assertEquals(List.of("0001", "0002"), index.search("0 inch"));  // "inch" can be the start of "inches"
+        assertEquals(List.of("0003"), index.search("b3 h"));
+        assertEquals(List.of(), index.search("40 inc tv"));
+    }
+
+    @Test
+    void caseIsFoldedTheSameInEveryLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr")); // "I".toLowerCase() is the dotless "ı" here
+        try {
+            ProductSearchIndex index = new ProductSearchIndex(List.of(product("0001", "HDMI CABLE", 4.99, 0)));
+            assertEquals(List.of("0001"), index.search("hdmi"));
+            assertEquals(List.of("0001"), index.search("HDMI"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void searchMatchesCheckingEveryDescription() {
+        Random random = new Random(42);
+        String alphabet = "abcde ";
+        TreeMap<String, String> descriptions = new TreeMap<>();
+        ArrayList<Product> products = new ArrayList<>();
+        for (int i = 1; i <= 500; i++) {
+            String productId = String.format("%04d", i);
+            String description = randomText(random, alphabet, 5 + random.nextInt(20));
+            descriptions.put(productId, description);
+            products.add(product(productId, description, 1.00, 0));
+        }
+        ProductSearchIndex index = new ProductSearchIndex(products);
+        for (int i = 1; i <= 100; i++) { // change some of them afterwards
+            String productId = String.format("%04d", random.nextInt(500) + 1);
+            String description = randomText(random, alphabet.toUpperCase(Locale.ROOT), 5 + random.nextInt(20));
+            descriptions.put(productId, description);
+            index.put(productId, description);
+        }
+
+        for (int i = 0; i < 300; i++) {
+            String keyword = randomText(random, alphabet, 1 + random.nextInt(7)); // longer ones often have whole words
+            List<String> expected = descriptions.entrySet().stream()
+                    .filter(entry -> entry.getValue().toLowerCase(Locale.ROOT).contains(keyword))
+                    .map(entry -> entry.getKey())
+                    .toList();
+            assertEquals(expected, index.search(keyword), "keyword '" + keyword + "'");
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package ci553.happyshop.storageAccess;
+
+import ci553.happyshop.utility.StorageLocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the thumbnails: one per view size, scaled to fit keeping the aspect ratio, generateAll only redoes
+ * missing or outdated ones, and images copied in or deleted through ImageFileManager get or lose theirs.
+ */
+class ThumbnailGeneratorTest {
+    @TempDir
+    Path dir;
+
+    private Path imageFolder;
+
+    @BeforeEach
+    void createImageFolder() throws IOException {
+        imageFolder = Files.createDirectories(dir.resolve("images"));
+    }
+
+    @Test
+    void thumbnailsFitEverySizeKeepingTheAspectRatio() throws IOException {
+        assertTrue(ThumbnailGenerator.generateThumbnails(image(imageFolder.resolve("0001.png"), 400, 200)));
+
+        assertSize(50, 25, thumbnail("0001.png", 50, 45));
+        assertSize(60, 30, thumbnail("0001.png", 60, 60));
+        assertSize(100, 50, thumbnail("0001.png", 100, 70));
+        try (var files = Files.list(imageFolder.resolve(StorageLocation.thumbnailSubfolder))) {
+            assertEquals(3, files.count()); // no temporary files left behind
+        }
+    }
+
+    @Test
+    void unreadableImageGetsNoThumbnails() throws IOException {
+        Path notAnImage = Files.writeString(imageFolder.resolve("0001.jpg"), "not an image");
+
+        assertFalse(ThumbnailGenerator.generateThumbnails(notAnImage));
+        assertFalse(Files.exists(thumbnail("0001.jpg", 50, 45)));
+    }
+
+    @Test
+    void generateAllOnlyRedoesMissingOrOutdatedThumbnails() throws IOException {
+        Path first = image(imageFolder.resolve("0001.png"), 80, 80);
+        image(imageFolder.resolve("0002.png"), 80, 80);
+        assertEquals(2, ThumbnailGenerator.generateAll(imageFolder));
+        assertEquals(0, ThumbnailGenerator.generateAll(imageFolder)); // all up to date
+
+        Files.setLastModifiedTime(first, FileTime.fromMillis(System.currentTimeMillis() + 60_000)); // a newer image
+        Files.delete(thumbnail("0002.png", 60, 60));
+        assertEquals(2, ThumbnailGenerator.generateAll(imageFolder));
+        assertTrue(Files.exists(thumbnail("0002.png", 60, 60)));
+
+        ThumbnailGenerator.deleteThumbnails(imageFolder, "0001.png");
+        assertFalse(Files.exists(thumbnail("0001.png", 50, 45)));
+        assertEquals(1, ThumbnailGenerator.generateAll(imageFolder));
+    }
+
+    @Test
+    void imagesCopiedInGetThumbnailsAndDeletedOnesLoseThem() throws IOException {
+        Path source = image(dir.resolve("picked.png"), 200, 200);
+
+        String imageName = ImageFileManager.copyFileToDestination(source.toString(), imageFolder.toString(), "0007");
+        assertEquals("0007.png", imageName);
+        assertSize(45, 45, thumbnail(imageName, 50, 45));
+
+        ImageFileManager.deleteImageFile(imageFolder.toString(), imageName);
+        assertFalse(Files.exists(thumbnail(imageName, 50, 45)));
+        assertFalse(Files.exists(thumbnail(imageName, 100, 70)));
+    }
+
+    private Path thumbnail(String imageName, int width, int height) {
+        return ThumbnailGenerator.thumbnailPath(imageFolder, imageName, width, height);
+    }
+
+    private static Path image(Path path, int width, int height) throws IOException {
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", path.toFile());
+        return path;
+    }
+
+    private static void assertSize(int width, int height, Path imageFile) throws IOException {
+        BufferedImage image = ImageIO.read(imageFile.toFile());
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+    }
+}
@@ -0,0 +1,94 @@
+package ci553.happyshop.utility;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the levelled logger: messages below the level are dropped without building them,
+ * and the writer thread prints the others to the console, warnings and errors to System.err.
+ */
+class AppLoggerTest {
+    private static final AppLogger log = AppLogger.getLogger(AppLoggerTest.class);
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private PrintStream originalOut;
+    private PrintStream originalErr;
+    private AppLogger.Level originalLevel;
+
+    @BeforeEach
+    void captureConsole() {
+        originalOut = System.out;
+        originalErr = System.err;
+        originalLevel = AppLogger.getLevel();
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void restoreConsole() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+        AppLogger.setLevel(originalLevel);
+    }
+
+    @Test
+    void messagesBelowTheLevelAreNotBuilt() {
+        AppLogger.setLevel(AppLogger.Level.INFO);
+        AtomicInteger built = new AtomicInteger();
+
+        log.debug(() -> "debug " + built.incrementAndGet());
+        assertEquals(0, built.get());
+        assertFalse(log.isDebugEnabled());
+
+        AppLogger.setLevel(AppLogger.Level.DEBUG);
+        log.debug(() -> "debug " + built.incrementAndGet());
+        assertEquals(1, built.get());
+        assertTrue(log.isDebugEnabled());
+    }
+
+    @Test
+    void offDisablesEveryLevel() {
+        AppLogger.setLevel(AppLogger.Level.OFF);
+        for (AppLogger.Level level : AppLogger.Level.values()) {
+            assertFalse(log.isEnabled(level), level.toString());
+        }
+    }
+
+    @Test
+    void writerThreadPrintsTheMessages() throws InterruptedException {
+        AppLogger.setLevel(AppLogger.Level.INFO);
+        log.debug("not printed");
+        log.info("order 7 created");
+        log.error("order 8 failed", new IllegalStateException("disk full"));
+
+        String printed = waitFor(out, "order 7 created");
+        assertTrue(printed.contains("INFO "), printed);
+        assertTrue(printed.contains("AppLoggerTest - order 7 created"), printed);
+        String errors = waitFor(err, "disk full");
+        assertTrue(errors.contains("ERROR") && errors.contains("order 8 failed"), errors);
+        assertFalse(out.toString(StandardCharsets.UTF_8).contains("not printed"));
+    }
+
+    // the text written to the stream once it contains the expected part, the writer thread prints asynchronously
+    private static String waitFor(ByteArrayOutputStream stream, String expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            String text = stream.toString(StandardCharsets.UTF_8);
+            if (text.contains(expected)) {
+                return text;
+            }
+            Thread.sleep(10);
+        }
+        fail("\"" + expected + "\" was not printed");
+        return null;
+    }
+}
@@ -0,0 +1,102 @@
+package ci553.happyshop.utility;
+
+import javafx.application.Platform;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static ci553.happyshop.utility.FxTestPlatform.onFx;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the batch dispatcher: changes submitted before a flush are applied together, in the order they were
+ * submitted, on the JavaFX Application Thread and rendered once; the flush waits maxLatencyMillis,
+ * and a change submitted after a flush gets a flush of its own.
+ * Needs JavaFX, so the tests are skipped where it cannot start.
+ */
+class FxBatchDispatcherTest {
+    private final AtomicInteger renders = new AtomicInteger();
+    private final List<Integer> applied = new CopyOnWriteArrayList<>();
+    private final AtomicInteger offFxThread = new AtomicInteger();
+
+    @BeforeEach
+    void startFx() {
+        FxTestPlatform.start();
+    }
+
+    @Test
+    void changesOfABatchAreAppliedInOrderAndRenderedOnce() throws Exception {
+        FxBatchDispatcher dispatcher = new FxBatchDispatcher(0, renders::incrementAndGet);
+        onFx(() -> { // the flush cannot run before all of them are submitted
+            for (int i = 0; i < 100; i++) {
+                dispatcher.submit(change(i));
+            }
+        });
+        awaitRenders(1);
+
+        assertEquals(IntStream.range(0, 100).boxed().toList(), applied);
+        assertEquals(0, offFxThread.get());
+        Thread.sleep(50);
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void changesFromManyThreadsShareTheDelayedFlush() throws Exception {
+        FxBatchDispatcher dispatcher = new FxBatchDispatcher(100, renders::incrementAndGet);
+        long submitted = System.nanoTime();
+        Thread[] senders = new Thread[4];
+        for (int t = 0; t < senders.length; t++) {
+            int first = t * 10;
+            senders[t] = new Thread(() -> {
+                for (int i = first; i < first + 10; i++) {
+                    dispatcher.submit(change(i));
+                }
+            });
+            senders[t].start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        awaitRenders(1);
+
+        assertTrue(System.nanoTime() - submitted >= 100_000_000L, "flushed before maxLatencyMillis");
+        assertEquals(40, applied.size());
+        assertEquals(0, offFxThread.get());
+        for (int t = 0; t < senders.length; t++) { // each sender's changes keep their order
+            int sender = t;
+            List<Integer> fromSender = applied.stream().filter(i -> i / 10 == sender).toList();
+            assertEquals(IntStream.range(sender * 10, sender * 10 + 10).boxed().toList(), fromSender);
+        }
+    }
+
+    @Test
+    void changeAfterAFlushGetsAFlushOfItsOwn() throws Exception {
+        FxBatchDispatcher dispatcher = new FxBatchDispatcher(10, renders::incrementAndGet);
+        dispatcher.submit(change(1));
+        awaitRenders(1);
+        dispatcher.submit(change(2));
+        awaitRenders(2);
+        assertEquals(List.of(1, 2), applied);
+    }
+
+    private Runnable change(int i) {
+        return () -> {
+            if (!Platform.isFxApplicationThread()) {
+                offFxThread.incrementAndGet();
+            }
+            applied.add(i);
+        };
+    }
+
+    private void awaitRenders(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (renders.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, renders.get());
+    }
+}
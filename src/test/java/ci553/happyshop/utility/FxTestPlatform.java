@@ -0,0 +1,63 @@
+package ci553.happyshop.utility;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Starts the JavaFX platform once for the tests that need the JavaFX Application Thread, and runs code on it.
+ * Where JavaFX cannot start (e.g. no display) the tests calling start() are skipped, not failed.
+ */
+final class FxTestPlatform {
+    private static Boolean started; // null until the first start()
+
+    private FxTestPlatform() {
+    }
+
+    static synchronized void start() {
+        if (started == null) {
+            try {
+                Platform.startup(() -> { });
+                Platform.setImplicitExit(false); // no window is ever shown, keep the platform for the next test
+                started = true;
+            } catch (IllegalStateException e) { // started already, e.g. by another test class
+                started = true;
+            } catch (RuntimeException | LinkageError e) { // e.g. "Unable to open DISPLAY"
+                started = false;
+            }
+        }
+        assumeTrue(started, "JavaFX cannot start here");
+    }
+
+    //Runs the task on the JavaFX Application Thread and returns its result.
+    static <T> T onFx(Callable<T> task) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        try {
+            return result.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    static void onFx(Runnable task) throws Exception {
+        onFx(() -> {
+            task.run();
+            return null;
+        });
+    }
+}
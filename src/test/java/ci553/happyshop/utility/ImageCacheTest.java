@@ -0,0 +1,113 @@
+package ci553.happyshop.utility;
+
+import ci553.happyshop.storageAccess.ImageStore;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static ci553.happyshop.utility.FxTestPlatform.onFx;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests the image cache with the product images in the images folder: the placeholder is shown until an image
+ * is decoded, later loads share the decoded image, images are pre-scaled, the least recently used image is dropped,
+ * invalidate makes the next load read the file again, and a reused ImageView keeps its latest image.
+ * Needs JavaFX, so the tests are skipped where it cannot start.
+ */
+class ImageCacheTest {
+    private int originalMaxSize;
+
+    @BeforeEach
+    void startWithAnEmptyCache() {
+        FxTestPlatform.start();
+        originalMaxSize = ImageCache.maxSize;
+        ImageCache.clear();
+    }
+
+    @AfterEach
+    void restoreMaxSize() {
+        ImageCache.maxSize = originalMaxSize;
+        ImageCache.clear();
+    }
+
+    @Test
+    void laterLoadsShareTheDecodedImage() throws Exception {
+        ImageView first = new ImageView();
+        onFx(() -> ImageCache.load(first, "0001.jpg", 50, 45));
+        Image image = awaitShown(first, "0001.jpg");
+        assertTrue(image.getWidth() <= 50 && image.getHeight() <= 45, "decoded at the size it is shown at");
+
+        ImageView second = new ImageView();
+        onFx(() -> ImageCache.load(second, "0001.jpg", 50, 45));
+        assertSame(image, onFx(second::getImage)); // straight away, no placeholder
+
+        ImageView larger = new ImageView();
+        onFx(() -> ImageCache.load(larger, "0001.jpg", 100, 70));
+        assertNotSame(image, awaitShown(larger, "0001.jpg")); // every size is kept on its own
+    }
+
+    @Test
+    void missingImageShowsThePlaceholder() throws Exception {
+        ImageView imageView = new ImageView();
+        onFx(() -> ImageCache.load(imageView, "missing.jpg", 50, 45));
+        Thread.sleep(200); // time to fail decoding
+        assertTrue(onFx(imageView::getImage).getUrl().endsWith(ImageCache.placeholderImage));
+    }
+
+    @Test
+    void leastRecentlyUsedImageIsDropped() throws Exception {
+        ImageCache.maxSize = 2; // the placeholder and one image
+        ImageView imageView = new ImageView();
+        onFx(() -> ImageCache.load(imageView, "0001.jpg", 50, 45));
+        Image first = awaitShown(imageView, "0001.jpg");
+        onFx(() -> ImageCache.load(imageView, "0002.jpg", 50, 45));
+        awaitShown(imageView, "0002.jpg");
+
+        onFx(() -> ImageCache.load(imageView, "0001.jpg", 50, 45));
+        assertNotSame(first, awaitShown(imageView, "0001.jpg")); // decoded again
+    }
+
+    @Test
+    void invalidatedImageIsReadAgain() throws Exception {
+        // an image in the store is kept by its hash, which changes with the file, so it is never invalidated
+        assumeTrue(ImageStore.of(StorageLocation.imageFolderPath).hashOf("0001.jpg") == null);
+        ImageView imageView = new ImageView();
+        onFx(() -> ImageCache.load(imageView, "0001.jpg", 50, 45));
+        Image first = awaitShown(imageView, "0001.jpg");
+        onFx(() -> ImageCache.load(imageView, "0001.jpg", 50, 45));
+        assertSame(first, onFx(imageView::getImage));
+
+        ImageCache.invalidate("0001.jpg");
+        onFx(() -> ImageCache.load(imageView, "0001.jpg", 50, 45));
+        assertNotSame(first, awaitShown(imageView, "0001.jpg"));
+    }
+
+    @Test
+    void reusedImageViewKeepsItsLatestImage() throws Exception {
+        ImageView imageView = new ImageView();
+        onFx(() -> {
+            ImageCache.load(imageView, "0003.jpg", 50, 45); // the cell scrolls past this product
+            ImageCache.load(imageView, "0004.jpg", 50, 45);
+        });
+        awaitShown(imageView, "0004.jpg");
+        Thread.sleep(200); // time for the first image to finish decoding too
+        assertTrue(onFx(imageView::getImage).getUrl().contains("0004.jpg"));
+    }
+
+    // Waits until the ImageView shows the decoded image (no longer the placeholder) and returns it.
+    private static Image awaitShown(ImageView imageView, String imageName) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            Image image = onFx(imageView::getImage);
+            if (image != null && image.getUrl().contains(imageName) && image.getProgress() >= 1) {
+                return image;
+            }
+            Thread.sleep(10);
+        }
+        fail(imageName + " was not shown");
+        return null;
+    }
+}
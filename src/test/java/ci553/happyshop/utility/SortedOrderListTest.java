@@ -0,0 +1,80 @@
+package ci553.happyshop.utility;
+
+import ci553.happyshop.orderManagement.OrderState;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the sorted order list: rows stay sorted by orderId whatever order they are put in,
+ * a state change sets only its own row, and setAll replaces every row in one list change.
+ */
+class SortedOrderListTest {
+
+    @Test
+    void rowsStaySortedByOrderId() {
+        SortedOrderList orderList = new SortedOrderList();
+        for (int orderId : new int[] {5, 1, 9, 3, 7}) {
+            orderList.put(orderId, OrderState.Ordered);
+        }
+        assertEquals(List.of(1, 3, 5, 7, 9), orderIds(orderList));
+
+        assertTrue(orderList.remove(5));
+        assertFalse(orderList.remove(5));
+        orderList.put(4, OrderState.Progressing);
+        assertEquals(List.of(1, 3, 4, 7, 9), orderIds(orderList));
+        assertEquals(new SortedOrderList.Entry(4, OrderState.Progressing), orderList.getItems().get(2));
+    }
+
+    @Test
+    void stateChangeSetsOnlyItsRow() {
+        SortedOrderList orderList = new SortedOrderList();
+        orderList.put(1, OrderState.Ordered);
+        orderList.put(2, OrderState.Ordered);
+        List<String> changes = recordChanges(orderList);
+
+        orderList.put(2, OrderState.Progressing);
+        orderList.put(2, OrderState.Progressing); // unchanged, no list change
+        assertEquals(List.of("replaced 1..2"), changes);
+        assertEquals(2, orderList.size());
+    }
+
+    @Test
+    void setAllIsOneListChange() {
+        SortedOrderList orderList = new SortedOrderList();
+        orderList.put(8, OrderState.Ordered);
+        List<String> changes = recordChanges(orderList);
+
+        orderList.setAll(new TreeMap<>(Map.of(2, OrderState.Ordered, 3, OrderState.Progressing)));
+        assertEquals(List.of("replaced 0..2"), changes);
+        assertEquals(List.of(2, 3), orderIds(orderList));
+        assertThrows(UnsupportedOperationException.class, () -> orderList.getItems().clear()); // read-only view
+    }
+
+    private static List<Integer> orderIds(SortedOrderList orderList) {
+        return orderList.getItems().stream().map(SortedOrderList.Entry::orderId).toList();
+    }
+
+    // Records each list change as "replaced from..to", "added from..to" or "removed at".
+    private static List<String> recordChanges(SortedOrderList orderList) {
+        List<String> changes = new ArrayList<>();
+        orderList.getItems().addListener((ListChangeListener<SortedOrderList.Entry>) change -> {
+            while (change.next()) {
+                if (change.wasReplaced()) {
+                    changes.add("replaced " + change.getFrom() + ".." + change.getTo());
+                } else if (change.wasAdded()) {
+                    changes.add("added " + change.getFrom() + ".." + change.getTo());
+                } else if (change.wasRemoved()) {
+                    changes.add("removed " + change.getFrom());
+                }
+            }
+        });
+        return changes;
+    }
+}